@@ -0,0 +1,116 @@
+/*****************************************************************************
+ * Copyright (C) jparsec.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package org.jparsec.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+
+import org.jparsec.pattern.CharPredicate;
+import org.jparsec.pattern.CharPredicates;
+import org.jparsec.pattern.Pattern;
+import org.jparsec.pattern.Patterns;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Scans a long run of characters with {@link Patterns#many(CharPredicate)} over the
+ * {@link CharPredicates} factories, each next to the {@code java.util.regex} character class
+ * equivalent. Every benchmark returns the matched length, which is the whole input.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CharPredicateBenchmark {
+
+  @Param({"ASCII", "NON_ASCII"})
+  public Inputs.Alphabet alphabet;
+
+  @Param({"STRING", "STRING_BUILDER", "CHAR_BUFFER"})
+  public SourceBenchmark.Kind kind;
+
+  private CharSequence source;
+  private int length;
+
+  private Pattern among;
+  private Pattern range;
+  private Pattern composite;
+
+  private Matcher amongRegex;
+  private Matcher rangeRegex;
+  private Matcher compositeRegex;
+
+  @Setup public void setUp() {
+    String text = alphabet.letters(10000);
+    source = kind.wrap(text);
+    length = text.length();
+    char first = alphabet.letters.charAt(0);
+    char last = alphabet.letters.charAt(alphabet.letters.length() - 1);
+
+    among = Patterns.many(CharPredicates.among(alphabet.letters + "0123456789_"));
+    amongRegex = matcher("[" + alphabet.letters + "0123456789_]*");
+    range = Patterns.many(CharPredicates.range(first, last));
+    rangeRegex = matcher("[" + first + "-" + last + "]*");
+    CharPredicate letterOrDigit = CharPredicates.or(CharPredicates.IS_DIGIT,
+        CharPredicates.and(CharPredicates.IS_LETTER, CharPredicates.not(CharPredicates.isChar('!'))));
+    composite = Patterns.many(letterOrDigit);
+    compositeRegex = matcher("[0-9[\\p{javaLetter}&&[^!]]]*");
+  }
+
+  @Benchmark public int among() {
+    return among.match(source, 0, length);
+  }
+
+  @Benchmark public int amongRegex() {
+    return lookingAt(amongRegex);
+  }
+
+  @Benchmark public int range() {
+    return range.match(source, 0, length);
+  }
+
+  @Benchmark public int rangeRegex() {
+    return lookingAt(rangeRegex);
+  }
+
+  @Benchmark public int composite() {
+    return composite.match(source, 0, length);
+  }
+
+  @Benchmark public int compositeRegex() {
+    return lookingAt(compositeRegex);
+  }
+
+  private Matcher matcher(String regex) {
+    return java.util.regex.Pattern.compile(regex).matcher(source);
+  }
+
+  private int lookingAt(Matcher matcher) {
+    matcher.reset(source);
+    return matcher.lookingAt() ? matcher.end() : Pattern.MISMATCH;
+  }
+}
@@ -0,0 +1,77 @@
+/*****************************************************************************
+ * Copyright (C) jparsec.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package org.jparsec.benchmarks;
+
+import java.util.function.IntFunction;
+
+/**
+ * Generates benchmark inputs of a given size by repeating a grammar-specific chunk.
+ */
+public final class Inputs {
+
+  private Inputs() {}
+
+  /** The characters scanner-level inputs are made of. */
+  public enum Alphabet {
+    ASCII("abcdefghijklmnopqrstuvwxyz", " \t\n"),
+    /** Greek letters, and ideographic and em spaces, all outside of the ASCII fast paths. */
+    NON_ASCII("\u03b1\u03b2\u03b3\u03b4\u03b5\u03b6\u03b7\u03b8\u03b9\u03ba\u03bb\u03bc"
+        + "\u03bd\u03be\u03bf\u03c0\u03c1\u03c3\u03c4\u03c5\u03c6\u03c7\u03c8\u03c9",
+        "\u3000\u2003\n"),
+    ;
+
+    /** Lower case letters, in order, with the first and last being the bounds of a range. */
+    public final String letters;
+
+    /** Whitespace characters. */
+    public final String spaces;
+
+    Alphabet(String letters, String spaces) {
+      this.letters = letters;
+      this.spaces = spaces;
+    }
+
+    /** Returns {@code length} letters, cycling through the alphabet with a stride. */
+    public String letters(int length) {
+      return cycle(letters, length);
+    }
+
+    /** Returns {@code length} whitespace characters. */
+    public String spaces(int length) {
+      return cycle(spaces, length);
+    }
+
+    private static String cycle(String chars, int length) {
+      StringBuilder builder = new StringBuilder(length);
+      for (int i = 0; i < length; i++) {
+        builder.append(chars.charAt(i * 7 % chars.length()));
+      }
+      return builder.toString();
+    }
+  }
+
+  /**
+   * Returns {@code chunk.apply(0) + chunk.apply(1) + ... + end}, with as many chunks as needed for
+   * the result to be at least {@code size} characters long.
+   */
+  public static String generate(int size, IntFunction<String> chunk, String end) {
+    StringBuilder builder = new StringBuilder(size + 256);
+    for (int i = 0; builder.length() + end.length() < size; i++) {
+      builder.append(chunk.apply(i));
+    }
+    return builder.append(end).toString();
+  }
+}
@@ -0,0 +1,101 @@
+/*****************************************************************************
+ * Copyright (C) jparsec.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package org.jparsec.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import jdk.jfr.Recording;
+
+import org.jparsec.Parser;
+import org.jparsec.Parsers;
+import org.jparsec.Scanners;
+import org.jparsec.Terminals;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of the Flight Recorder events on small parses, where the per-parse overhead
+ * shows the most. {@link Recorder#OFF} and {@link Recorder#DISABLED} measure the disabled path,
+ * which should perform alike and allocate no event: run with {@code -prof gc} to check.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class JfrBenchmark {
+
+  private static final Terminals OPERATORS = Terminals.operators("+", "*", "(", ")");
+
+  private static final Parser<List<String>> PARSER = Parsers.or(
+          Terminals.IntegerLiteral.PARSER.label("literal"),
+          OPERATORS.token("+", "*", "(", ")").retn("operator").label("operator"))
+      .many()
+      .from(Parsers.or(Terminals.IntegerLiteral.TOKENIZER, OPERATORS.tokenizer()),
+          Scanners.WHITESPACES.skipMany());
+
+  /** How the events are being recorded. */
+  public enum Recorder {
+    /** No recording is running. */
+    OFF,
+    /** A recording is running with the jparsec events disabled. */
+    DISABLED,
+    /** A recording is running with the parse and lex events enabled. */
+    ENABLED,
+    /** A recording is running with all events enabled, including slow rules. */
+    SLOW_RULES,
+  }
+
+  @Param({"OFF", "DISABLED", "ENABLED", "SLOW_RULES"})
+  public Recorder recorder;
+
+  private Recording recording;
+
+  @Setup public void setUp() {
+    if (recorder == Recorder.OFF) return;
+    recording = new Recording();
+    recording.setToDisk(false);
+    recording.setMaxSize(1 << 20);
+    if (recorder == Recorder.DISABLED) {
+      recording.disable("org.jparsec.Parse");
+      recording.disable("org.jparsec.Lex");
+    }
+    if (recorder == Recorder.SLOW_RULES) {
+      recording.enable("org.jparsec.SlowRule");
+    }
+    recording.start();
+  }
+
+  @TearDown public void tearDown() {
+    if (recording != null) recording.close();
+  }
+
+  @Benchmark public List<String> parse() {
+    return PARSER.parse("1 + (2 * 34) + 5");
+  }
+}
@@ -0,0 +1,93 @@
+/*****************************************************************************
+ * Copyright (C) jparsec.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package org.jparsec.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jparsec.Parser;
+import org.jparsec.Parsers;
+import org.jparsec.Scanners;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Runs the same scanner grammar with and without a {@link Parser#label} on every rule. In
+ * {@link Parser.Mode#PRODUCTION} the two should perform alike, while {@link Parser.Mode#DEBUG}
+ * shows the cost of tracing the parse tree.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class LabelBenchmark {
+
+  private static final Parser<?> UNLABELED = grammar(false);
+  private static final Parser<?> LABELED = grammar(true);
+
+  @Param({"PRODUCTION", "DEBUG"})
+  public Parser.Mode mode;
+
+  private String source;
+
+  @Setup public void setUp() {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < 2000; i++) {
+      builder.append("[x").append(i).append(", ").append(i * 31 % 1000).append(", [y, z]], ");
+    }
+    builder.append("end");
+    source = builder.toString();
+  }
+
+  @Benchmark public Object unlabeled() {
+    return UNLABELED.parse(source, mode);
+  }
+
+  @Benchmark public Object labeled() {
+    return LABELED.parse(source, mode);
+  }
+
+  /** A list of identifiers, numbers and nested lists, separated by commas and ending in "end". */
+  private static Parser<?> grammar(boolean labeled) {
+    Parser.Reference<Object> ref = Parser.newReference();
+    Parser<?> comma = label(Scanners.isChar(',').followedBy(Scanners.WHITESPACES.optional(null)),
+        "comma", labeled);
+    Parser<?> element = label(Parsers.or(
+        label(Scanners.IDENTIFIER, "identifier", labeled),
+        label(Scanners.INTEGER, "integer", labeled),
+        ref.lazy()), "element", labeled);
+    Parser<Object> list = label(Parsers.sequence(
+        Scanners.isChar('['), element.sepBy(comma), Scanners.isChar(']')).cast(),
+        "list", labeled);
+    ref.set(list);
+    return label(element.followedBy(comma).many().followedBy(Scanners.string("end")),
+        "root", labeled);
+  }
+
+  private static <T> Parser<T> label(Parser<T> parser, String name, boolean labeled) {
+    return labeled ? parser.label(name) : parser;
+  }
+}
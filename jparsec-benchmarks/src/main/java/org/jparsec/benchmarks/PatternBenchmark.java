@@ -0,0 +1,155 @@
+/*****************************************************************************
+ * Copyright (C) jparsec.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package org.jparsec.benchmarks;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+
+import org.jparsec.pattern.CharPredicates;
+import org.jparsec.pattern.Pattern;
+import org.jparsec.pattern.Patterns;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Matches {@link Patterns} against a long word followed by digits, each next to the
+ * {@code java.util.regex} equivalent. Every benchmark returns the matched length.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PatternBenchmark {
+
+  @Param({"ASCII", "NON_ASCII"})
+  public Inputs.Alphabet alphabet;
+
+  @Param({"STRING", "STRING_BUILDER", "CHAR_BUFFER"})
+  public SourceBenchmark.Kind kind;
+
+  private CharSequence source;
+  private int length;
+
+  private Pattern many;
+  private Pattern regex;
+  private Pattern string;
+  private Pattern stringCaseInsensitive;
+  private Pattern or;
+  private Pattern sequence;
+
+  private Matcher manyRegex;
+  private Matcher regexRegex;
+  private Matcher stringRegex;
+  private Matcher stringCaseInsensitiveRegex;
+  private Matcher orRegex;
+  private Matcher sequenceRegex;
+
+  @Setup public void setUp() {
+    String word = alphabet.letters(1000);
+    String text = word + " " + "1234567890123456789012345678901234567890";
+    source = kind.wrap(text);
+    length = text.length();
+    String prefix = word.substring(0, 32);
+    String letters = "[" + alphabet.letters.charAt(0) + "-"
+        + alphabet.letters.charAt(alphabet.letters.length() - 1) + "]";
+
+    many = Patterns.many(CharPredicates.IS_LETTER);
+    manyRegex = matcher("\\p{javaLetter}*", 0);
+    regex = Patterns.regex(letters + "+ [0-9]+");
+    regexRegex = matcher(letters + "+ [0-9]+", 0);
+    string = Patterns.string(prefix);
+    stringRegex = matcher(java.util.regex.Pattern.quote(prefix), 0);
+    String upper = prefix.toUpperCase(Locale.ROOT);
+    stringCaseInsensitive = Patterns.stringCaseInsensitive(upper);
+    stringCaseInsensitiveRegex = matcher(java.util.regex.Pattern.quote(upper),
+        java.util.regex.Pattern.CASE_INSENSITIVE | java.util.regex.Pattern.UNICODE_CASE);
+    or = Patterns.or(Patterns.string("foo"), Patterns.string("bar"), Patterns.string("baz"),
+        Patterns.string(prefix));
+    orRegex = matcher("foo|bar|baz|" + java.util.regex.Pattern.quote(prefix), 0);
+    sequence = Patterns.sequence(Patterns.many(CharPredicates.IS_LETTER), Patterns.isChar(' '),
+        Patterns.many(CharPredicates.IS_DIGIT));
+    sequenceRegex = matcher("\\p{javaLetter}* [0-9]*", 0);
+  }
+
+  @Benchmark public int many() {
+    return many.match(source, 0, length);
+  }
+
+  @Benchmark public int manyRegex() {
+    return lookingAt(manyRegex);
+  }
+
+  @Benchmark public int regex() {
+    return regex.match(source, 0, length);
+  }
+
+  @Benchmark public int regexRegex() {
+    return lookingAt(regexRegex);
+  }
+
+  @Benchmark public int string() {
+    return string.match(source, 0, length);
+  }
+
+  @Benchmark public int stringRegex() {
+    return lookingAt(stringRegex);
+  }
+
+  @Benchmark public int stringCaseInsensitive() {
+    return stringCaseInsensitive.match(source, 0, length);
+  }
+
+  @Benchmark public int stringCaseInsensitiveRegex() {
+    return lookingAt(stringCaseInsensitiveRegex);
+  }
+
+  @Benchmark public int or() {
+    return or.match(source, 0, length);
+  }
+
+  @Benchmark public int orRegex() {
+    return lookingAt(orRegex);
+  }
+
+  @Benchmark public int sequence() {
+    return sequence.match(source, 0, length);
+  }
+
+  @Benchmark public int sequenceRegex() {
+    return lookingAt(sequenceRegex);
+  }
+
+  private Matcher matcher(String regex, int flags) {
+    return java.util.regex.Pattern.compile(regex, flags).matcher(source);
+  }
+
+  private int lookingAt(Matcher matcher) {
+    matcher.reset(source);
+    return matcher.lookingAt() ? matcher.end() : Pattern.MISMATCH;
+  }
+}
@@ -0,0 +1,137 @@
+/*****************************************************************************
+ * Copyright (C) jparsec.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package org.jparsec.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+
+import org.jparsec.Parser;
+import org.jparsec.Scanners;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Runs the common {@link Scanners} over inputs made entirely of what they skip, each next to the
+ * {@code java.util.regex} equivalent. The regular expressions are written so that they don't
+ * recurse per character, which would overflow the stack on inputs this long.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ScannerBenchmark {
+
+  @Param({"ASCII", "NON_ASCII"})
+  public Inputs.Alphabet alphabet;
+
+  @Param({"STRING", "STRING_BUILDER", "CHAR_BUFFER"})
+  public SourceBenchmark.Kind kind;
+
+  private static final Parser<String> QUOTED = Scanners.quoted('<', '>');
+  private static final Parser<Void> BLOCK_COMMENT = Scanners.blockComment("/*", "*/");
+
+  private CharSequence whitespaces;
+  private CharSequence delimiters;
+  private CharSequence quoted;
+  private CharSequence doubleQuoteString;
+  private CharSequence blockComment;
+
+  private Matcher whitespacesRegex;
+  private Matcher delimitersRegex;
+  private Matcher quotedRegex;
+  private Matcher doubleQuoteStringRegex;
+  private Matcher blockCommentRegex;
+
+  @Setup public void setUp() {
+    whitespaces = kind.wrap(alphabet.spaces(10000));
+    StringBuilder builder = new StringBuilder();
+    StringBuilder quotedBuilder = new StringBuilder("\"");
+    for (int i = 0; builder.length() < 10000; i++) {
+      String words = alphabet.letters(40 + i % 20);
+      builder.append(alphabet.spaces(3)).append("// ").append(words).append('\n')
+          .append("/* ").append(words).append(" */");
+      quotedBuilder.append(words).append("\\\"");
+    }
+    delimiters = kind.wrap(builder.toString());
+    doubleQuoteString = kind.wrap(quotedBuilder.append('"').toString());
+    quoted = kind.wrap("<" + alphabet.letters(10000) + ">");
+    blockComment = kind.wrap("/*" + alphabet.letters(10000) + "*/");
+
+    whitespacesRegex = java.util.regex.Pattern.compile("[\\p{javaWhitespace}]+").matcher("");
+    delimitersRegex = java.util.regex.Pattern.compile(
+        "\\G(?:[\\p{javaWhitespace}]++|//[^\\n]*+|/\\*(?s:.*?)\\*/)").matcher("");
+    quotedRegex = java.util.regex.Pattern.compile("<[^>]*+>").matcher("");
+    doubleQuoteStringRegex = java.util.regex.Pattern.compile("\"[^\"\\\\]*+(?:\\\\.[^\"\\\\]*+)*+\"")
+        .matcher("");
+    blockCommentRegex = java.util.regex.Pattern.compile("/\\*(?s:.*?)\\*/").matcher("");
+  }
+
+  @Benchmark public Object whitespaces() {
+    return Scanners.WHITESPACES.parse(whitespaces);
+  }
+
+  @Benchmark public boolean whitespacesRegex() {
+    return whitespacesRegex.reset(whitespaces).matches();
+  }
+
+  @Benchmark public Object javaDelimiter() {
+    return Scanners.JAVA_DELIMITER.parse(delimiters);
+  }
+
+  @Benchmark public int javaDelimiterRegex() {
+    Matcher matcher = delimitersRegex.reset(delimiters);
+    int end = 0;
+    while (matcher.find()) {
+      end = matcher.end();
+    }
+    return end;
+  }
+
+  @Benchmark public String quoted() {
+    return QUOTED.parse(quoted);
+  }
+
+  @Benchmark public boolean quotedRegex() {
+    return quotedRegex.reset(quoted).matches();
+  }
+
+  @Benchmark public String doubleQuoteString() {
+    return Scanners.DOUBLE_QUOTE_STRING.parse(doubleQuoteString);
+  }
+
+  @Benchmark public boolean doubleQuoteStringRegex() {
+    return doubleQuoteStringRegex.reset(doubleQuoteString).matches();
+  }
+
+  @Benchmark public Object blockComment() {
+    return BLOCK_COMMENT.parse(blockComment);
+  }
+
+  @Benchmark public boolean blockCommentRegex() {
+    return blockCommentRegex.reset(blockComment).matches();
+  }
+}
@@ -0,0 +1,144 @@
+/*****************************************************************************
+ * Copyright (C) jparsec.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package org.jparsec.benchmarks;
+
+import java.nio.CharBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jparsec.Parser;
+import org.jparsec.Parsers;
+import org.jparsec.Scanners;
+import org.jparsec.Terminals;
+import org.jparsec.Token;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Lexes the same input handed over as different {@link CharSequence} types.
+ *
+ * <p>Every kind of input is lexed during setup, as a service accepting all of them would, so the
+ * JIT has seen all the receiver types before measurement starts. Inputs the parser normalizes to
+ * a {@code String} should then perform alike, while {@link Kind#CUSTOM}, which is scanned through
+ * the {@code CharSequence} interface, shows what the normalization saves.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SourceBenchmark {
+
+  private static final Terminals OPERATORS = Terminals.operators("+", "-", "*", "/", "(", ")", ";");
+
+  private static final Parser<List<Token>> LEXER = Parsers.or(
+          Terminals.IntegerLiteral.TOKENIZER, Terminals.Identifier.TOKENIZER, OPERATORS.tokenizer())
+      .lexer(Scanners.JAVA_DELIMITER);
+
+  /** The type of {@link CharSequence} the input is handed over as. */
+  public enum Kind {
+    STRING {
+      @Override CharSequence wrap(String text) {
+        return text;
+      }
+    },
+    STRING_BUILDER {
+      @Override CharSequence wrap(String text) {
+        return new StringBuilder(text);
+      }
+    },
+    CHAR_BUFFER {
+      @Override CharSequence wrap(String text) {
+        return CharBuffer.wrap(text.toCharArray());
+      }
+    },
+    CUSTOM {
+      @Override CharSequence wrap(String text) {
+        return new Custom(text);
+      }
+    },
+    ;
+
+    abstract CharSequence wrap(String text);
+  }
+
+  @Param({"STRING", "STRING_BUILDER", "CHAR_BUFFER", "CUSTOM"})
+  public Kind kind;
+
+  private CharSequence source;
+
+  @Setup public void setUp() {
+    String text = generate(2000);
+    for (int i = 0; i < 20; i++) {
+      for (Kind k : Kind.values()) {
+        LEXER.parse(k.wrap(text));
+      }
+    }
+    source = kind.wrap(text);
+  }
+
+  @Benchmark public List<Token> lex() {
+    return LEXER.parse(source);
+  }
+
+  /** Generates {@code statements} statements such as {@code x1 = (x0 + 12) * 3; // ...}. */
+  static String generate(int statements) {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < statements; i++) {
+      builder.append("x").append(i).append(" - (x").append(i / 2).append(" + ")
+          .append(i * 31 % 1000).append(") * 3;");
+      if (i % 5 == 0) builder.append(" // line comment ").append(i);
+      if (i % 7 == 0) builder.append("\n/* block\n * comment */");
+      builder.append('\n');
+    }
+    return builder.toString();
+  }
+
+  /** A {@link CharSequence} the parser doesn't know how to normalize. */
+  static final class Custom implements CharSequence {
+    private final String text;
+
+    Custom(String text) {
+      this.text = text;
+    }
+
+    @Override public int length() {
+      return text.length();
+    }
+
+    @Override public char charAt(int index) {
+      return text.charAt(index);
+    }
+
+    @Override public CharSequence subSequence(int start, int end) {
+      return new Custom(text.substring(start, end));
+    }
+
+    @Override public String toString() {
+      return text;
+    }
+  }
+}
@@ -0,0 +1,107 @@
+/*****************************************************************************
+ * Copyright (C) jparsec.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package org.jparsec.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+
+import org.jparsec.Parser;
+import org.jparsec.Scanners;
+import org.jparsec.Terminals;
+import org.jparsec.Token;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Lexes a token stream with the {@link Terminals} tokenizer, next to a {@code java.util.regex}
+ * {@code \G} find loop recognizing the same tokens. The {@code OPERATORS} stream has operators
+ * only; the {@code WORDS} stream mixes keywords and identifiers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TerminalsBenchmark {
+
+  private static final String[] OPERATORS = {
+      "+", "-", "*", "/", "=", "==", "!=", "<", "<=", ">", ">=", "&&", "||", "(", ")", "->"};
+  private static final String[] KEYWORDS = {
+      "if", "else", "while", "for", "return", "class", "public", "static", "void", "new"};
+
+  private static final Terminals TERMINALS = Terminals.operators(OPERATORS)
+      .words(Scanners.IDENTIFIER)
+      .keywords(KEYWORDS)
+      .build();
+  private static final Parser<List<Token>> LEXER =
+      TERMINALS.tokenizer().lexer(Scanners.WHITESPACES);
+
+  public enum Stream {
+    OPERATORS, WORDS
+  }
+
+  @Param({"OPERATORS", "WORDS"})
+  public Stream stream;
+
+  private String source;
+  private Matcher regex;
+
+  @Setup public void setUp() {
+    String[] tokens = stream == Stream.OPERATORS ? OPERATORS : KEYWORDS;
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; builder.length() < 10000; i++) {
+      builder.append(tokens[i * 7 % tokens.length]).append(' ');
+      if (stream == Stream.WORDS) {
+        builder.append("name").append(i).append(' ');
+      }
+    }
+    source = builder.toString();
+    StringBuilder alternatives = new StringBuilder("[a-zA-Z_][a-zA-Z0-9_]*+");
+    // Longest operators first, as alternation picks the first one that matches.
+    for (int length = 2; length > 0; length--) {
+      for (String operator : OPERATORS) {
+        if (operator.length() == length) {
+          alternatives.append('|').append(java.util.regex.Pattern.quote(operator));
+        }
+      }
+    }
+    regex = java.util.regex.Pattern.compile("\\G\\s*+(?:" + alternatives + ")\\s*+").matcher("");
+  }
+
+  @Benchmark public List<Token> terminals() {
+    return LEXER.parse(source);
+  }
+
+  @Benchmark public int regex() {
+    Matcher matcher = regex.reset(source);
+    int tokens = 0;
+    while (matcher.find()) {
+      tokens++;
+    }
+    return tokens;
+  }
+}
@@ -0,0 +1,62 @@
+/*****************************************************************************
+ * Copyright (C) jparsec.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package org.jparsec.examples.calculator;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jparsec.Parser;
+import org.jparsec.benchmarks.Inputs;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Evaluates generated arithmetic expressions with {@link Calculator}, a scanner-only grammar
+ * built on {@link org.jparsec.OperatorTable}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CalculatorBenchmark {
+
+  private static final Parser<Integer> PARSER = Calculator.parser();
+
+  /** Input size in characters. Pass {@code -p size=100000000} for 100 MB. */
+  @Param({"100", "10000", "1000000"})
+  public int size;
+
+  private String source;
+
+  @Setup public void setUp() {
+    source = Inputs.generate(size, i -> "(" + i % 97 + "+3)*4-56/" + (i % 7 + 1) + "+-8%9+", "0");
+    PARSER.parse(source);
+  }
+
+  @Benchmark public Integer evaluate() {
+    return PARSER.parse(source);
+  }
+}
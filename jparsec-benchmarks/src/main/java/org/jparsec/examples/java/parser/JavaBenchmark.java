@@ -0,0 +1,111 @@
+/*****************************************************************************
+ * Copyright (C) jparsec.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package org.jparsec.examples.java.parser;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jparsec.Parser;
+import org.jparsec.Parsers;
+import org.jparsec.benchmarks.Inputs;
+import org.jparsec.examples.java.ast.declaration.Program;
+import org.jparsec.examples.java.ast.expression.Expression;
+import org.jparsec.examples.java.ast.statement.Statement;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parses generated Java with {@link DeclarationParser} and {@link StatementParser}: a program of
+ * many classes, and a long list of statements.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class JavaBenchmark {
+
+  private static final Parser<Program> PROGRAM = DeclarationParser.program();
+  private static final Parser<List<Statement>> STATEMENTS = newStatements();
+
+  private static final String STATEMENT_CHUNK =
+      "    for (int i = 0; i < n; i++) {\n"
+      + "      if (i % 2 == 0) {\n"
+      + "        System.out.println(\"even \" + i);\n"
+      + "      } else {\n"
+      + "        continue;\n"
+      + "      }\n"
+      + "    }\n"
+      + "    while (x > 0) x--;\n"
+      + "    try {\n"
+      + "      foo(new int[] {1, 2, 3}, (String) bar[0], this.baz(1.5e3, 'c'));\n"
+      + "    } catch (RuntimeException e) {\n"
+      + "      throw new IllegalStateException(e);\n"
+      + "    } finally {\n"
+      + "      done = true;\n"
+      + "    }\n";
+
+  /** Input size in characters. Pass {@code -p size=100000000} for 100 MB. */
+  @Param({"100", "10000", "1000000"})
+  public int size;
+
+  private String program;
+  private String statements;
+
+  @Setup public void setUp() {
+    program = Inputs.generate(size, i -> "@Deprecated\n"
+        + "public final class C" + i + "<T extends Comparable<T>> extends Base implements Runnable {\n"
+        + "  private static final int X = 1 + 2 * 3;\n"
+        + "  private final List<T> items;\n"
+        + "  public C" + i + "(List<T> items) {\n"
+        + "    this.items = items;\n"
+        + "  }\n"
+        + "  @Override public void run() {\n"
+        + STATEMENT_CHUNK
+        + "  }\n"
+        + "}\n", "interface Empty {}\n");
+    statements = Inputs.generate(size, i -> STATEMENT_CHUNK, ";");
+    program();
+    statements();
+  }
+
+  @Benchmark public Program program() {
+    return TerminalParser.parse(PROGRAM, program);
+  }
+
+  @Benchmark public List<Statement> statements() {
+    return TerminalParser.parse(STATEMENTS, statements);
+  }
+
+  private static Parser<List<Statement>> newStatements() {
+    Parser.Reference<Statement> stmtRef = Parser.newReference();
+    Parser<Expression> expr =
+        ExpressionParser.expression(DeclarationParser.body(Parsers.never()), stmtRef.lazy());
+    Parser<Statement> stmt = StatementParser.statement(expr);
+    stmtRef.set(stmt);
+    return stmt.many();
+  }
+}
@@ -0,0 +1,107 @@
+/*****************************************************************************
+ * Copyright (C) jparsec.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package org.jparsec.examples.sql.parser;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jparsec.Parser;
+import org.jparsec.benchmarks.Inputs;
+import org.jparsec.examples.sql.ast.Expression;
+import org.jparsec.examples.sql.ast.Relation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parses generated SQL with {@link RelationParser} and {@link ExpressionParser}: a long union of
+ * joined selects, and a long where-clause condition.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SqlBenchmark {
+
+  private static final Parser<Relation> QUERY = RelationParser.query();
+  private static final Parser<Expression> CONDITION = newCondition();
+
+  /** Input size in characters. Pass {@code -p size=100000000} for 100 MB. */
+  @Param({"100", "10000", "1000000"})
+  public int size;
+
+  /**
+   * How the grammars are prepared: as built, {@link Parser#optimize optimized} or
+   * {@link Parser#compile compiled}.
+   */
+  @Param({"none", "optimize", "compile"})
+  public String prepare;
+
+  private Parser<Relation> queryParser;
+  private Parser<Expression> conditionParser;
+  private String query;
+  private String condition;
+
+  @Setup public void setUp() {
+    queryParser = prepare(QUERY);
+    conditionParser = prepare(CONDITION);
+    query = Inputs.generate(size, i -> "select distinct a.x, b.y + " + i + " as z, max(a.w)"
+        + " from t" + i + " a inner join u b on a.id = b.id"
+        + " where a.x > 3 and b.name like a.pattern group by a.x, b.y order by z desc\nunion all ",
+        "select 1 from t");
+    condition = Inputs.generate(size, i -> "a.x + " + i + " * 2 >= b.y and c.z between 1 and 10"
+        + " or d.name not like d.pattern and e.v in (1, 2, 3) and not f.w is null or\n",
+        "g is null");
+    parse();
+  }
+
+  @Benchmark public Relation query() {
+    return TerminalParser.parse(queryParser, query);
+  }
+
+  @Benchmark public Expression condition() {
+    return TerminalParser.parse(conditionParser, condition);
+  }
+
+  private void parse() {
+    query();
+    condition();
+  }
+
+  private <T> Parser<T> prepare(Parser<T> parser) {
+    if (prepare.equals("optimize")) return parser.optimize();
+    if (prepare.equals("compile")) return parser.compile();
+    return parser;
+  }
+
+  private static Parser<Expression> newCondition() {
+    Parser.Reference<Expression> conditionRef = Parser.newReference();
+    Parser<Expression> expr = ExpressionParser.expression(conditionRef.lazy());
+    Parser<Expression> cond =
+        ExpressionParser.condition(expr, ExpressionParser.paren(RelationParser.query()));
+    conditionRef.set(cond);
+    return cond;
+  }
+}
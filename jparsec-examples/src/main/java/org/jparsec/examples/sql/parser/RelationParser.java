@@ -49,7 +49,10 @@ public final class RelationParser {
   static final Parser<JoinType> INNER_JOIN = joinType(JoinType.INNER, "join", "inner join");
   
   static final Parser<Relation> TABLE = TerminalParser.QUALIFIED_NAME.map(TableRelation::new);
-  static final Parser<Boolean> SELECT_CLAUSE = TerminalParser.term("select").next(TerminalParser.term("distinct").succeeds());
+  // Nothing but a select starts with "select", so once it's seen, alternatives enclosing the
+  // select needn't be tried when the rest of it fails.
+  static final Parser<Boolean> SELECT_CLAUSE =
+      TerminalParser.term("select").commit().next(TerminalParser.term("distinct").succeeds());
   
   static final Parser<Projection> projection(Parser<Expression> expr) {
     return Parsers.sequence(expr, ALIAS.optional(), Projection::new);
@@ -60,11 +63,14 @@ public final class RelationParser {
   }
   
   static final Parser<Relation> aliasable(Parser<Relation> rel) {
-    return alias(rel).or(rel);
+    // Not alias(rel).or(rel), which parses "rel" twice when there is no alias. With relations
+    // nested in "from" clauses, that is exponential in the nesting depth.
+    return Parsers.sequence(
+        rel, ALIAS.optional(), (r, alias) -> alias == null ? r : new AliasedRelation(r, alias));
   }
   
   static final Parser<Boolean> selectClause() {
-    return TerminalParser.term("select").next(TerminalParser.term("distinct").succeeds());
+    return SELECT_CLAUSE;
   }
   
   static Parser<List<Relation>> fromClause(Parser<Relation> rel) {
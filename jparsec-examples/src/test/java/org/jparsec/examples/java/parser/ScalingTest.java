@@ -0,0 +1,62 @@
+/*****************************************************************************
+ * Copyright (C) jparsec.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package org.jparsec.examples.java.parser;
+
+import static org.jparsec.util.Scaling.assertNearLinear;
+
+import org.jparsec.Parser;
+import org.jparsec.Parsers;
+import org.jparsec.examples.java.ast.declaration.Program;
+import org.jparsec.examples.java.ast.expression.Expression;
+import org.jparsec.examples.java.ast.statement.Statement;
+import org.jparsec.util.WorstCaseInputs;
+import org.junit.Test;
+
+/**
+ * Tests that the Java parser takes time and memory about linear in the input size.
+ */
+public class ScalingTest {
+
+  @Test
+  public void testProgram() {
+    Parser<Program> parser = DeclarationParser.program();
+    assertNearLinear(10, WorstCaseInputs::javaProgram,
+        source -> TerminalParser.parse(parser, source));
+  }
+
+  @Test
+  public void testNestedBlocks() {
+    Parser<Statement> parser = statement();
+    assertNearLinear(10, WorstCaseInputs::javaNestedBlocks,
+        source -> TerminalParser.parse(parser, source));
+  }
+
+  @Test
+  public void testDeeplyNestedBlocks() {
+    Parser<Statement> parser = statement();
+    TerminalParser.parse(parser, WorstCaseInputs.javaNestedBlocks(10000));
+    TerminalParser.parse(parser, WorstCaseInputs.nested("(", "1", ") + 1", 10000) + ";");
+  }
+
+  private static Parser<Statement> statement() {
+    Parser.Reference<Statement> ref = Parser.newReference();
+    Parser<Expression> expr =
+        ExpressionParser.expression(DeclarationParser.body(Parsers.never()), ref.lazy());
+    Parser<Statement> parser = StatementParser.statement(expr);
+    ref.set(parser);
+    return parser;
+  }
+}
@@ -262,6 +262,24 @@ public class RelationParserTest {
             null, null, null));
   }
   
+  @Test
+  public void testCompleteQuery_committedSubqueryInParentheses() {
+    TerminalParserTest.assertParser(RelationParser.query(),
+        "select a from t where (case when exists (select x from u) then 1 else 0 end) = 1",
+        new Select(false,
+            Arrays.asList(new Projection(ExpressionParserTest.name("a"), null)),
+            Arrays.asList(table("t")),
+            new BinaryExpression(
+                ExpressionParserTest.fullCase(new UnaryRelationalExpression(
+                    new Select(false,
+                        Arrays.asList(new Projection(ExpressionParserTest.name("x"), null)),
+                        Arrays.asList(table("u")),
+                        null, null, null), Op.EXISTS),
+                    ExpressionParserTest.number(1), ExpressionParserTest.number(0)),
+                Op.EQ, ExpressionParserTest.number(1)),
+            null, null));
+  }
+  
   static Relation table(String... names) {
     return new TableRelation(QualifiedName.of(names));
   }
@@ -0,0 +1,54 @@
+/*****************************************************************************
+ * Copyright (C) jparsec.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package org.jparsec.examples.sql.parser;
+
+import static org.jparsec.util.Scaling.assertNearLinear;
+
+import org.jparsec.Parser;
+import org.jparsec.examples.sql.ast.Expression;
+import org.jparsec.examples.sql.ast.Relation;
+import org.jparsec.util.WorstCaseInputs;
+import org.junit.Test;
+
+/**
+ * Tests that the SQL parser takes time and memory about linear in the input size.
+ */
+public class ScalingTest {
+
+  @Test
+  public void testUnion() {
+    Parser<Relation> parser = RelationParser.query();
+    assertNearLinear(20, WorstCaseInputs::sqlUnion, source -> TerminalParser.parse(parser, source));
+  }
+
+  @Test
+  public void testNestedQuery() {
+    Parser<Relation> parser = RelationParser.query();
+    assertNearLinear(10, WorstCaseInputs::sqlNestedQuery,
+        source -> TerminalParser.parse(parser, source));
+  }
+
+  @Test
+  public void testCondition() {
+    Parser.Reference<Expression> ref = Parser.newReference();
+    Parser<Expression> expr = ExpressionParser.expression(ref.lazy());
+    Parser<Expression> parser =
+        ExpressionParser.condition(expr, ExpressionParser.paren(RelationParser.query()));
+    ref.set(parser);
+    assertNearLinear(50, WorstCaseInputs::sqlCondition,
+        source -> TerminalParser.parse(parser, source));
+  }
+}
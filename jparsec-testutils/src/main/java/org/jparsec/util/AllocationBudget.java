@@ -0,0 +1,107 @@
+/*****************************************************************************
+ * Copyright (C) jparsec.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package org.jparsec.util;
+
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Assume;
+
+/**
+ * Asserts how many bytes of heap a piece of code allocates, as counted by
+ * {@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)} for the current thread.
+ *
+ * <p>The code is run a number of times first so that the JIT has compiled it, and then measured
+ * over several repeats of which the smallest is kept. That filters out one-off allocations such as
+ * class loading and lazy initialization, which aren't what a budget is about. Where the JVM can't
+ * count allocations per thread the assertion is skipped, as by {@link Assume}.
+ */
+public final class AllocationBudget {
+
+  private static final int WARMUP = 2000;
+  private static final int REPEAT = 20;
+
+  private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+  private AllocationBudget() {}
+
+  /**
+   * Asserts that running {@code action} allocates at most {@code bytes} bytes once warmed up.
+   */
+  public static void assertAllocatesAtMost(long bytes, Runnable action) {
+    assertAllocatesAtMost(bytes, WARMUP, REPEAT, action);
+  }
+
+  /**
+   * Asserts that running {@code action} allocates at most {@code bytes} bytes, after running it
+   * {@code warmup} times and then measuring it {@code repeat} times.
+   */
+  public static void assertAllocatesAtMost(long bytes, int warmup, int repeat, Runnable action) {
+    long allocated = allocatedBytes(warmup, repeat, action);
+    assertTrue("Expected at most " + bytes + " bytes allocated, but was " + allocated,
+        allocated <= bytes);
+  }
+
+  /**
+   * Returns the bytes allocated by a single run of {@code action} once warmed up. Useful to find
+   * out what budget to assert.
+   */
+  public static long allocatedBytes(Runnable action) {
+    return allocatedBytes(WARMUP, REPEAT, action);
+  }
+
+  /**
+   * Returns the bytes allocated by a single run of {@code action}, the smallest of {@code repeat}
+   * runs after {@code warmup} runs.
+   */
+  public static long allocatedBytes(int warmup, int repeat, Runnable action) {
+    if (warmup < 0) throw new IllegalArgumentException("warmup < 0");
+    if (repeat <= 0) throw new IllegalArgumentException("repeat <= 0");
+    Assume.assumeTrue(THREADS != null);
+    long thread = Thread.currentThread().getId();
+    for (int i = 0; i < warmup; i++) {
+      action.run();
+    }
+    long overhead = Long.MAX_VALUE;
+    long min = Long.MAX_VALUE;
+    for (int i = 0; i < repeat; i++) {
+      long start = THREADS.getThreadAllocatedBytes(thread);
+      long middle = THREADS.getThreadAllocatedBytes(thread);
+      action.run();
+      long end = THREADS.getThreadAllocatedBytes(thread);
+      // The counter itself may allocate, so take off what an empty measurement costs.
+      overhead = Math.min(overhead, middle - start);
+      min = Math.min(min, end - middle);
+    }
+    return Math.max(0, min - overhead);
+  }
+
+  private static com.sun.management.ThreadMXBean threads() {
+    try {
+      java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+      if (!(threads instanceof com.sun.management.ThreadMXBean)) return null;
+      com.sun.management.ThreadMXBean sunThreads = (com.sun.management.ThreadMXBean) threads;
+      if (!sunThreads.isThreadAllocatedMemorySupported()) return null;
+      if (!sunThreads.isThreadAllocatedMemoryEnabled()) {
+        sunThreads.setThreadAllocatedMemoryEnabled(true);
+      }
+      return sunThreads;
+    } catch (LinkageError | UnsupportedOperationException | SecurityException e) {
+      return null;
+    }
+  }
+}
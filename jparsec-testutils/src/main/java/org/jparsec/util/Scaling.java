@@ -0,0 +1,81 @@
+/*****************************************************************************
+ * Copyright (C) jparsec.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package org.jparsec.util;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Asserts that the time and memory taken by some code grows no faster than about linearly with the
+ * size of its input.
+ *
+ * <p>The code is measured on an input of a given size and on one three doublings larger, taking
+ * the best of a few runs on each. Linear code takes 8 times as long on the larger input, and
+ * quadratic code 64 times; anything beyond twice linear, that is 16 times, fails. As timings are
+ * noisy, that has to happen on each of a few attempts. The same limit applies to the bytes
+ * allocated, as counted by {@link AllocationBudget}.
+ */
+public final class Scaling {
+
+  private static final int DOUBLINGS = 3;
+  private static final double TOLERANCE = 2;
+  private static final int WARMUP = 5;
+  private static final int REPEAT = 5;
+  private static final int ATTEMPTS = 3;
+
+  private Scaling() {}
+
+  /**
+   * Asserts that {@code action} scales about linearly over inputs generated by {@code input}
+   * from {@code size} up to 8 times {@code size}.
+   */
+  public static <T> void assertNearLinear(
+      int size, IntFunction<? extends T> input, Consumer<? super T> action) {
+    int largest = size << DOUBLINGS;
+    T small = input.apply(size);
+    T large = input.apply(largest);
+    double limit = TOLERANCE * (1 << DOUBLINGS);
+    // Timings are noisy, so only a blow-up that reproduces on every attempt fails.
+    long smallTime = 0;
+    long largeTime = 0;
+    for (int attempt = 0; attempt < ATTEMPTS; attempt++) {
+      smallTime = nanos(small, action);
+      largeTime = nanos(large, action);
+      if (largeTime <= limit * smallTime) break;
+    }
+    assertTrue("Took " + smallTime + "ns at size " + size + " but " + largeTime + "ns at size "
+        + largest, largeTime <= limit * smallTime);
+    long smallBytes = AllocationBudget.allocatedBytes(WARMUP, REPEAT, () -> action.accept(small));
+    long largeBytes = AllocationBudget.allocatedBytes(WARMUP, REPEAT, () -> action.accept(large));
+    assertTrue("Allocated " + smallBytes + " bytes at size " + size + " but " + largeBytes
+        + " bytes at size " + largest, largeBytes <= limit * Math.max(smallBytes, 1024));
+  }
+
+  private static <T> long nanos(T input, Consumer<? super T> action) {
+    for (int i = 0; i < WARMUP; i++) {
+      action.accept(input);
+    }
+    long min = Long.MAX_VALUE;
+    for (int i = 0; i < REPEAT; i++) {
+      long start = System.nanoTime();
+      action.accept(input);
+      min = Math.min(min, System.nanoTime() - start);
+    }
+    return Math.max(min, 1);
+  }
+}
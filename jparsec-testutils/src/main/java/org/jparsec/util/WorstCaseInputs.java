@@ -0,0 +1,152 @@
+/*****************************************************************************
+ * Copyright (C) jparsec.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package org.jparsec.util;
+
+import java.util.function.IntFunction;
+
+/**
+ * Generates inputs with known worst-case shapes, to test that parsing scales with input size.
+ * Each generator grows its input linearly with its size argument.
+ */
+public final class WorstCaseInputs {
+
+  private WorstCaseInputs() {}
+
+  /** Returns {@code chunk} repeated {@code times} times. */
+  public static String repeat(String chunk, int times) {
+    StringBuilder builder = new StringBuilder(chunk.length() * times);
+    for (int i = 0; i < times; i++) {
+      builder.append(chunk);
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Returns {@code inner} nested {@code depth} levels deep between {@code open} and
+   * {@code close}, as in {@code ((((x))))}.
+   */
+  public static String nested(String open, String inner, String close, int depth) {
+    return repeat(open, depth) + inner + repeat(close, depth);
+  }
+
+  /**
+   * Returns {@code length} operands joined by {@code operator}, as in {@code 1+1+1+1}.
+   */
+  public static String chain(String operand, String operator, int length) {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < length; i++) {
+      if (i > 0) builder.append(operator);
+      builder.append(operand);
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Returns {@code width} alternatives that share {@code prefix} and differ only in their last
+   * characters, so that an {@code or} over them has to try most before finding the last one.
+   */
+  public static String[] alternatives(String prefix, int width) {
+    String[] alternatives = new String[width];
+    for (int i = 0; i < width; i++) {
+      alternatives[i] = prefix + i + ";";
+    }
+    return alternatives;
+  }
+
+  /**
+   * Returns a comment of {@code length} characters between {@code open} and {@code close}, whose
+   * body is full of near misses of {@code close}.
+   */
+  public static String comment(String open, String close, int length) {
+    String nearMiss = close.substring(0, close.length() - 1) + " ";
+    StringBuilder builder = new StringBuilder(open);
+    for (int i = 0; builder.length() < length; i++) {
+      builder.append(i % 8 == 0 ? nearMiss : "x");
+    }
+    return builder.append(close).toString();
+  }
+
+  /**
+   * Returns {@code count} elements separated by {@code separator} between {@code open} and
+   * {@code close}, as in {@code [0, 1, 2]}.
+   */
+  public static String list(
+      String open, IntFunction<String> element, String separator, String close, int count) {
+    StringBuilder builder = new StringBuilder(open);
+    for (int i = 0; i < count; i++) {
+      if (i > 0) builder.append(separator);
+      builder.append(element.apply(i));
+    }
+    return builder.append(close).toString();
+  }
+
+  /** Returns {@code count} lines, each terminated by {@code \n}. */
+  public static String lines(IntFunction<String> line, int count) {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      builder.append(line.apply(i)).append('\n');
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Returns a SQL query of {@code count} joined selects combined with {@code union all}, in the
+   * dialect of the SQL example.
+   */
+  public static String sqlUnion(int count) {
+    return list("", i -> "select distinct a.x, b.y + " + i + " as z, max(a.w)"
+        + " from t" + i + " a inner join u b on a.id = b.id"
+        + " where a.x > 3 and b.name like a.pattern group by a.x, b.y order by z desc",
+        "\nunion all ", "", count);
+  }
+
+  /**
+   * Returns a SQL query with sub-queries nested {@code depth} levels deep in its from clause, in
+   * the dialect of the SQL example.
+   */
+  public static String sqlNestedQuery(int depth) {
+    return nested("select a.x from (", "select x from t", ") a where a.x > 1", depth);
+  }
+
+  /**
+   * Returns a SQL condition of {@code count} comparisons combined with {@code and} and
+   * {@code or}, in the dialect of the SQL example.
+   */
+  public static String sqlCondition(int count) {
+    return list("", i -> "a.x + " + i + " * 2 >= b.y and c.z between 1 and 10", " or\n", "", count);
+  }
+
+  /** Returns a Java program with {@code count} classes, in the subset of the Java example. */
+  public static String javaProgram(int count) {
+    return lines(i -> "public final class C" + i + "<T extends Comparable<T>> extends Base {\n"
+        + "  private static final int X = 1 + 2 * 3;\n"
+        + "  private final List<T> items;\n"
+        + "  @Override public void run() {\n"
+        + "    for (int i = 0; i < n; i++) {\n"
+        + "      if (i % 2 == 0) System.out.println(\"even \" + i); else continue;\n"
+        + "    }\n"
+        + "  }\n"
+        + "}", count);
+  }
+
+  /**
+   * Returns a Java method body with blocks and {@code if} statements nested {@code depth} levels
+   * deep, in the subset of the Java example.
+   */
+  public static String javaNestedBlocks(int depth) {
+    return nested("{ if (x > 0) ", "{ x--; }", " }", depth);
+  }
+}
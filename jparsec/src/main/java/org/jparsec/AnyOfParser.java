@@ -0,0 +1,145 @@
+/*****************************************************************************
+ * Copyright (C) jparsec.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package org.jparsec;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.jparsec.pattern.CharPredicate;
+import org.jparsec.pattern.CharPredicates;
+
+/**
+ * Like {@link OrParser}, but for alternatives declared order-independent, which it tries most
+ * successful first. Every {@link #PERIOD} successes, the alternatives are sorted by how often
+ * each of them matched since the previous sort, so that the order follows changes in the input.
+ * {@link Parser#optimize} freezes the current order into an {@link OrParser}.
+ *
+ * <p>The successes are counted in a {@link LongAdder} per alternative, which threads parsing
+ * concurrently update without contending. An {@link Order} never changes once created, and a
+ * sort publishes a new one, so threads always see a complete order. The count that triggers a
+ * sort isn't synchronized: a lost update only delays a sort, and two threads sorting at once
+ * compute the same order.
+ */
+final class AnyOfParser<T> extends Parser<T> {
+  private static final int PERIOD = 1024;
+
+  /** The alternatives in the order given. */
+  private final Parser<? extends T>[] alternatives;
+
+  /** Successes of each alternative, in the order given. */
+  private final LongAdder[] hits;
+
+  private volatile Order<T> order;
+
+  /** Successes since the last sort. Updated without synchronization. */
+  private int successes;
+
+  AnyOfParser(Parser<? extends T>[] alternatives) {
+    this.alternatives = alternatives.clone();
+    this.hits = new LongAdder[alternatives.length];
+    int[] given = new int[alternatives.length];
+    for (int i = 0; i < alternatives.length; i++) {
+      hits[i] = new LongAdder();
+      given[i] = i;
+    }
+    this.order = new Order<T>(this.alternatives, given, new long[alternatives.length]);
+  }
+
+  @Override boolean apply(ParseContext ctxt) {
+    final Order<T> order = this.order;
+    final Object result = ctxt.result;
+    final int at = ctxt.at;
+    final int step = ctxt.step;
+    final boolean cut = ctxt.cut;
+    final Parser<? extends T>[] tried = order.alternatives;
+    for (int i = 0; i < tried.length; i++) {
+      ctxt.cut = false;
+      if (tried[i].apply(ctxt)) {
+        ctxt.cut = cut;
+        hits[order.given[i]].increment();
+        if (++successes >= PERIOD) {
+          successes = 0;
+          this.order = order.sorted(this.alternatives, hits);
+        }
+        return true;
+      }
+      if (ctxt.cut) return false;
+      ctxt.set(step, at, result);
+    }
+    ctxt.cut = cut;
+    return false;
+  }
+
+  /** Returns the alternatives in the order they are tried now. */
+  Parser<? extends T>[] currentOrder() {
+    return order.alternatives.clone();
+  }
+
+  /** Freezes the current order into an {@link OrParser}. */
+  @Override Parser<T> rewrite(ParserOptimizer optimizer) {
+    return new OrParser<T>(currentOrder()).rewrite(optimizer);
+  }
+
+  @Override CharPredicate firstChars() {
+    CharPredicate[] predicates = new CharPredicate[alternatives.length];
+    for (int i = 0; i < alternatives.length; i++) {
+      predicates[i] = alternatives[i].firstChars();
+      if (predicates[i] == null) return null;
+    }
+    return CharPredicates.or(predicates);
+  }
+
+  @Override public String toString() {
+    return "anyOf";
+  }
+
+  /** An order of the alternatives, and the success counts it was sorted by. */
+  private static final class Order<T> {
+    final Parser<? extends T>[] alternatives;
+
+    /** Index in the order given of each of {@link #alternatives}. */
+    final int[] given;
+
+    /** The total successes of each alternative when this order was sorted, in the order given. */
+    final long[] totals;
+
+    Order(Parser<? extends T>[] alternatives, int[] given, long[] totals) {
+      this.alternatives = alternatives;
+      this.given = given;
+      this.totals = totals;
+    }
+
+    /** Sorts by the successes since this order, most first, keeping ties in this order. */
+    Order<T> sorted(Parser<? extends T>[] givenOrder, LongAdder[] hits) {
+      long[] now = new long[hits.length];
+      Integer[] indices = new Integer[given.length];
+      for (int i = 0; i < hits.length; i++) {
+        now[i] = hits[i].sum();
+        indices[i] = given[i];
+      }
+      // Stable, so that ties keep their current order.
+      Arrays.sort(indices,
+          (a, b) -> Long.compare(now[b] - totals[b], now[a] - totals[a]));
+      Parser<? extends T>[] sorted = alternatives.clone();
+      int[] sortedGiven = new int[given.length];
+      for (int i = 0; i < indices.length; i++) {
+        sortedGiven[i] = indices[i];
+        sorted[i] = givenOrder[indices[i]];
+      }
+      return new Order<T>(sorted, sortedGiven, now);
+    }
+  }
+}
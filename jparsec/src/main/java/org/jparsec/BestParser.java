@@ -28,45 +28,65 @@ final class BestParser<T> extends Parser<T> {
     final Object result = ctxt.result;
     final int step = ctxt.step;
     final int at = ctxt.at;
-    final TreeNode latestChild = ctxt.getTrace().getLatestChild();
+    final int latestChild = ctxt.getLatestTraceChild();
+    final boolean cut = ctxt.cut;
     for (int i = 0; i < parsers.length; i++) {
       Parser<? extends T> parser = parsers[i];
+      ctxt.cut = false;
       if (parser.apply(ctxt)) {
-        applyForBestFit(i + 1, ctxt, result, step, at, latestChild);
-        return true;
+        ctxt.cut = cut;
+        return applyForBestFit(i + 1, ctxt, result, step, at, latestChild);
       }
+      if (ctxt.cut) return false;
       // in alternate, we do not care partial match.
       ctxt.set(step, at, result);
     }
+    ctxt.cut = cut;
     return false;
   }
   
+  @Override Parser<T> rewrite(ParserOptimizer optimizer) {
+    @SuppressWarnings("unchecked")
+    Parser<? extends T>[] optimized = (Parser<? extends T>[]) new Parser<?>[parsers.length];
+    for (int i = 0; i < parsers.length; i++) {
+      optimized[i] = optimizer.optimize(parsers[i]);
+    }
+    return new BestParser<T>(optimized, order);
+  }
+
   @Override public String toString() {
     return order.toString();
   }
 
-  private void applyForBestFit(
+  private boolean applyForBestFit(
       int from, ParseContext ctxt,
-      Object originalResult, int originalStep, int originalAt, TreeNode originalLatestChild) {
+      Object originalResult, int originalStep, int originalAt, int originalLatestChild) {
     int bestAt = ctxt.at;
     int bestStep = ctxt.step;
     Object bestResult = ctxt.result;
-    TreeNode bestChild = ctxt.getTrace().getLatestChild();
+    int bestChild = ctxt.getLatestTraceChild();
+    boolean cut = ctxt.cut;
     for (int i = from; i < parsers.length; i++) {
       ctxt.set(originalStep, originalAt, originalResult);
-      ctxt.getTrace().setLatestChild(originalLatestChild);
+      ctxt.setLatestTraceChild(originalLatestChild);
       Parser<?> parser = parsers[i];
+      ctxt.cut = false;
       boolean ok = parser.apply(ctxt);
+      boolean committed = !ok && ctxt.cut;
+      ctxt.cut = cut;
+      // An earlier alternative already matched, so a failed commitment only ends the search.
+      if (committed) break;
       if (!ok) continue;
       int at2 = ctxt.at;
       if (order.compare(at2, bestAt)) {
         bestAt = at2;
         bestStep = ctxt.step;
         bestResult = ctxt.result;
-        bestChild = ctxt.getTrace().getLatestChild();
+        bestChild = ctxt.getLatestTraceChild();
       }
     }
     ctxt.set(bestStep, bestAt, bestResult);
-    ctxt.getTrace().setLatestChild(bestChild);
+    ctxt.setLatestTraceChild(bestChild);
+    return true;
   }
 }
\ No newline at end of file
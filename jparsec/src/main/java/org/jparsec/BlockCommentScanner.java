@@ -0,0 +1,124 @@
+/*****************************************************************************
+ * Copyright (C) jparsec.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package org.jparsec;
+
+/**
+ * Scans a block comment quoted by string literals in one pass, searching for the closing quote
+ * instead of trying the closing quote and the commented pattern at every character.
+ *
+ * <p>Errors are reported as if the comment were scanned by
+ * {@code Scanners.string(begin)}, the commented chars and {@code Scanners.string(end)}: a missing
+ * closing quote is reported at the end of input.
+ */
+final class BlockCommentScanner extends Parser<Void> {
+  private final String begin;
+  private final String end;
+  private final boolean nestable;
+
+  BlockCommentScanner(String begin, String end, boolean nestable) {
+    this.begin = begin;
+    this.end = end;
+    this.nestable = nestable;
+  }
+
+  @Override boolean apply(ParseContext ctxt) {
+    CharSequence src = ctxt.characters();
+    int limit = ctxt.charactersEnd();
+    int from = ctxt.at;
+    if (!startsWith(src, from, limit, begin)) {
+      ctxt.missing(begin);
+      return false;
+    }
+    int closed = skipCommented(src, from + begin.length(), limit);
+    if (closed < 0) {
+      ctxt.next(limit - from);
+      reportUnclosed(ctxt);
+      return false;
+    }
+    ctxt.next(closed - from);
+    ctxt.result = null;
+    return true;
+  }
+
+  String begin() {
+    return begin;
+  }
+
+  /**
+   * Returns the index right after the closing quote of the comment whose content starts at
+   * {@code from}, or {@code -1} if the comment isn't closed before {@code limit}.
+   */
+  int skipCommented(CharSequence src, int from, int limit) {
+    if (!nestable) {
+      int i = indexOf(src, end, from, limit);
+      return i < 0 ? -1 : i + end.length();
+    }
+    // Both searches are only redone once we've moved past their last hit, so that a long run of
+    // one quote doesn't keep re-scanning for the other.
+    int opening = indexOf(src, begin, from, limit);
+    int closing = indexOf(src, end, from, limit);
+    for (int level = 1, i = from; ;) {
+      if (closing < i) closing = indexOf(src, end, i, limit);
+      if (closing < 0) return -1;
+      if (opening >= 0 && opening < i) opening = indexOf(src, begin, i, limit);
+      // The closing quote wins if both start at the same index.
+      if (opening >= 0 && opening < closing) {
+        level++;
+        i = opening + begin.length();
+        continue;
+      }
+      i = closing + end.length();
+      if (--level == 0) return i;
+    }
+  }
+
+  /** Reports the errors of an unclosed comment, with {@code ctxt} at the end of input. */
+  void reportUnclosed(ParseContext ctxt) {
+    ctxt.missing(end);
+    if (nestable) {
+      ctxt.missing(begin);
+      ctxt.missing("commented");
+    }
+  }
+
+  @Override public String toString() {
+    return nestable ? "nestable block comment" : "block comment";
+  }
+
+  static boolean startsWith(CharSequence src, int from, int limit, String prefix) {
+    int length = prefix.length();
+    if (limit - from < length) return false;
+    for (int i = 0; i < length; i++) {
+      if (src.charAt(from + i) != prefix.charAt(i)) return false;
+    }
+    return true;
+  }
+
+  /** Returns the index of the first {@code target} from {@code from} on that ends by {@code limit}. */
+  static int indexOf(CharSequence src, String target, int from, int limit) {
+    int last = limit - target.length();
+    if (src instanceof String) {
+      int i = ((String) src).indexOf(target, from);
+      return i <= last ? i : -1;
+    }
+    if (target.isEmpty()) return from <= limit ? from : -1;
+    char first = target.charAt(0);
+    for (int i = from; i <= last; i++) {
+      if (src.charAt(i) == first && startsWith(src, i, limit, target)) return i;
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,364 @@
+/*****************************************************************************
+ * Copyright (C) jparsec.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package org.jparsec;
+
+import static org.jparsec.internal.util.Checks.checkArgument;
+import static org.jparsec.internal.util.Checks.checkState;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The parse tree traced in {@link Parser.Mode#DEBUG} and by {@link Parser#parseTree}, stored as
+ * flat arrays so that tracing a labeled parser costs a few int writes instead of an object.
+ *
+ * <p>A node is an index. Each node remembers its label (interned to an int), its begin and end
+ * index, its parent (the parser that syntactically encloses it), its previous node (the parser
+ * at the same syntactical level that had just <em>succeeded</em> before this one started) and its
+ * latest child. When the alternative parsers in an {@code or} parser are attempted one after
+ * another, they each add a new child to the parent, all pointing to the same parent and the same
+ * previous node.
+ *
+ * <p>Nodes are allocated in order, so everything added under a labeled parser that then fails
+ * lives at the end of the arrays, and is {@link #truncate discarded} by shrinking them. The only
+ * exception is the node of the farthest error recorded by {@link ParseContext#raise}, which is
+ * {@link #pin pinned}: the part of the path to it that is truncated, with the nodes that had
+ * succeeded along the way, is moved to separate "saved" arrays, where nodes have indices below
+ * {@link #NONE}. Pinning the node of a farther error releases them.
+ *
+ * <p>When exception is to be thrown, that error node is {@link #freeze frozen} by setting its
+ * parent's latest child to it, and that of its grandparent's to its parent node, all the way up to
+ * the root. This essentially freezes and collapse the "multi universes" into a single error state,
+ * with all other "potential" error state destroyed and forgotten. {@link ParseTree} is then a lazy
+ * view over the frozen arrays.
+ */
+final class CompactParseTree {
+  static final int NONE = -1;
+
+  private static final int LABEL = 0;
+  private static final int BEGIN = 1;
+  private static final int END = 2;
+  private static final int PARENT = 3;
+  private static final int PREVIOUS = 4;
+  private static final int LATEST_CHILD = 5;
+  private static final int NODE_SIZE = 6;
+
+  private final Map<String, Integer> labelIds = new HashMap<String, Integer>();
+  private String[] labels = new String[16];
+  private int[] nodes = new int[64 * NODE_SIZE];
+  private Object[] results = new Object[64];
+  private int size = 0;
+  private int pinned = NONE;
+
+  /**
+   * Nodes of the path to the {@link #pin pinned} node that were truncated from {@link #nodes},
+   * where node {@code -2 - i} is stored at {@code i}.
+   */
+  private int[] saved = new int[8 * NODE_SIZE];
+  private Object[] savedResults = new Object[8];
+  private int savedSize = 0;
+
+  /** The highest index in {@link #nodes} that saved nodes point to, or {@link #NONE}. */
+  private int savedReach = NONE;
+
+  /** Saved nodes below this are {@link #protectPin protected} from being released. */
+  private int savedFloor = 0;
+
+  /** Adds a new root node, which has neither parent nor previous node. */
+  int newRoot(String name, int beginIndex) {
+    return add(name, beginIndex, NONE, NONE);
+  }
+
+  /** Adds a new child as the latest child of {@code parent}. */
+  int addChild(int parent, String name, int beginIndex) {
+    int child = add(name, beginIndex, parent, latestChild(parent));
+    nodes[parent * NODE_SIZE + LATEST_CHILD] = child;
+    return child;
+  }
+
+  void setEndIndex(int node, int index) {
+    checkArgument(index >= beginIndex(node), "endIndex < beginIndex");
+    set(node, END, index);
+  }
+
+  void setResult(int node, Object result) {
+    if (node >= 0) {
+      results[node] = result;
+    } else {
+      savedResults[NONE - 1 - node] = result;
+    }
+  }
+
+  int parent(int node) {
+    int parent = parentOf(node);
+    checkState(parent != NONE, "Root node has no parent");
+    return parent;
+  }
+
+  int parentOf(int node) {
+    return get(node, PARENT);
+  }
+
+  int latestChild(int node) {
+    return get(node, LATEST_CHILD);
+  }
+
+  void setLatestChild(int node, int child) {
+    set(node, LATEST_CHILD, child);
+  }
+
+  /**
+   * Keeps {@code node}, its ancestors and the nodes that had succeeded before each of them from
+   * being discarded by {@link #truncate}, in place of the node pinned before.
+   */
+  void pin(int node) {
+    pinned = node;
+    releaseSaved(savedFloor);
+  }
+
+  /** Returns the {@link #pin pinned} node, which is saved once truncated. */
+  int pinned() {
+    return pinned;
+  }
+
+  /**
+   * Protects the nodes saved for the pinned node from being released by the {@link #pin}s of a
+   * nested parser, which may or may not take over its error. Returns what to pass to
+   * {@link #unprotectPin} afterwards.
+   */
+  int protectPin() {
+    int floor = savedFloor;
+    savedFloor = savedSize;
+    return floor;
+  }
+
+  /**
+   * Ends the protection by {@link #protectPin}. If {@code node}, pinned before it, is still the
+   * node of the error, the nodes saved since for the pins of the nested parser are released.
+   */
+  void unprotectPin(int floor, int node, boolean keepNode) {
+    if (keepNode) {
+      pinned = node;
+      releaseSaved(savedFloor);
+    }
+    savedFloor = floor;
+  }
+
+  /**
+   * Discards {@code node} and all nodes added after it, which must no longer be reachable from
+   * any parent. The part of the path to the {@link #pin pinned} node among them is saved.
+   */
+  void truncate(int node) {
+    if (node >= size) return;
+    if (pinned >= node || savedReach >= node) save(node);
+    Arrays.fill(results, node, size, null);
+    size = node;
+  }
+
+  /**
+   * Saves the nodes from {@code from} on that are needed to {@link #freeze} the pinned node: those
+   * on the path to it, and the subtrees of the nodes that had succeeded before each of them.
+   */
+  private void save(int from) {
+    boolean[] kept = new boolean[size - from];
+    int[] pending = new int[16];
+    int count = 0;
+    for (int node = pinned; node < NONE || node >= from; node = parentOf(node)) {
+      if (node >= from) kept[node - from] = true;
+      for (int sibling = previous(node); sibling < NONE || sibling >= from;
+          sibling = previous(sibling)) {
+        if (sibling < NONE) continue;
+        if (count == pending.length) pending = Arrays.copyOf(pending, count * 2);
+        pending[count++] = sibling;
+      }
+    }
+    while (count > 0) {
+      int node = pending[--count];
+      kept[node - from] = true;
+      for (int child = latestChild(node); child != NONE; child = previous(child)) {
+        if (count == pending.length) pending = Arrays.copyOf(pending, count * 2);
+        pending[count++] = child;
+      }
+    }
+    int[] moved = new int[size - from];
+    for (int i = from; i < size; i++) {
+      if (!kept[i - from]) {
+        moved[i - from] = NONE;
+        continue;
+      }
+      if (savedSize == savedResults.length) {
+        saved = Arrays.copyOf(saved, saved.length * 2);
+        savedResults = Arrays.copyOf(savedResults, savedResults.length * 2);
+      }
+      System.arraycopy(nodes, i * NODE_SIZE, saved, savedSize * NODE_SIZE, NODE_SIZE);
+      savedResults[savedSize] = results[i];
+      moved[i - from] = NONE - 1 - savedSize++;
+    }
+    // Saved nodes, old and new, may point to the nodes just moved.
+    for (int i = 0; i < savedSize; i++) {
+      int offset = i * NODE_SIZE;
+      saved[offset + PARENT] = relocate(saved[offset + PARENT], from, moved);
+      saved[offset + PREVIOUS] = relocate(saved[offset + PREVIOUS], from, moved);
+      saved[offset + LATEST_CHILD] = relocate(saved[offset + LATEST_CHILD], from, moved);
+    }
+    pinned = relocate(pinned, from, moved);
+    updateSavedReach();
+  }
+
+  /** Returns where {@code node} was moved, or {@link #NONE} if it was discarded. */
+  private static int relocate(int node, int from, int[] moved) {
+    return node < from ? node : moved[node - from];
+  }
+
+  private void releaseSaved(int newSize) {
+    if (newSize >= savedSize) return;
+    Arrays.fill(savedResults, newSize, savedSize, null);
+    savedSize = newSize;
+    updateSavedReach();
+  }
+
+  /**
+   * Saved nodes only point up to their parents and back to their previous nodes in
+   * {@link #nodes}; their latest children, if any, were saved with them.
+   */
+  private void updateSavedReach() {
+    savedReach = NONE;
+    for (int i = 0; i < savedSize; i++) {
+      int offset = i * NODE_SIZE;
+      savedReach = Math.max(savedReach, Math.max(saved[offset + PARENT], saved[offset + PREVIOUS]));
+    }
+  }
+
+  /**
+   * When {@code node} has errors, it didn't complete and shouldn't be part of the parse tree
+   * that is the current partial parse result with all successful matches.
+   * In that case, return the parent node, by setting its latest child to the previous node.
+   */
+  int orphanize(int node) {
+    int parent = parentOf(node);
+    if (parent == NONE) {
+      // Root node is provided free, without an explicit asNode() call.
+      // So there isn't a partially completed node.
+      return node;
+    }
+    setLatestChild(parent, previous(node));
+    return parent;
+  }
+
+  /**
+   * Freezes {@code node} to make it the latest child of its parent (discarding nodes that have
+   * been tacked on after it in the same hierarchy level); and recursively apply to all of its
+   * ancestors.
+   *
+   * <p>This is because it's only called at time of error. If an ancestor node has a child node that
+   * was added during the process of trying other alternatives and then failed, those paths don't
+   * matter. So we should restore the tree back to when this most relevant error happened.
+   *
+   * <p>Returns the root node, which can then be used to {@link #toParseTree}.
+   */
+  int freeze(int node, int index) {
+    setEndIndex(node, index);
+    for (int parent = parentOf(node); parent != NONE; parent = parentOf(node)) {
+      setLatestChild(parent, node);
+      node = parent;
+      setEndIndex(node, index);
+    }
+    return node;
+  }
+
+  /** Returns a {@link ParseTree} view of {@code node}. */
+  ParseTree toParseTree(int node) {
+    return new ParseTree(this, node);
+  }
+
+  String name(int node) {
+    return labels[get(node, LABEL)];
+  }
+
+  int beginIndex(int node) {
+    return get(node, BEGIN);
+  }
+
+  int endIndex(int node) {
+    return get(node, END);
+  }
+
+  Object result(int node) {
+    return node >= 0 ? results[node] : savedResults[NONE - 1 - node];
+  }
+
+  /** Returns the children of {@code node}, in the order they were parsed. */
+  ParseTree[] children(int node) {
+    int count = 0;
+    for (int child = latestChild(node); child != NONE; child = previous(child)) {
+      count++;
+    }
+    ParseTree[] children = new ParseTree[count];
+    for (int child = latestChild(node); child != NONE; child = previous(child)) {
+      children[--count] = toParseTree(child);
+    }
+    return children;
+  }
+
+  /** Returns the number of nodes currently held, saved ones included. */
+  int size() {
+    return size + savedSize;
+  }
+
+  private int previous(int node) {
+    return get(node, PREVIOUS);
+  }
+
+  private int get(int node, int field) {
+    return node >= 0
+        ? nodes[node * NODE_SIZE + field] : saved[(NONE - 1 - node) * NODE_SIZE + field];
+  }
+
+  private void set(int node, int field, int value) {
+    if (node >= 0) {
+      nodes[node * NODE_SIZE + field] = value;
+    } else {
+      saved[(NONE - 1 - node) * NODE_SIZE + field] = value;
+    }
+  }
+
+  private int add(String name, int beginIndex, int parent, int previous) {
+    if (size == results.length) {
+      nodes = Arrays.copyOf(nodes, nodes.length * 2);
+      results = Arrays.copyOf(results, results.length * 2);
+    }
+    int node = size++;
+    int offset = node * NODE_SIZE;
+    nodes[offset + LABEL] = labelId(name);
+    nodes[offset + BEGIN] = beginIndex;
+    nodes[offset + END] = 0;
+    nodes[offset + PARENT] = parent;
+    nodes[offset + PREVIOUS] = previous;
+    nodes[offset + LATEST_CHILD] = NONE;
+    return node;
+  }
+
+  private int labelId(String name) {
+    Integer id = labelIds.get(name);
+    if (id != null) return id;
+    int newId = labelIds.size();
+    if (newId == labels.length) labels = Arrays.copyOf(labels, newId * 2);
+    labels[newId] = name;
+    labelIds.put(name, newId);
+    return newId;
+  }
+}
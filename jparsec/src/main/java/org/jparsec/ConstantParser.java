@@ -0,0 +1,36 @@
+/*****************************************************************************
+ * Copyright (C) jparsec.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package org.jparsec;
+
+/**
+ * Consumes nothing, always succeeds and returns {@code value}.
+ */
+final class ConstantParser<T> extends Parser<T> {
+  private final T value;
+
+  ConstantParser(T value) {
+    this.value = value;
+  }
+
+  @Override boolean apply(ParseContext ctxt) {
+    ctxt.result = value;
+    return true;
+  }
+
+  @Override public String toString() {
+    return String.valueOf(value);
+  }
+}
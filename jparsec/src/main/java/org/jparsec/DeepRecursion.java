@@ -0,0 +1,241 @@
+/*****************************************************************************
+ * Copyright (C) jparsec.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package org.jparsec;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves parsing onto threads with large stacks when recursive rules nest deeply.
+ *
+ * <p>Parsers are applied by plain Java recursion, and each level of nesting in the input costs a
+ * few dozen frames through {@link Parser.Reference#lazy}, {@code between}, {@code sequence} and
+ * the like. Rather than overflowing the stack of the calling thread, {@link ParseContext} counts
+ * the recursive rules being applied, and beyond {@link #CALLER_DEPTH} of them the parse starts
+ * over on a worker thread with a {@link #WORKER_STACK_SIZE} stack, where it stays until it ends.
+ * Handing each rule at that depth over separately would cost a round trip between the threads
+ * for each of the many siblings nested there, such as the elements of a long list. Starting over
+ * parses the input before that point twice, which like backtracking runs the map functions on it
+ * again, and shows up in {@link ParseProfiler profiles} as failed rules. A search for matches
+ * doesn't start over, but hands the rules at that depth over one at a time.
+ *
+ * <p>A worker hands over to another one after {@link #WORKER_DEPTH} more rules. The thread
+ * handing over waits meanwhile, so the {@link ParseContext} is still only used by one thread at a
+ * time, and nesting depth is limited by memory rather than by the stack size of the calling
+ * thread. The {@link Workers} of a parse are kept until it ends, so that the siblings nested right
+ * at a handoff depth reuse the same thread rather than each starting one.
+ *
+ * <p>Map functions and other callbacks of a deeply nested parse therefore run on a
+ * {@code jparsec-deep-recursion} thread, where {@link ThreadLocal} values of the calling thread
+ * aren't visible.
+ */
+final class DeepRecursion {
+
+  /**
+   * Recursive rules applied on the calling thread, whose stack size is unknown, before moving to
+   * a worker thread. Inputs nested less deeply than this never start a thread. An operator table
+   * expression grammar takes up to about 2 KB of stack for each level of parentheses before it's
+   * compiled, so this uses half of the default 1 MB thread stack.
+   */
+  static final int CALLER_DEPTH = 250;
+
+  /** Recursive rules applied on a worker thread before moving to the next one. */
+  static final int WORKER_DEPTH = 50000;
+
+  /** Stack size requested for worker threads. Only the part that is actually used is touched. */
+  static final long WORKER_STACK_SIZE = 256L << 20;
+
+  /**
+   * How long an idle worker waits for more work before it ends, in case the parse that owns it
+   * isn't {@link Workers#stop stopped}, as when a search for matches is abandoned.
+   */
+  static final long WORKER_IDLE_MILLIS = 1000;
+
+  private static final StartOver START_OVER = new StartOver();
+
+  private DeepRecursion() {}
+
+  /**
+   * Applies {@code parser} on {@code ctxt}, on the worker thread for the next level, or throws
+   * {@link StartOver} if the parse is still on the calling thread and can start over.
+   */
+  static boolean apply(Parser<?> parser, ParseContext ctxt) {
+    if (ctxt.deepRecursion == null) {
+      if (ctxt.canStartOver) throw START_OVER;
+      ctxt.deepRecursion = new Workers();
+    }
+    return ctxt.deepRecursion.apply(parser, ctxt);
+  }
+
+  /** Applies {@code parser}, the whole of a parse that started over, on a worker thread. */
+  static boolean startOver(Parser<?> parser, ParseContext ctxt) {
+    ctxt.deepRecursion = new Workers();
+    return ctxt.deepRecursion.apply(parser, ctxt);
+  }
+
+  /**
+   * Unwinds a parse that nests too deeply for the calling thread, to {@link #startOver} on a
+   * worker thread. An {@link Error}, so that wrapping runtime exceptions lets it through.
+   */
+  @SuppressWarnings("serial")
+  static final class StartOver extends Error {
+    private StartOver() {
+      super(null, null, false, false);
+    }
+  }
+
+  /** The worker threads of one parse, one for each level of handoff. */
+  static final class Workers {
+    private final List<Worker> levels = new ArrayList<Worker>();
+    private int level = 0;
+
+    private boolean apply(Parser<?> parser, ParseContext ctxt) {
+      int depth = ctxt.recursionDepth;
+      int maxDepth = ctxt.maxRecursionDepth;
+      int current = level;
+      level = current + 1;
+      Worker worker;
+      try {
+        if (current == levels.size()) levels.add(null);
+        worker = levels.get(current);
+        if (worker == null || !worker.apply(parser, ctxt)) {
+          worker = Worker.start();
+          levels.set(current, worker);
+          worker.apply(parser, ctxt);
+        }
+      } finally {
+        level = current;
+        ctxt.recursionDepth = depth;
+        ctxt.maxRecursionDepth = maxDepth;
+      }
+      if (worker.error instanceof RuntimeException) {
+        throw (RuntimeException) worker.error;
+      }
+      if (worker.error instanceof Error) {
+        throw (Error) worker.error;
+      }
+      return worker.result;
+    }
+
+    /** Ends the worker threads, once the parse is done. */
+    void stop() {
+      for (Worker worker : levels) {
+        if (worker != null) worker.stop();
+      }
+      levels.clear();
+    }
+  }
+
+  /**
+   * A thread that applies the parsers handed to it, one at a time, while the thread handing them
+   * over waits. The monitor of the worker guards the handoff in both directions.
+   */
+  private static final class Worker implements Runnable {
+    private Parser<?> parser;
+    private ParseContext ctxt;
+    private boolean busy;
+    private boolean stopped;
+    boolean result;
+    Throwable error;
+
+    static Worker start() {
+      Worker worker = new Worker();
+      Thread thread =
+          new Thread(null, worker, "jparsec-deep-recursion", WORKER_STACK_SIZE);
+      thread.setDaemon(true);
+      thread.start();
+      return worker;
+    }
+
+    /**
+     * Applies {@code parser} on {@code ctxt} on this worker and waits for it to finish, or returns
+     * false right away if the worker has ended.
+     */
+    synchronized boolean apply(Parser<?> parser, ParseContext ctxt) {
+      if (stopped) return false;
+      this.parser = parser;
+      this.ctxt = ctxt;
+      busy = true;
+      notifyAll();
+      boolean interrupted = false;
+      while (busy) {
+        try {
+          wait();
+        } catch (InterruptedException e) {
+          // The worker owns the parse context until it finishes, so it can't be abandoned.
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+      return true;
+    }
+
+    synchronized void stop() {
+      stopped = true;
+      notifyAll();
+    }
+
+    @Override public void run() {
+      while (true) {
+        Parser<?> parser;
+        ParseContext ctxt;
+        synchronized (this) {
+          if (!awaitWork()) return;
+          parser = this.parser;
+          ctxt = this.ctxt;
+          this.parser = null;
+          this.ctxt = null;
+        }
+        boolean ok = false;
+        Throwable failure = null;
+        ctxt.recursionDepth = 0;
+        ctxt.maxRecursionDepth = WORKER_DEPTH;
+        try {
+          ok = ctxt.applyRecursive(parser);
+        } catch (Throwable e) {
+          failure = e;
+        }
+        synchronized (this) {
+          result = ok;
+          error = failure;
+          busy = false;
+          notifyAll();
+        }
+      }
+    }
+
+    /** Waits until there's a parser to apply, and returns false if the worker ends instead. */
+    private boolean awaitWork() {
+      long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(WORKER_IDLE_MILLIS);
+      while (parser == null && !stopped) {
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+          stopped = true;
+          break;
+        }
+        try {
+          TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        } catch (InterruptedException e) {
+          stopped = true;
+        }
+      }
+      return parser != null;
+    }
+  }
+}
@@ -36,11 +36,15 @@ final class DelimitedParser<T> extends Parser<List<T>> {
 
   @Override final boolean apply(final ParseContext ctxt) {
     final List<T> result = listFactory.newList();
+    boolean cut = ctxt.cut;
     for (;;) {
       final int step0 = ctxt.step;
       final int at0 = ctxt.at;
+      ctxt.cut = false;
       boolean r = ctxt.applyAsDelimiter(delim);
       if (!r) {
+        if (ctxt.cut) return false;
+        ctxt.cut = cut;
         ctxt.result = result;
         ctxt.setAt(step0, at0);
         return true;
@@ -49,10 +53,13 @@ final class DelimitedParser<T> extends Parser<List<T>> {
       final int at1 = ctxt.at;
       r = parser.apply(ctxt);
       if (!r) {
+        if (ctxt.cut) return false;
+        ctxt.cut = cut;
         ctxt.result = result;
         ctxt.setAt(step1, at1);
         return true;
       }
+      ctxt.cut = cut;
       if (at0 == ctxt.at) { // infinite loop
         ctxt.result = result;
         return true;
@@ -61,6 +68,11 @@ final class DelimitedParser<T> extends Parser<List<T>> {
     }
   }
   
+  @Override Parser<List<T>> rewrite(ParserOptimizer optimizer) {
+    return new DelimitedParser<T>(
+        optimizer.optimize(parser), optimizer.optimize(delim), listFactory);
+  }
+
   @Override public String toString() {
     return "delimited";
   }
@@ -0,0 +1,94 @@
+/*****************************************************************************
+ * Copyright (C) jparsec.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package org.jparsec;
+
+import org.jparsec.pattern.CharPredicates;
+import org.jparsec.pattern.Pattern;
+import org.jparsec.pattern.Patterns;
+
+/**
+ * Skips whitespaces, line comments and block comments in a single loop. Equivalent to
+ * {@code Parsers.or(Scanners.WHITESPACES, lineComment, blockComment).skipMany()}, including the
+ * errors reported where it stops and for an unclosed block comment, but decides which of the
+ * three applies by the next character instead of trying them in turn.
+ */
+final class DelimiterScanner extends Parser<Void> {
+  private static final Pattern WHITESPACES = Patterns.many(CharPredicates.IS_WHITESPACE);
+
+  private final String lineComment;
+  private final BlockCommentScanner blockComment;
+
+  DelimiterScanner(String lineComment, String blockCommentBegin, String blockCommentEnd) {
+    this.lineComment = lineComment;
+    this.blockComment = new BlockCommentScanner(blockCommentBegin, blockCommentEnd, false);
+  }
+
+  @Override boolean apply(ParseContext ctxt) {
+    CharSequence src = ctxt.characters();
+    int length = ctxt.charactersEnd();
+    int from = ctxt.at;
+    int at = from;
+    boolean unclosed = false;
+    while (at < length) {
+      int whitespaces = WHITESPACES.match(src, at, length);
+      if (whitespaces > 0) {
+        at += whitespaces;
+      } else if (BlockCommentScanner.startsWith(src, at, length, lineComment)) {
+        at = endOfLine(src, at + lineComment.length(), length);
+      } else if (BlockCommentScanner.startsWith(src, at, length, blockComment.begin())) {
+        int closed =
+            blockComment.skipCommented(src, at + blockComment.begin().length(), length);
+        if (closed < 0) {
+          unclosed = true;
+          break;
+        }
+        at = closed;
+      } else {
+        break;
+      }
+    }
+    ctxt.next(at - from);
+    ctxt.result = null;
+    // The alternatives that failed where skipMany() would have stopped.
+    ctxt.missing("whitespaces");
+    ctxt.missing(lineComment);
+    if (unclosed) {
+      int step = ctxt.step;
+      ctxt.next(length - at);
+      blockComment.reportUnclosed(ctxt);
+      ctxt.setAt(step, at);
+    } else {
+      ctxt.missing(blockComment.begin());
+    }
+    return true;
+  }
+
+  @Override public String toString() {
+    return "delimiter";
+  }
+
+  /** Returns the index of the next {@code '\n'}, or {@code length} if there is none before it. */
+  private static int endOfLine(CharSequence src, int from, int length) {
+    if (src instanceof String) {
+      int i = ((String) src).indexOf('\n', from);
+      return i < 0 || i > length ? length : i;
+    }
+    for (int i = from; i < length; i++) {
+      if (src.charAt(i) == '\n') return i;
+    }
+    return length;
+  }
+}
@@ -0,0 +1,129 @@
+/*****************************************************************************
+ * Copyright (C) jparsec.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package org.jparsec;
+
+import java.util.Arrays;
+
+/**
+ * The subjects of the error at the farthest position: everything expected there for the mergeable
+ * error types, or the single unexpected input or failure message otherwise.
+ *
+ * <p>A wide {@link Parsers#or} or a retrying {@code many()} reports the same subjects at the same
+ * position over and over, so subjects are deduplicated by identity: by a linear scan while there
+ * are only a few of them, by an identity hash table after that. At most {@code capacity}
+ * subjects are kept, which bounds both the cost of error tracking and the rendered message.
+ */
+final class ExpectedSet {
+  static final int DEFAULT_CAPACITY = 100;
+
+  private static final int LINEAR_SCAN_LIMIT = 8;
+
+  private final int capacity;
+  private Object[] elements = new Object[LINEAR_SCAN_LIMIT];
+  private int size = 0;
+
+  /**
+   * Open addressing table of {@code 1 + index into elements}, with {@code 0} for empty slots.
+   * Built once there are more than {@link #LINEAR_SCAN_LIMIT} subjects, and kept for reuse.
+   */
+  private int[] table = null;
+
+  ExpectedSet(int capacity) {
+    this.capacity = capacity;
+  }
+
+  int capacity() {
+    return capacity;
+  }
+
+  int size() {
+    return size;
+  }
+
+  Object get(int i) {
+    return elements[i];
+  }
+
+  void add(Object subject) {
+    if (size == capacity) return;
+    if (table == null) {
+      for (int i = 0; i < size; i++) {
+        if (elements[i] == subject) return;
+      }
+      append(subject);
+      if (size > LINEAR_SCAN_LIMIT) rebuildTable();
+      return;
+    }
+    int mask = table.length - 1;
+    for (int slot = hash(subject) & mask; ; slot = (slot + 1) & mask) {
+      int entry = table[slot];
+      if (entry == 0) {
+        append(subject);
+        table[slot] = size;
+        if (size * 2 > table.length) rebuildTable();
+        return;
+      }
+      if (elements[entry - 1] == subject) return;
+    }
+  }
+
+  void addAll(ExpectedSet that) {
+    for (int i = 0; i < that.size; i++) {
+      add(that.elements[i]);
+    }
+  }
+
+  void clear() {
+    if (table != null) {
+      // Only the slots in use need to be emptied, which is cheaper than filling the whole table.
+      int mask = table.length - 1;
+      for (int i = 0; i < size; i++) {
+        int slot = hash(elements[i]) & mask;
+        while (table[slot] != i + 1) slot = (slot + 1) & mask;
+        table[slot] = 0;
+      }
+    }
+    Arrays.fill(elements, 0, size, null);
+    size = 0;
+  }
+
+  private void append(Object subject) {
+    if (size == elements.length) {
+      elements = Arrays.copyOf(elements, Math.min(size * 2, capacity));
+    }
+    elements[size++] = subject;
+  }
+
+  private void rebuildTable() {
+    int length = Integer.highestOneBit(size * 4 - 1);
+    if (table == null || table.length < length) {
+      table = new int[length];
+    } else {
+      Arrays.fill(table, 0);
+    }
+    int mask = table.length - 1;
+    for (int i = 0; i < size; i++) {
+      int slot = hash(elements[i]) & mask;
+      while (table[slot] != 0) slot = (slot + 1) & mask;
+      table[slot] = i + 1;
+    }
+  }
+
+  private static int hash(Object subject) {
+    int h = System.identityHashCode(subject);
+    return h ^ (h >>> 16);
+  }
+}
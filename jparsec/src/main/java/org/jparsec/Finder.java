@@ -0,0 +1,91 @@
+/*****************************************************************************
+ * Copyright (C) jparsec.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package org.jparsec;
+
+import org.jparsec.pattern.CharPredicate;
+import org.jparsec.pattern.CharPredicates;
+import org.jparsec.pattern.Pattern;
+import org.jparsec.pattern.Patterns;
+
+/**
+ * Finds the non-overlapping matches of a parser anywhere in the source, like
+ * {@link java.util.regex.Matcher#find}. An empty match is found at each index where nothing
+ * longer matches.
+ *
+ * <p>All attempts share one {@link ScannerState}, with errors suppressed. Indices whose character
+ * can't start a match, as told by {@link Parser#firstChars}, are skipped in bulk without running
+ * the parser.
+ */
+final class Finder<T> {
+  private final Parser<T> parser;
+  private final ScannerState state;
+  private final CharSequence source;
+
+  /** Skips the characters that can't start a match, or null if any index can. */
+  private final Pattern skipNonStarting;
+
+  private int from = 0;
+  private int start = -1;
+  private int end = -1;
+
+  Finder(Parser<T> parser, CharSequence source) {
+    this.parser = parser;
+    this.state = new ScannerState(Sources.normalize(source));
+    this.source = state.characters();
+    CharPredicate first = parser.firstChars();
+    this.skipNonStarting = first == null ? null : Patterns.many(CharPredicates.not(first));
+  }
+
+  /** Finds the next match, and returns false if there's none left. */
+  boolean find() {
+    for (int i = from, length = source.length(); i <= length; i++) {
+      if (skipNonStarting != null) {
+        i += skipNonStarting.match(source, i, length);
+        // A parser that tells its first characters can't match at the end of input.
+        if (i == length) break;
+      }
+      if (state.matchesAt(i, parser)) {
+        start = i;
+        end = state.getIndex();
+        from = end == i ? i + 1 : end;
+        return true;
+      }
+    }
+    from = source.length() + 1;
+    state.stopDeepRecursion();
+    return false;
+  }
+
+  /** Returns the source searched. */
+  CharSequence source() {
+    return source;
+  }
+
+  /** Returns the index where the last match starts. */
+  int start() {
+    return start;
+  }
+
+  /** Returns the index where the last match ends. */
+  int end() {
+    return end;
+  }
+
+  /** Returns the result of the last match. */
+  T value() {
+    return parser.getReturn(state);
+  }
+}
@@ -0,0 +1,74 @@
+/*****************************************************************************
+ * Copyright (C) jparsec.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package org.jparsec;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jparsec.pattern.Pattern;
+import org.jparsec.pattern.Patterns;
+
+/**
+ * Adjacent {@link PatternScanner}s run as one {@link Pattern}. Only a mismatch runs them one by
+ * one again, so that the error is reported by the scanner that failed and where it failed.
+ */
+final class FusedScanner extends PatternScanner {
+  private final PatternScanner[] scanners;
+
+  private FusedScanner(Pattern pattern, PatternScanner[] scanners) {
+    super(pattern, "sequence", scanners[0].firstChars());
+    this.scanners = scanners;
+  }
+
+  /** Fuses {@code run}, a list of at least 2 scanners that run one after another. */
+  static FusedScanner fuse(List<PatternScanner> run) {
+    List<PatternScanner> scanners = new ArrayList<PatternScanner>();
+    for (PatternScanner scanner : run) {
+      if (scanner instanceof FusedScanner) {
+        scanners.addAll(Arrays.asList(((FusedScanner) scanner).scanners));
+      } else {
+        scanners.add(scanner);
+      }
+    }
+    Pattern[] patterns = new Pattern[scanners.size()];
+    for (int i = 0; i < patterns.length; i++) {
+      patterns[i] = scanners.get(i).pattern;
+    }
+    return new FusedScanner(
+        Patterns.sequence(patterns), scanners.toArray(new PatternScanner[scanners.size()]));
+  }
+
+  @Override boolean apply(ParseContext ctxt) {
+    int at = ctxt.at;
+    CharSequence src = ctxt.characters();
+    int matchLength = pattern.match(src, at, ctxt.charactersEnd());
+    if (matchLength >= 0) {
+      ctxt.next(matchLength);
+      ctxt.result = null;
+      return true;
+    }
+    for (PatternScanner scanner : scanners) {
+      if (!scanner.apply(ctxt)) return false;
+    }
+    // Can't get here unless the pattern is inconsistent with its parts.
+    return true;
+  }
+
+  @Override Object shareKey() {
+    return Arrays.asList(getClass(), Arrays.asList(scanners));
+  }
+}
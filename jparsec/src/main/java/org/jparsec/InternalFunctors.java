@@ -29,14 +29,7 @@ import org.jparsec.functors.Map5;
 final class InternalFunctors {
   
   static TokenMap<Token> tokenWithSameValue(final Object value) {
-    return new TokenMap<Token>() {
-      @Override public Token map(Token token) {
-        return (value == token.value()) ? token : null;
-      }
-      @Override public String toString() {
-        return String.valueOf(value);
-      }
-    };
+    return new TokenWithSameValue(value);
   }
   
   @SuppressWarnings("rawtypes")
@@ -113,4 +106,29 @@ final class InternalFunctors {
   static<A, B, C, D, T> Map5<A, B, C, D, T, T> lastOfFive() {
     return LAST_OF_FIVE;
   }
+
+  /** Equal to another instance for the same value so that {@link Parser#optimize} can share them. */
+  private static final class TokenWithSameValue implements TokenMap<Token> {
+    private final Object value;
+
+    TokenWithSameValue(Object value) {
+      this.value = value;
+    }
+
+    @Override public Token map(Token token) {
+      return (value == token.value()) ? token : null;
+    }
+
+    @Override public boolean equals(Object obj) {
+      return obj instanceof TokenWithSameValue && ((TokenWithSameValue) obj).value == value;
+    }
+
+    @Override public int hashCode() {
+      return System.identityHashCode(value);
+    }
+
+    @Override public String toString() {
+      return String.valueOf(value);
+    }
+  }
 }
@@ -0,0 +1,169 @@
+/*****************************************************************************
+ * Copyright (C) jparsec.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package org.jparsec;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * The JFR event types. Only loaded through {@link ParseEvents} once JFR is known to be available.
+ *
+ * <p>{@link ParseEvent} and {@link LexEvent} are recorded by default, {@link SlowRuleEvent} only
+ * when enabled, with a threshold of 10 ms unless configured otherwise. Configuration uses the
+ * usual JFR settings, for example {@code recording.enable("org.jparsec.SlowRule")} or a
+ * {@code .jfc} settings file.
+ *
+ * <p>Whether an event type is enabled is asked of its {@link EventType}, so that no event is
+ * allocated unless it's going to be recorded.
+ */
+final class JfrEvents {
+
+  private JfrEvents() {}
+
+  @Name("org.jparsec.Parse")
+  @Label("Parse")
+  @Category("jparsec")
+  @Description("A parse of a whole input")
+  @StackTrace(false)
+  static final class ParseEvent extends Event {
+    @Label("Input Length")
+    @Description("Number of characters in the input")
+    int inputLength;
+
+    @Label("Mode")
+    String mode;
+
+    @Label("Token Count")
+    @Description("Number of tokens lexed by nested token-level parsers")
+    int tokenCount;
+
+    @Label("Success")
+    boolean success;
+
+    @Label("Error Index")
+    @Description("Index of the error in the input, or -1 on success")
+    int errorIndex;
+  }
+
+  @Name("org.jparsec.Lex")
+  @Label("Lex")
+  @Category("jparsec")
+  @Description("A lexer run ahead of a token-level parser")
+  @StackTrace(false)
+  static final class LexEvent extends Event {
+    @Label("Input Length")
+    @Description("Number of characters lexed")
+    int inputLength;
+
+    @Label("Token Count")
+    int tokenCount;
+
+    @Label("Success")
+    boolean success;
+  }
+
+  @Name("org.jparsec.SlowRule")
+  @Label("Slow Rule")
+  @Category("jparsec")
+  @Description("A labeled parser that took longer than the threshold")
+  @Enabled(false)
+  @Threshold("10 ms")
+  static final class SlowRuleEvent extends Event {
+    @Label("Rule")
+    String rule;
+
+    @Label("Begin Index")
+    int beginIndex;
+
+    @Label("End Index")
+    int endIndex;
+
+    @Label("Success")
+    boolean success;
+  }
+
+  private static final EventType PARSE = EventType.getEventType(ParseEvent.class);
+  private static final EventType LEX = EventType.getEventType(LexEvent.class);
+  private static final EventType SLOW_RULE = EventType.getEventType(SlowRuleEvent.class);
+
+  static Object beginParse() {
+    if (!PARSE.isEnabled()) return null;
+    ParseEvent event = new ParseEvent();
+    event.begin();
+    return event;
+  }
+
+  static void endParse(
+      Object e, int inputLength, String mode, int tokenCount, boolean success, int errorIndex) {
+    ParseEvent event = (ParseEvent) e;
+    event.end();
+    if (event.shouldCommit()) {
+      event.inputLength = inputLength;
+      event.mode = mode;
+      event.tokenCount = tokenCount;
+      event.success = success;
+      event.errorIndex = errorIndex;
+      event.commit();
+    }
+  }
+
+  static Object beginLex() {
+    if (!LEX.isEnabled()) return null;
+    LexEvent event = new LexEvent();
+    event.begin();
+    return event;
+  }
+
+  static void endLex(Object e, int inputLength, int tokenCount, boolean success) {
+    LexEvent event = (LexEvent) e;
+    event.end();
+    if (event.shouldCommit()) {
+      event.inputLength = inputLength;
+      event.tokenCount = tokenCount;
+      event.success = success;
+      event.commit();
+    }
+  }
+
+  static boolean isSlowRuleEnabled() {
+    return SLOW_RULE.isEnabled();
+  }
+
+  static Object beginRule() {
+    SlowRuleEvent event = new SlowRuleEvent();
+    event.begin();
+    return event;
+  }
+
+  static void endRule(Object e, String rule, int beginIndex, int endIndex, boolean success) {
+    SlowRuleEvent event = (SlowRuleEvent) e;
+    event.end();
+    if (event.shouldCommit()) {
+      event.rule = rule;
+      event.beginIndex = beginIndex;
+      event.endIndex = endIndex;
+      event.success = success;
+      event.commit();
+    }
+  }
+}
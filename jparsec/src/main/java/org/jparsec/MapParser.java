@@ -0,0 +1,76 @@
+/*****************************************************************************
+ * Copyright (C) jparsec.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package org.jparsec;
+
+import java.util.Arrays;
+import java.util.function.Function;
+
+import org.jparsec.pattern.CharPredicate;
+
+/**
+ * Runs {@code parser} and transforms the return value using {@code map}.
+ */
+final class MapParser<F, T> extends Parser<T> {
+  private final Parser<? extends F> parser;
+  private final Function<? super F, ? extends T> map;
+
+  MapParser(Parser<? extends F> parser, Function<? super F, ? extends T> map) {
+    this.parser = parser;
+    this.map = map;
+  }
+
+  @Override boolean apply(ParseContext ctxt) {
+    final boolean r = parser.apply(ctxt);
+    if (r) {
+      ctxt.result = map.apply(parser.getReturn(ctxt));
+    }
+    return r;
+  }
+
+  /** Folds {@code p.map(f).map(g)} into one step. */
+  @Override Parser<T> rewrite(ParserOptimizer optimizer) {
+    Parser<? extends F> optimized = optimizer.optimize(parser);
+    if (optimized instanceof MapParser<?, ?>) {
+      return fold((MapParser<?, ? extends F>) optimized);
+    }
+    return new MapParser<F, T>(optimized, map);
+  }
+
+  @Override CharPredicate firstChars() {
+    return parser.firstChars();
+  }
+
+  @Override Object shareKey() {
+    return Arrays.asList(getClass(), parser, map);
+  }
+
+  @Override public String toString() {
+    return map.toString();
+  }
+
+  private <E> MapParser<E, T> fold(MapParser<E, ? extends F> inner) {
+    Function<? super E, ? extends F> first = inner.map;
+    Function<? super F, ? extends T> then = map;
+    return new MapParser<E, T>(inner.parser, new Function<E, T>() {
+      @Override public T apply(E from) {
+        return then.apply(first.apply(from));
+      }
+      @Override public String toString() {
+        return then.toString();
+      }
+    });
+  }
+}
@@ -0,0 +1,92 @@
+/*****************************************************************************
+ * Copyright (C) jparsec.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package org.jparsec;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jparsec.pattern.CharPredicate;
+import org.jparsec.pattern.CharPredicates;
+
+/**
+ * Tries each of {@code alternatives} until one succeeds. Fallback happens regardless of partial
+ * match, unless the failed alternative passed a {@link Parsers#cut}.
+ */
+final class OrParser<T> extends Parser<T> {
+  private final Parser<? extends T>[] alternatives;
+
+  OrParser(Parser<? extends T>[] alternatives) {
+    this.alternatives = alternatives;
+  }
+
+  @Override boolean apply(ParseContext ctxt) {
+    final Object result = ctxt.result;
+    final int at = ctxt.at;
+    final int step = ctxt.step;
+    final boolean cut = ctxt.cut;
+    for(Parser<? extends T> p : alternatives) {
+      ctxt.cut = false;
+      if (p.apply(ctxt)) {
+        ctxt.cut = cut;
+        return true;
+      }
+      if (ctxt.cut) return false;
+      ctxt.set(step, at, result);
+    }
+    ctxt.cut = cut;
+    return false;
+  }
+
+  /**
+   * Flattens nested alternatives and drops those after a {@link ConstantParser}, which always
+   * succeeds.
+   */
+  @Override Parser<T> rewrite(ParserOptimizer optimizer) {
+    List<Parser<? extends T>> flattened = new ArrayList<Parser<? extends T>>();
+    for (Parser<? extends T> alternative : alternatives) {
+      Parser<? extends T> optimized = optimizer.optimize(alternative);
+      if (optimized instanceof OrParser<?>) {
+        flattened.addAll(Arrays.asList(((OrParser<? extends T>) optimized).alternatives));
+      } else {
+        flattened.add(optimized);
+      }
+    }
+    for (int i = 0; i < flattened.size(); i++) {
+      if (flattened.get(i) instanceof ConstantParser<?>) {
+        return Parsers.or(flattened.subList(0, i + 1));
+      }
+    }
+    return Parsers.or(flattened);
+  }
+
+  @Override CharPredicate firstChars() {
+    CharPredicate[] predicates = new CharPredicate[alternatives.length];
+    for (int i = 0; i < alternatives.length; i++) {
+      predicates[i] = alternatives[i].firstChars();
+      if (predicates[i] == null) return null;
+    }
+    return CharPredicates.or(predicates);
+  }
+
+  @Override Object shareKey() {
+    return Arrays.asList(getClass(), Arrays.asList(alternatives));
+  }
+
+  @Override public String toString() {
+    return "or";
+  }
+}
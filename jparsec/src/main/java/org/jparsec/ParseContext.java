@@ -48,16 +48,24 @@ abstract class ParseContext {
   /** The current parse result. */
   Object result;
 
-  private ParserTrace trace = new ParserTrace() {
+  /**
+   * Tracing is off unless {@link #enableTrace} is called. Hot paths check {@link #traceTree}
+   * before touching the trace at all, so labels cost nothing when not traced.
+   */
+  private static final ParserTrace UNTRACED = new ParserTrace() {
     @Override public void push(String name) {}
     @Override public void pop() {}
-    @Override public TreeNode getCurrentNode() { return null; }
+    @Override public int getCurrentNode() { return CompactParseTree.NONE; }
+    @Override public void pinCurrentNode() {}
     @Override public void setCurrentResult(Object result) {}
-    @Override public TreeNode getLatestChild() { return null; }
-    @Override public void setLatestChild(TreeNode node) {}
+    @Override public int getLatestChild() { return CompactParseTree.NONE; }
+    @Override public void setLatestChild(int node) {}
+    @Override public void backtrack(int latestChild) {}
     @Override public void startFresh(ParseContext context) {}
     @Override public void setStateAs(ParserTrace that) {}
   };
+
+  private ParserTrace trace = UNTRACED;
   
   enum ErrorType {
     
@@ -89,9 +97,44 @@ abstract class ParseContext {
   private ErrorType currentErrorType = ErrorType.NONE;
   private int currentErrorAt;
   private int currentErrorIndex = 0; // TODO: is it necessary to set this to the starting index?
-  private final ArrayList<Object> errors = Lists.arrayList(32);
+  private ExpectedSet errors = new ExpectedSet(ExpectedSet.DEFAULT_CAPACITY);
   private String encountered = null; // for explicitly setting encountered token into ScannerState.
-  private TreeNode currentErrorNode = null;
+
+  /** The traced parse tree, or null if tracing isn't enabled. */
+  private CompactParseTree traceTree = null;
+
+  /** The name of the root node of {@link #traceTree}. */
+  private String traceRootName = null;
+
+  /** Records statistics of labeled parsers, or null if not profiling. */
+  private ParseProfiler profiler = null;
+
+  /** Whether labeled parsers are timed for {@link ParseEvents#beginRule slow rule events}. */
+  private boolean ruleEvents = false;
+
+  /** Whether labeled parsers need anything beyond reporting "expecting $name" on failure. */
+  private boolean instrumented = false;
+
+  /** Number of tokens lexed by the token-level parsers nested in this context. */
+  int tokenCount = 0;
+
+  /**
+   * Whether a {@link Parsers#cut} has been passed since the innermost enclosing alternative or
+   * repetition started. When one fails after a cut, it fails rather than backtrack.
+   */
+  boolean cut = false;
+
+  /** The {@link DeepRecursion} workers of this parse, or null if none was needed yet. */
+  DeepRecursion.Workers deepRecursion = null;
+
+  /** Whether the parse can {@link #startOver} on a {@link DeepRecursion} thread. */
+  boolean canStartOver = false;
+
+  /** Number of recursive rules being applied on the current thread. */
+  int recursionDepth = 0;
+
+  /** Beyond this many recursive rules, parsing moves to a {@link DeepRecursion} thread. */
+  int maxRecursionDepth = DeepRecursion.CALLER_DEPTH;
   
   // explicit suppresses error recording if true.
   private boolean errorSuppressed = false;
@@ -113,6 +156,35 @@ abstract class ParseContext {
     this.currentErrorAt = at;
   }
 
+  /** Records at most {@code max} distinct subjects for the current error. */
+  final void setMaxExpected(int max) {
+    if (errors.capacity() != max) errors = new ExpectedSet(max);
+  }
+
+  /** Reports every labeled parser applied on this context to {@code profiler}. */
+  final void setProfiler(ParseProfiler profiler) {
+    this.profiler = profiler;
+    updateInstrumented();
+  }
+
+  /** Times every labeled parser applied on this context for slow rule events. */
+  final void setRuleEvents(boolean ruleEvents) {
+    this.ruleEvents = ruleEvents;
+    updateInstrumented();
+  }
+
+  final boolean isTraced() {
+    return traceTree != null;
+  }
+
+  final boolean isProfiled() {
+    return profiler != null;
+  }
+
+  private void updateInstrumented() {
+    instrumented = traceTree != null || profiler != null || ruleEvents;
+  }
+
   /** Runs {@code parser} with error recording suppressed. */
   final boolean withErrorSuppressed(Parser<?> parser) {
     boolean oldValue = errorSuppressed;
@@ -138,9 +210,50 @@ abstract class ParseContext {
    * "expecting $name".
    */
   final boolean applyNewNode(Parser<?> parser, String name) {
+    if (instrumented) return applyInstrumentedNode(parser, name);
+    return applyUntracedNode(parser, name);
+  }
+
+  private boolean applyUntracedNode(Parser<?> parser, String name) {
+    int physical = at;
+    int logical = step;
+    if (parser.apply(this)) return true;
+    if (stillThere(physical, logical)) expected(name);
+    return false;
+  }
+
+  private boolean applyInstrumentedNode(Parser<?> parser, String name) {
+    if (!ruleEvents) return applyProfiledNode(parser, name);
+    Object event = ParseEvents.beginRule();
+    int begin = getIndex();
+    boolean ok = false;
+    try {
+      ok = applyProfiledNode(parser, name);
+      return ok;
+    } finally {
+      ParseEvents.endRule(event, name, begin, getIndex(), ok);
+    }
+  }
+
+  private boolean applyProfiledNode(Parser<?> parser, String name) {
+    if (profiler == null) return applyTracedNode(parser, name);
+    ParseProfiler.RuleProfile rule = profiler.enter(name);
+    int begin = getIndex();
+    long start = System.nanoTime();
+    boolean ok = false;
+    try {
+      ok = applyTracedNode(parser, name);
+      return ok;
+    } finally {
+      profiler.exit(rule, ok, getIndex() - begin, System.nanoTime() - start);
+    }
+  }
+
+  private boolean applyTracedNode(Parser<?> parser, String name) {
+    if (traceTree == null) return applyUntracedNode(parser, name);
     int physical = at;
     int logical = step;
-    TreeNode latestChild = trace.getLatestChild();
+    int latestChild = trace.getLatestChild();
     trace.push(name);
     if (parser.apply(this)) {
       trace.setCurrentResult(result);
@@ -150,14 +263,73 @@ abstract class ParseContext {
     if (stillThere(physical, logical)) expected(name);
     trace.pop();
     // On failure, the erroneous path shouldn't be counted in the parse tree.
-    trace.setLatestChild(latestChild);
+    trace.backtrack(latestChild);
     return false;
   }
 
+  /**
+   * Applies {@code parser}, a recursive rule, on a {@link DeepRecursion} thread if this thread
+   * already has too many of them on its stack.
+   */
+  final boolean applyRecursive(Parser<?> parser) {
+    if (recursionDepth >= maxRecursionDepth) {
+      return DeepRecursion.apply(parser, this);
+    }
+    recursionDepth++;
+    boolean ok = parser.apply(this);
+    recursionDepth--;
+    return ok;
+  }
+
+  /**
+   * Puts this context back to {@code step}, {@code at} and {@code result} with nothing parsed yet,
+   * for the parse to start over on a {@link DeepRecursion} thread.
+   */
+  final void startOver(int step, int at, Object result) {
+    set(step, at, result);
+    currentErrorType = ErrorType.NONE;
+    currentErrorAt = at;
+    currentErrorIndex = 0;
+    errors.clear();
+    encountered = null;
+    errorSuppressed = false;
+    overrideErrorType = ErrorType.NONE;
+    tokenCount = 0;
+    cut = false;
+    recursionDepth = 0;
+    canStartOver = false;
+    if (traceTree != null) enableTrace(traceRootName);
+  }
+
+  /** Ends the {@link DeepRecursion} workers of this parse. */
+  final void stopDeepRecursion() {
+    if (deepRecursion == null) return;
+    deepRecursion.stop();
+    deepRecursion = null;
+  }
+
   final boolean applyNested(Parser<?> parser, ParseContext nestedState) {
     // nested is either the token-level parser, or the inner scanner of a subpattern.
+    nestedState.setMaxExpected(errors.capacity());
+    nestedState.recursionDepth = recursionDepth;
+    nestedState.maxRecursionDepth = maxRecursionDepth;
+    nestedState.profiler = profiler;
+    nestedState.ruleEvents = ruleEvents;
+    nestedState.deepRecursion = deepRecursion;
+    nestedState.canStartOver = canStartOver;
+    nestedState.updateInstrumented();
+    // The nested parser pins its own errors in the shared trace; ours stands if it succeeds.
+    int errorNode = CompactParseTree.NONE;
+    int savedFloor = 0;
+    if (traceTree != null) {
+      errorNode = traceTree.pinned();
+      savedFloor = traceTree.protectPin();
+    }
+    boolean ok = false;
     try {
-      if (parser.apply(nestedState))  {
+      ok = parser.apply(nestedState);
+      cut |= nestedState.cut;
+      if (ok)  {
         set(nestedState.step, at, nestedState.result);
         return true;
       }
@@ -169,7 +341,11 @@ abstract class ParseContext {
       copyErrorFrom(nestedState);
       return false;
     } finally {
-      trace.setStateAs(nestedState.trace);
+      deepRecursion = nestedState.deepRecursion;
+      if (traceTree != null) {
+        traceTree.unprotectPin(savedFloor, errorNode, ok);
+        trace.setStateAs(nestedState.trace);
+      }
     }
   }
 
@@ -192,6 +368,16 @@ abstract class ParseContext {
   final ParserTrace getTrace() {
     return trace;
   }
+
+  /** Returns the latest child of the current trace node, or {@code NONE} if untraced. */
+  final int getLatestTraceChild() {
+    return traceTree == null ? CompactParseTree.NONE : trace.getLatestChild();
+  }
+
+  /** Sets the latest child of the current trace node, if traced. */
+  final void setLatestTraceChild(int node) {
+    if (traceTree != null) trace.setLatestChild(node);
+  }
   
   /** The physical index of the current most relevant error, {@code 0} if none. */
   final int errorIndex() {
@@ -199,17 +385,17 @@ abstract class ParseContext {
   }
 
   final ParseTree buildParseTree() {
-    TreeNode currentNode = trace.getCurrentNode();
-    if (currentNode == null) return null;
-    return currentNode.freeze(getIndex()).toParseTree();
+    if (traceTree == null) return null;
+    return traceTree.toParseTree(traceTree.freeze(trace.getCurrentNode(), getIndex()));
   }
 
   final ParseTree buildErrorParseTree() {
     // The current node is partially done because there was an error.
     // So orphanize it. But at the same time, all ancestor nodes should have their endIndex set to
     // where we are now.
-    if (currentErrorNode == null) return null;
-    return currentErrorNode.orphanize().freeze(getIndex()).toParseTree();
+    if (traceTree == null || traceTree.pinned() == CompactParseTree.NONE) return null;
+    return traceTree.toParseTree(
+        traceTree.freeze(traceTree.orphanize(traceTree.pinned()), getIndex()));
   }
   
   /** Only called when rendering the error in {@link ParserException}. */
@@ -217,8 +403,8 @@ abstract class ParseContext {
     final int errorIndex = toIndex(currentErrorAt);
     final String encounteredName = getEncountered();
     final ArrayList<String> errorStrings = Lists.arrayList(errors.size());
-    for (Object error : errors) {
-      errorStrings.add(String.valueOf(error));
+    for (int i = 0; i < errors.size(); i++) {
+      errorStrings.add(String.valueOf(errors.get(i)));
     }
     switch (currentErrorType) {
     case UNEXPECTED :
@@ -344,33 +530,48 @@ abstract class ParseContext {
   }
 
   /** Enables parse tree tracing with {@code rootName} as the name of the root node. */
-  final void enableTrace(final String rootName) {
+  final void enableTrace(String rootName) {
+    enableTrace(new CompactParseTree(), rootName);
+  }
+
+  private void enableTrace(final CompactParseTree tree, final String rootName) {
+    this.traceTree = tree;
+    this.traceRootName = rootName;
+    updateInstrumented();
     this.trace = new ParserTrace() {
-        private TreeNode current = new TreeNode(rootName, getIndex());
+        private int current = tree.newRoot(rootName, getIndex());
     
         @Override public void push(String name) {
-          this.current = current.addChild(name, getIndex());
+          this.current = tree.addChild(current, name, getIndex());
         }
         @Override public void pop() {
-          current.setEndIndex(getIndex());
-          this.current = current.parent();
+          tree.setEndIndex(current, getIndex());
+          this.current = tree.parent(current);
         }
-        @Override public TreeNode getCurrentNode() {
+        @Override public int getCurrentNode() {
           return current;
         }
+        @Override public void pinCurrentNode() {
+          tree.pin(current);
+        }
         @Override public void setCurrentResult(Object result) {
-          current.setResult(result);
+          tree.setResult(current, result);
         }
-        @Override public TreeNode getLatestChild() {
-          return current.latestChild;
+        @Override public int getLatestChild() {
+          return tree.latestChild(current);
         }
-        @Override public void setLatestChild(TreeNode latest) {
-          checkState(latest == null || latest.parent() == current,
+        @Override public void setLatestChild(int latest) {
+          checkState(latest == CompactParseTree.NONE || tree.parentOf(latest) == current,
               "Trying to set a child node not owned by the parent node");
-          current.latestChild = latest;
+          tree.setLatestChild(current, latest);
+        }
+        @Override public void backtrack(int latest) {
+          int failed = tree.latestChild(current);
+          setLatestChild(latest);
+          if (failed != latest) tree.truncate(failed);
         }
         @Override public void startFresh(ParseContext context) {
-          context.enableTrace(rootName);
+          context.enableTrace(tree, rootName);
         }
         @Override public void setStateAs(ParserTrace that) {
           current = that.getCurrentNode();
@@ -391,7 +592,14 @@ abstract class ParseContext {
     void pop();
 
     /** Returns the current node, that is being parsed (not necessarily finished). */
-    TreeNode getCurrentNode();
+    int getCurrentNode();
+
+    /**
+     * Keeps the current node and the path to it from being discarded by {@link #backtrack},
+     * because the error being recorded refers to it. The node pinned for an earlier error, which
+     * this one replaces, is released.
+     */
+    void pinCurrentNode();
 
     /** Whenever a labeled parser succeeds, it calls this method to set its result in the trace. */
     void setCurrentResult(Object result);
@@ -400,13 +608,18 @@ abstract class ParseContext {
      * Called by branching parsers, to save the current state of tree, before trying parsers that
      * could modify the tree state.
      */
-    TreeNode getLatestChild();
+    int getLatestChild();
+
+    /**
+     * Called by {@link BestParser} to set the optimum parse tree.
+     */
+    void setLatestChild(int node);
 
     /**
-     * Called by labeled parser to reset the current child node when the current node failed.
-     * Also called by {@link BestParser} to set the optimum parse tree.
+     * Called by labeled parser when the current node failed. Resets the latest child to
+     * {@code latestChild}, discarding the nodes added by the failed parser.
      */
-    void setLatestChild(TreeNode node);
+    void backtrack(int latestChild);
 
     /** Called when tokenizer passes on to token-level parser. */
     void startFresh(ParseContext context);
@@ -418,33 +631,39 @@ abstract class ParseContext {
     void setStateAs(ParserTrace that);
   }
 
-  private void setErrorState(
-      int errorAt, int errorIndex, ErrorType errorType, List<Object> errors) {
-    setErrorState(errorAt, errorIndex, errorType);
-    this.errors.addAll(errors);
-  }
 
   private void setErrorState(int errorAt, int errorIndex, ErrorType errorType) {
     this.currentErrorIndex = errorIndex;
     this.currentErrorAt = errorAt;
     this.currentErrorType = errorType;
-    this.currentErrorNode = trace.getCurrentNode();
+    trace.pinCurrentNode();
     this.encountered = null;
     this.errors.clear();
   }
 
+  /**
+   * Takes the error of the failed {@code nested} parser, whose node is already
+   * {@link CompactParseTree#pin pinned} in the trace they share.
+   */
   private void copyErrorFrom(ParseContext that) {
     int errorIndex = that.errorIndex();
-    setErrorState(errorIndex, errorIndex, that.currentErrorType, that.errors);
-    if (!that.isEof()) {
-      this.encountered = that.getEncountered();
-    }
-    currentErrorNode = that.currentErrorNode;
+    this.currentErrorIndex = errorIndex;
+    this.currentErrorAt = errorIndex;
+    this.currentErrorType = that.currentErrorType;
+    this.encountered = that.isEof() ? null : that.getEncountered();
+    this.errors.clear();
+    this.errors.addAll(that.errors);
   }
 
   /** Reads the characters as input. Only applicable to character level parsers. */
   abstract CharSequence characters();
 
+  /**
+   * The index where the {@link #characters} to scan end, which can be before their length. Only
+   * applicable to character level parsers.
+   */
+  abstract int charactersEnd();
+
   @Override public String toString() {
     return source.subSequence(getIndex(), source.length()).toString();
   }
@@ -0,0 +1,81 @@
+/*****************************************************************************
+ * Copyright (C) jparsec.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package org.jparsec;
+
+/**
+ * Emits Java Flight Recorder events for whole parses, lexing and slow labeled rules, if the
+ * running JVM supports JFR.
+ *
+ * <p>All references to {@code jdk.jfr} are kept in {@link JfrEvents}, which is only used if it
+ * loads, so that jparsec runs where {@code jdk.jfr} is missing, such as in an OSGi framework that
+ * doesn't export it. Events are passed around as {@code Object}, and {@code null} stands for an
+ * event that isn't being recorded.
+ */
+final class ParseEvents {
+
+  private static final boolean AVAILABLE = isJfrAvailable();
+
+  private ParseEvents() {}
+
+  /** Starts timing a parse, or returns null if parse events aren't recorded. */
+  static Object beginParse() {
+    return AVAILABLE ? JfrEvents.beginParse() : null;
+  }
+
+  static void endParse(
+      Object event, int inputLength, String mode, int tokenCount, boolean success, int errorIndex) {
+    if (event != null) {
+      JfrEvents.endParse(event, inputLength, mode, tokenCount, success, errorIndex);
+    }
+  }
+
+  /** Starts timing a lexer, or returns null if lex events aren't recorded. */
+  static Object beginLex() {
+    return AVAILABLE ? JfrEvents.beginLex() : null;
+  }
+
+  static void endLex(Object event, int inputLength, int tokenCount, boolean success) {
+    if (event != null) JfrEvents.endLex(event, inputLength, tokenCount, success);
+  }
+
+  /**
+   * Returns true if slow rule events are being recorded. Checked once per parse, because timing
+   * every labeled parser isn't free.
+   */
+  static boolean isSlowRuleEnabled() {
+    return AVAILABLE && JfrEvents.isSlowRuleEnabled();
+  }
+
+  /** Starts timing a labeled parser. Only called if {@link #isSlowRuleEnabled}. */
+  static Object beginRule() {
+    return JfrEvents.beginRule();
+  }
+
+  static void endRule(Object event, String rule, int beginIndex, int endIndex, boolean success) {
+    JfrEvents.endRule(event, rule, beginIndex, endIndex, success);
+  }
+
+  private static boolean isJfrAvailable() {
+    try {
+      Class.forName("jdk.jfr.Event", false, ParseEvents.class.getClassLoader());
+      // Also initializes the event types, which may fail where JFR is disabled.
+      Class.forName(JfrEvents.class.getName(), true, ParseEvents.class.getClassLoader());
+      return true;
+    } catch (ClassNotFoundException | LinkageError | RuntimeException e) {
+      return false;
+    }
+  }
+}
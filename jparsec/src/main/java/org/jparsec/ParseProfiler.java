@@ -0,0 +1,309 @@
+/*****************************************************************************
+ * Copyright (C) jparsec.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package org.jparsec;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records statistics for every {@link Parser#label labeled} parser over one or more parses, to
+ * find out where a grammar spends its time and where it backtracks.
+ *
+ * <pre class="code">
+ * ParseProfiler profiler = new ParseProfiler();
+ * for (String input : inputs) {
+ *   profiler.parse(parser, input);
+ * }
+ * System.out.println(profiler);
+ * </pre>
+ *
+ * <p>Parsers with the same label are reported as one rule. Nested token-level parsers and
+ * {@link Scanners#nestedScanner nested scanners} are profiled too. Timing adds a
+ * {@link System#nanoTime} call around every labeled parser, so absolute numbers are inflated for
+ * very small rules; compare rules against each other rather than against unprofiled runs.
+ *
+ * <p>Not thread safe.
+ *
+ * @since 3.2
+ */
+public final class ParseProfiler {
+
+  /** Rules sorted by self time, the most expensive first. */
+  public static final Comparator<RuleProfile> BY_SELF_TIME =
+      (a, b) -> Long.compare(b.selfNanos, a.selfNanos);
+
+  /** Rules sorted by the number of characters thrown away on failure, the most first. */
+  public static final Comparator<RuleProfile> BY_BACKTRACKED_CHARS =
+      (a, b) -> Long.compare(b.backtrackedChars, a.backtrackedChars);
+
+  /** Rules sorted by invocation count, the most first. */
+  public static final Comparator<RuleProfile> BY_INVOCATIONS =
+      (a, b) -> Long.compare(b.invocations, a.invocations);
+
+  private static final int HOT_SPOTS = 5;
+
+  private final Map<String, RuleProfile> rules = new LinkedHashMap<String, RuleProfile>();
+
+  /** Time spent in nested labeled parsers, for every labeled parser currently running. */
+  private long[] childNanos = new long[16];
+  private int depth = 0;
+
+  /**
+   * Parses {@code source} with {@code parser} in {@link Parser.Mode#PRODUCTION} mode, adding the
+   * statistics of its labeled parsers to this profiler. Statistics are recorded even if parsing
+   * fails.
+   */
+  public <T> T parse(Parser<T> parser, CharSequence source) {
+    ScannerState state = new ScannerState(Sources.normalize(source));
+    state.setProfiler(this);
+    depth = 0;
+    return Parser.Mode.PRODUCTION.run(parser, state);
+  }
+
+  /** Returns the statistics of every rule, sorted by {@link #BY_SELF_TIME}. */
+  public List<RuleProfile> getRules() {
+    return getRules(BY_SELF_TIME);
+  }
+
+  /** Returns the statistics of every rule, sorted by {@code order}. */
+  public List<RuleProfile> getRules(Comparator<? super RuleProfile> order) {
+    List<RuleProfile> list = new ArrayList<RuleProfile>(rules.values());
+    Collections.sort(list, order);
+    return Collections.unmodifiableList(list);
+  }
+
+  /** Discards all statistics recorded so far. */
+  public void reset() {
+    rules.clear();
+    depth = 0;
+  }
+
+  /**
+   * Returns the rules with the most characters thrown away on failure. These are where
+   * reordering alternatives, factoring out common prefixes or {@link Parser#atomic} boundaries
+   * pay off.
+   */
+  public List<RuleProfile> getBacktrackingHotSpots() {
+    List<RuleProfile> hotSpots = new ArrayList<RuleProfile>();
+    for (RuleProfile rule : getRules(BY_BACKTRACKED_CHARS)) {
+      if (rule.backtrackedChars == 0 || hotSpots.size() == HOT_SPOTS) break;
+      hotSpots.add(rule);
+    }
+    return Collections.unmodifiableList(hotSpots);
+  }
+
+  /** Returns the report as a text table, followed by the backtracking hot spots. */
+  @Override public String toString() {
+    List<RuleProfile> sorted = getRules();
+    int width = "rule".length();
+    for (RuleProfile rule : sorted) {
+      width = Math.max(width, rule.name.length());
+    }
+    String format = "%-" + width + "s %10s %10s %10s %12s %12s %6s %12s %12s%n";
+    StringBuilder builder = new StringBuilder();
+    builder.append(String.format(format, "rule", "calls", "successes", "failures",
+        "consumed", "backtracked", "depth", "total us", "self us"));
+    for (RuleProfile rule : sorted) {
+      builder.append(String.format(format, rule.name, rule.invocations, rule.successes,
+          rule.failures, rule.consumedChars, rule.backtrackedChars, rule.maxDepth,
+          rule.totalNanos / 1000, rule.selfNanos / 1000));
+    }
+    List<RuleProfile> hotSpots = getBacktrackingHotSpots();
+    if (!hotSpots.isEmpty()) {
+      builder.append(String.format("%nBacktracking hot spots:%n"));
+      for (RuleProfile rule : hotSpots) {
+        builder.append(String.format("  %s: %d chars backtracked in %d failures, %d consumed%n",
+            rule.name, rule.backtrackedChars, rule.failures, rule.consumedChars));
+      }
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Returns the report as JSON: an object with a {@code "rules"} array sorted by
+   * {@link #BY_SELF_TIME}, and a {@code "hotSpots"} array of the names of the
+   * {@link #getBacktrackingHotSpots backtracking hot spots}.
+   */
+  public String toJson() {
+    StringBuilder builder = new StringBuilder("{\"rules\":[");
+    List<RuleProfile> sorted = getRules();
+    for (int i = 0; i < sorted.size(); i++) {
+      RuleProfile rule = sorted.get(i);
+      if (i > 0) builder.append(',');
+      builder.append("{\"name\":");
+      appendJsonString(builder, rule.name);
+      builder.append(",\"invocations\":").append(rule.invocations)
+          .append(",\"successes\":").append(rule.successes)
+          .append(",\"failures\":").append(rule.failures)
+          .append(",\"consumedChars\":").append(rule.consumedChars)
+          .append(",\"backtrackedChars\":").append(rule.backtrackedChars)
+          .append(",\"maxDepth\":").append(rule.maxDepth)
+          .append(",\"totalNanos\":").append(rule.totalNanos)
+          .append(",\"selfNanos\":").append(rule.selfNanos)
+          .append('}');
+    }
+    builder.append("],\"hotSpots\":[");
+    List<RuleProfile> hotSpots = getBacktrackingHotSpots();
+    for (int i = 0; i < hotSpots.size(); i++) {
+      if (i > 0) builder.append(',');
+      appendJsonString(builder, hotSpots.get(i).name);
+    }
+    return builder.append("]}").toString();
+  }
+
+  /** Called when the labeled parser {@code name} starts. */
+  RuleProfile enter(String name) {
+    RuleProfile rule = rules.get(name);
+    if (rule == null) {
+      rule = new RuleProfile(name);
+      rules.put(name, rule);
+    }
+    rule.invocations++;
+    if (++rule.active > rule.maxDepth) rule.maxDepth = rule.active;
+    if (depth == childNanos.length) childNanos = Arrays.copyOf(childNanos, depth * 2);
+    childNanos[depth++] = 0;
+    return rule;
+  }
+
+  /**
+   * Called when {@code rule} finishes, having moved {@code chars} characters ahead in
+   * {@code nanos} nanoseconds.
+   */
+  void exit(RuleProfile rule, boolean success, int chars, long nanos) {
+    long nested = childNanos[--depth];
+    if (depth > 0) childNanos[depth - 1] += nanos;
+    rule.selfNanos += nanos - nested;
+    // Only the outermost of recursive invocations counts, or the time would be counted twice.
+    if (--rule.active == 0) rule.totalNanos += nanos;
+    if (success) {
+      rule.successes++;
+      rule.consumedChars += chars;
+    } else {
+      rule.failures++;
+      rule.backtrackedChars += chars;
+    }
+  }
+
+  private static void appendJsonString(StringBuilder builder, String s) {
+    builder.append('"');
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      switch (c) {
+        case '"':
+          builder.append("\\\"");
+          break;
+        case '\\':
+          builder.append("\\\\");
+          break;
+        case '\n':
+          builder.append("\\n");
+          break;
+        case '\r':
+          builder.append("\\r");
+          break;
+        case '\t':
+          builder.append("\\t");
+          break;
+        default:
+          if (c < 0x20) {
+            builder.append(String.format("\\u%04x", (int) c));
+          } else {
+            builder.append(c);
+          }
+      }
+    }
+    builder.append('"');
+  }
+
+  /** Statistics of one labeled parser. */
+  public static final class RuleProfile {
+    private final String name;
+    private long invocations;
+    private long successes;
+    private long failures;
+    private long consumedChars;
+    private long backtrackedChars;
+    private int maxDepth;
+    private long totalNanos;
+    private long selfNanos;
+    private int active;
+
+    RuleProfile(String name) {
+      this.name = name;
+    }
+
+    /** Returns the {@link Parser#label label} of the rule. */
+    public String getName() {
+      return name;
+    }
+
+    /** Returns how many times the rule was applied. */
+    public long getInvocations() {
+      return invocations;
+    }
+
+    /** Returns how many times the rule succeeded. */
+    public long getSuccesses() {
+      return successes;
+    }
+
+    /** Returns how many times the rule failed. */
+    public long getFailures() {
+      return failures;
+    }
+
+    /**
+     * Returns the total number of characters matched by the rule when it succeeded. For token-level
+     * parsers, this includes the delimiters up to the next token.
+     */
+    public long getConsumedChars() {
+      return consumedChars;
+    }
+
+    /**
+     * Returns the total number of characters the rule had matched before it failed, all of which
+     * are scanned again by whatever alternative is tried next.
+     */
+    public long getBacktrackedChars() {
+      return backtrackedChars;
+    }
+
+    /** Returns how deeply the rule was nested within itself, {@code 1} if never recursive. */
+    public int getMaxDepth() {
+      return maxDepth;
+    }
+
+    /** Returns the time spent in the rule, including nested labeled parsers. */
+    public long getTotalNanos() {
+      return totalNanos;
+    }
+
+    /** Returns the time spent in the rule, excluding nested labeled parsers. */
+    public long getSelfNanos() {
+      return selfNanos;
+    }
+
+    @Override public String toString() {
+      return name + ": " + invocations + " calls, " + successes + " successes, "
+          + failures + " failures";
+    }
+  }
+}
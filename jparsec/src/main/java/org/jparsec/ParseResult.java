@@ -0,0 +1,138 @@
+/*****************************************************************************
+ * Copyright (C) jparsec.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package org.jparsec;
+
+import org.jparsec.error.ParseErrorDetails;
+import org.jparsec.error.ParserException;
+import org.jparsec.internal.util.Checks;
+
+/**
+ * The outcome of {@link Parser#tryParse} or {@link Parser#parsePrefix}: either the parsed value,
+ * or where and why parsing failed. Unlike {@link ParserException}, a failure costs nothing up
+ * front: the error details, line, column and message are only computed when asked for.
+ *
+ * @since 3.2
+ */
+public final class ParseResult<T> {
+  private final T value;
+  private final ScannerState state;
+  private final boolean success;
+  private final int length;
+  private ParseErrorDetails details;
+  private SourceLocation errorLocation;
+  private String errorMessage;
+
+  private ParseResult(boolean success, T value, int length, ScannerState state) {
+    this.success = success;
+    this.value = value;
+    this.length = length;
+    this.state = state;
+  }
+
+  /** @param state the state of a traced parse, for its parse tree, or null. */
+  static <T> ParseResult<T> success(T value, int length, ScannerState state) {
+    return new ParseResult<T>(true, value, length, state);
+  }
+
+  static <T> ParseResult<T> failure(ScannerState state) {
+    return new ParseResult<T>(false, null, -1, state);
+  }
+
+  /** Returns whether parsing succeeded. */
+  public boolean isSuccess() {
+    return success;
+  }
+
+  /**
+   * Returns the parsed value.
+   *
+   * @throws ParserException the exception {@link Parser#parse} would have thrown, if parsing
+   *         failed.
+   */
+  public T get() {
+    if (!success) throw state.toParserException();
+    return value;
+  }
+
+  /** Returns the parsed value, or {@code other} if parsing failed. */
+  public T orElse(T other) {
+    return success ? value : other;
+  }
+
+  /**
+   * Returns the number of characters matched, which is the length of the source unless
+   * {@link Parser#parsePrefix parsing a prefix}.
+   *
+   * @throws IllegalStateException if parsing failed.
+   */
+  public int getLength() {
+    Checks.checkState(success, "Parsing failed.");
+    return length;
+  }
+
+  /** Returns the index in the source where parsing failed. */
+  public int getErrorIndex() {
+    checkFailure();
+    return state.errorIndex();
+  }
+
+  /** Returns the line where parsing failed. */
+  public int getLine() {
+    return getErrorLocation().getLine();
+  }
+
+  /** Returns the column where parsing failed. */
+  public int getColumn() {
+    return getErrorLocation().getColumn();
+  }
+
+  /** Returns what was expected or encountered where parsing failed. */
+  public ParseErrorDetails getErrorDetails() {
+    checkFailure();
+    if (details == null) details = state.renderError();
+    return details;
+  }
+
+  /** Returns the same message as {@link ParserException#getMessage}. */
+  public String getErrorMessage() {
+    checkFailure();
+    if (errorMessage == null) errorMessage = state.toParserException().getMessage();
+    return errorMessage;
+  }
+
+  /**
+   * Returns the parse tree up to the error if parsing failed, or the full parse tree otherwise,
+   * when parsed in {@link Parser.Mode#DEBUG} mode; {@code null} in other modes.
+   */
+  public ParseTree getParseTree() {
+    if (state == null) return null;
+    return success ? state.buildParseTree() : state.buildErrorParseTree();
+  }
+
+  @Override public String toString() {
+    return success ? String.valueOf(value) : getErrorMessage();
+  }
+
+  private SourceLocation getErrorLocation() {
+    checkFailure();
+    if (errorLocation == null) errorLocation = new SourceLocation(state.errorIndex(), state.locator);
+    return errorLocation;
+  }
+
+  private void checkFailure() {
+    Checks.checkState(!success, "Parsing succeeded.");
+  }
+}
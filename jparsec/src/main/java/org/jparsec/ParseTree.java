@@ -17,6 +17,7 @@ package org.jparsec;
 
 import org.jparsec.internal.util.Strings;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -30,7 +31,11 @@ public final class ParseTree {
   private final int beginIndex;
   private final int endIndex;
   private final Object value;
-  private final List<ParseTree> children;
+
+  /** The traced tree that the children are read from, or null if they are already known. */
+  private final CompactParseTree tree;
+  private final int node;
+  private List<ParseTree> children;
 
   ParseTree(
       String name,
@@ -42,9 +47,21 @@ public final class ParseTree {
     this.beginIndex = beginIndex;
     this.endIndex = endIndex;
     this.value = value;
+    this.tree = null;
+    this.node = CompactParseTree.NONE;
     this.children = Collections.unmodifiableList(children);
   }
 
+  /** A view of {@code node} in {@code tree}, with the children only read when asked for. */
+  ParseTree(CompactParseTree tree, int node) {
+    this.name = tree.name(node);
+    this.beginIndex = tree.beginIndex(node);
+    this.endIndex = tree.endIndex(node);
+    this.value = tree.result(node);
+    this.tree = tree;
+    this.node = node;
+  }
+
   /** Returns the node name, which is specified in {@link Parser#label}. */
   public String getName() {
     return name;
@@ -70,11 +87,17 @@ public final class ParseTree {
    * parsers syntactically enclosed inside parent parser.
    */
   public List<ParseTree> getChildren() {
-    return children;
+    List<ParseTree> result = children;
+    if (result == null) {
+      result = Collections.unmodifiableList(Arrays.asList(tree.children(node)));
+      children = result;
+    }
+    return result;
   }
 
   @Override public String toString() {
     StringBuilder builder = new StringBuilder(name).append(": ");
+    List<ParseTree> children = getChildren();
     if (children.isEmpty()){
       builder.append(value);
     } else {
@@ -16,7 +16,9 @@
 package org.jparsec;
 
 import java.io.IOException;
+import java.io.Writer;
 import java.nio.CharBuffer;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
@@ -27,6 +29,7 @@ import java.util.function.Function;
 import org.jparsec.error.ParserException;
 import org.jparsec.internal.annotations.Private;
 import org.jparsec.internal.util.Checks;
+import org.jparsec.pattern.CharPredicate;
 
 /**
  * Defines grammar and encapsulates parsing logic. A {@link Parser} takes as input a
@@ -108,12 +111,18 @@ public abstract class Parser<T> {
    *               new TernaryExpr(cond, then, orelse)));
    *   }
    * }</pre>
+   *
+   * <p>A parse whose recursive rules nest more deeply than the calling thread's stack safely
+   * allows starts over on a {@code jparsec-deep-recursion} thread with a larger stack, and
+   * finishes there. Its map functions and other callbacks then run on that thread, where the
+   * {@link ThreadLocal} values of the calling thread aren't visible, and those applied before it
+   * started over run again.
    */
   @SuppressWarnings("serial")
   public static final class Reference<T> extends AtomicReference<Parser<T>> {
     private final Parser<T> lazy = new Parser<T>() {
       @Override boolean apply(ParseContext ctxt) {
-        return deref().apply(ctxt);
+        return ctxt.applyRecursive(deref());
       }
       private Parser<T> deref() {
         Parser<T> p = get();
@@ -121,6 +130,22 @@ public abstract class Parser<T> {
             "Uninitialized lazy parser reference. Did you forget to call set() on the reference?");
         return p;
       }
+      @Override Parser<T> rewrite(ParserOptimizer optimizer) {
+        if (optimizer.bindsReferences()) {
+          Resolved<T> resolved = new Resolved<T>();
+          optimizer.replace(this, resolved);
+          resolved.target = optimizer.optimize(deref());
+          return resolved;
+        }
+        Reference<T> optimized = new Reference<T>();
+        optimizer.replace(this, optimized.lazy());
+        optimized.set(optimizer.optimize(deref()));
+        return optimized.lazy();
+      }
+      @Override CharPredicate firstChars() {
+        Parser<T> p = get();
+        return p == null ? null : p.firstChars();
+      }
       @Override public String toString() {
         return "lazy";
       }
@@ -132,6 +157,55 @@ public abstract class Parser<T> {
     public Parser<T> lazy() {
       return lazy;
     }
+
+    /**
+     * A {@link #lazy} parser {@link Parser#compile compiled} to call its target directly. The
+     * target is set once while compiling, and published by {@link Compiled}.
+     */
+    private static final class Resolved<T> extends Parser<T> {
+      Parser<T> target;
+
+      @Override boolean apply(ParseContext ctxt) {
+        return ctxt.applyRecursive(target);
+      }
+
+      @Override CharPredicate firstChars() {
+        return target == null ? null : target.firstChars();
+      }
+
+      @Override public String toString() {
+        return "lazy";
+      }
+    }
+  }
+
+  /**
+   * The root of a {@link #compile compiled} grammar. Being final, {@link #root} makes the whole
+   * graph, including the {@link Reference.Resolved} targets set while compiling, visible to any
+   * thread that sees this parser.
+   */
+  private static final class Compiled<T> extends Parser<T> {
+    private final Parser<T> root;
+
+    Compiled(Parser<T> root) {
+      this.root = root;
+    }
+
+    @Override boolean apply(ParseContext ctxt) {
+      return root.apply(ctxt);
+    }
+
+    @Override Parser<T> rewrite(ParserOptimizer optimizer) {
+      return optimizer.optimize(root);
+    }
+
+    @Override CharPredicate firstChars() {
+      return root.firstChars();
+    }
+
+    @Override public String toString() {
+      return root.toString();
+    }
   }
 
   Parser() {}
@@ -169,6 +243,9 @@ public abstract class Parser<T> {
       @Override boolean apply(ParseContext ctxt) {
         return Parser.this.apply(ctxt) && runNext(ctxt);
       }
+      @Override Parser<To> rewrite(ParserOptimizer optimizer) {
+        return optimizer.optimize(Parser.this).next(map);
+      }
       @Override public String toString() {
         return map.toString();
       }
@@ -288,18 +365,7 @@ public abstract class Parser<T> {
    * A {@link Parser} that runs {@code this} parser and transforms the return value using {@code map}.
    */
   public final <R> Parser<R> map(final Function<? super T, ? extends R> map) {
-    return new Parser<R>() {
-      @Override boolean apply(final ParseContext ctxt) {
-        final boolean r = Parser.this.apply(ctxt);
-        if (r) {
-          ctxt.result = map.apply(Parser.this.getReturn(ctxt));
-        }
-        return r;
-      }
-      @Override public String toString() {
-        return map.toString();
-      }
-    };
+    return new MapParser<T, R>(this, map);
   }
 
   /**
@@ -326,11 +392,21 @@ public abstract class Parser<T> {
         final Object result = ctxt.result;
         final int at = ctxt.at;
         final int step = ctxt.step;
-        if (Parser.this.apply(ctxt)) return true;
+        final boolean cut = ctxt.cut;
+        ctxt.cut = false;
+        if (Parser.this.apply(ctxt)) {
+          ctxt.cut = cut;
+          return true;
+        }
+        if (ctxt.cut) return false;
+        ctxt.cut = cut;
         if (ctxt.errorIndex() > at) return false;
         ctxt.set(step, at, result);
         return fallback.apply(ctxt);
       }
+      @Override Parser<T> rewrite(ParserOptimizer optimizer) {
+        return optimizer.optimize(Parser.this).otherwise(optimizer.optimize(fallback));
+      }
       @Override public String toString() {
         return "otherwise";
       }
@@ -393,16 +469,48 @@ public abstract class Parser<T> {
       @Override boolean apply(ParseContext ctxt) {
         int step = ctxt.step;
         int at = ctxt.at;
+        boolean cut = ctxt.cut;
         boolean ok = Parser.this.apply(ctxt);
+        // Cuts only commit to the input consumed, so they don't survive a look-ahead.
+        ctxt.cut = cut;
         if (ok) ctxt.setAt(step, at);
         return ok;
       }
+      @Override Parser<T> rewrite(ParserOptimizer optimizer) {
+        return optimizer.optimize(Parser.this).peek();
+      }
       @Override public String toString() {
         return "peek";
       }
     };
   }
 
+  /**
+   * A {@link Parser} that runs {@code this} and then {@link Parsers#cut commits} to it: once
+   * {@code this} succeeds, a failure of what follows isn't backtracked out of by the enclosing
+   * {@link Parsers#or} or repetition.
+   *
+   * @since 3.2
+   */
+  public final Parser<T> commit() {
+    return new Parser<T>() {
+      @Override boolean apply(ParseContext ctxt) {
+        if (!Parser.this.apply(ctxt)) return false;
+        ctxt.cut = true;
+        return true;
+      }
+      @Override Parser<T> rewrite(ParserOptimizer optimizer) {
+        return optimizer.optimize(Parser.this).commit();
+      }
+      @Override CharPredicate firstChars() {
+        return Parser.this.firstChars();
+      }
+      @Override public String toString() {
+        return Parser.this.toString();
+      }
+    };
+  }
+
   /**
    * A {@link Parser} that undoes any partial match if {@code this} fails. In other words, the
    * parser either fully matches, or matches none.
@@ -420,6 +528,12 @@ public abstract class Parser<T> {
         else ctxt.setAt(step, at);
         return r;
       }
+      @Override Parser<T> rewrite(ParserOptimizer optimizer) {
+        return optimizer.optimize(Parser.this).atomic();
+      }
+      @Override CharPredicate firstChars() {
+        return Parser.this.firstChars();
+      }
       @Override public String toString() {
         return Parser.this.toString();
       }
@@ -458,13 +572,20 @@ public abstract class Parser<T> {
         final Object ret = ctxt.result;
         final int step = ctxt.step;
         final int at = ctxt.at;
-        if (ctxt.withErrorSuppressed(Parser.this)) {
+        final boolean cut = ctxt.cut;
+        boolean condition = ctxt.withErrorSuppressed(Parser.this);
+        ctxt.cut = cut;
+        if (condition) {
           Parser<? extends R> parser = consequence.apply(Parser.this.getReturn(ctxt));
           return parser.apply(ctxt);
         }
         ctxt.set(step, at, ret);
         return alternative.apply(ctxt);
       }
+      @Override Parser<R> rewrite(ParserOptimizer optimizer) {
+        return optimizer.optimize(Parser.this)
+            .ifelse(consequence, optimizer.optimize(alternative));
+      }
       @Override public String toString() {
         return "ifelse";
       }
@@ -483,6 +604,12 @@ public abstract class Parser<T> {
       @Override boolean apply(ParseContext ctxt) {
         return ctxt.applyNewNode(Parser.this, name);
       }
+      @Override Parser<T> rewrite(ParserOptimizer optimizer) {
+        return optimizer.optimize(Parser.this).label(name);
+      }
+      @Override CharPredicate firstChars() {
+        return Parser.this.firstChars();
+      }
       @Override public String toString() {
         return name;
       }
@@ -702,6 +829,12 @@ public abstract class Parser<T> {
         ctxt.result = token;
         return true;
       }
+      @Override Parser<Token> rewrite(ParserOptimizer optimizer) {
+        return optimizer.optimize(Parser.this).token();
+      }
+      @Override CharPredicate firstChars() {
+        return Parser.this.firstChars();
+      }
       @Override public String toString() {
         return Parser.this.toString();
       }
@@ -721,6 +854,12 @@ public abstract class Parser<T> {
         ctxt.result = ctxt.source.subSequence(begin, ctxt.getIndex()).toString();
         return true;
       }
+      @Override Parser<String> rewrite(ParserOptimizer optimizer) {
+        return optimizer.optimize(Parser.this).source();
+      }
+      @Override CharPredicate firstChars() {
+        return Parser.this.firstChars();
+      }
       @Override public String toString() {
         return "source";
       }
@@ -743,6 +882,9 @@ public abstract class Parser<T> {
         ctxt.result = withSource;
         return true;
       }
+      @Override Parser<WithSource<T>> rewrite(ParserOptimizer optimizer) {
+        return optimizer.optimize(Parser.this).withSource();
+      }
       @Override public String toString() {
         return Parser.this.toString();
       }
@@ -820,12 +962,63 @@ public abstract class Parser<T> {
       @Override boolean apply(ParseContext ctxt) {
         return ctxt.applyAsDelimiter(Parser.this);
       }
+      @Override Parser<T> rewrite(ParserOptimizer optimizer) {
+        return optimizer.optimize(Parser.this).asDelimiter();
+      }
       @Override public String toString() {
         return Parser.this.toString();
       }
     };
   }
 
+  /**
+   * Returns a {@link Parser} that parses the same input to the same result and errors as
+   * {@code this}, with the redundant structure that combinators leave behind removed:
+   *
+   * <ul>
+   * <li>Nested alternatives such as {@code or(or(a, b), c)} are flattened into one, and
+   *     alternatives after one that always succeeds, as in {@code p.optional(v)}, are dropped.
+   * <li>Nested sequences are flattened into one.
+   * <li>Adjacent scanners created from {@link org.jparsec.pattern.Pattern patterns}, such as
+   *     {@link Scanners#string} and {@link Scanners#isChar}, run as one pattern.
+   * <li>{@code p.map(f).map(g)} runs {@code f} and {@code g} in one step.
+   * <li>Nodes that parse the same way, such as repeated {@link Terminals#token(String)} calls
+   *     for the same operator, are shared.
+   * <li>{@link Parsers#anyOf} alternatives are frozen in the order they are tried in now, most
+   *     often matched recently first.
+   * </ul>
+   *
+   * <p>The grammar is walked through {@link Reference#lazy}, whose targets must all be
+   * {@link Reference#set set} by then; setting them afterwards has no effect on the optimized
+   * parser. Parsers computed during parsing, such as those returned by the function passed to
+   * {@link #next(Function)}, are run as they are.
+   *
+   * @since 3.2
+   */
+  public final Parser<T> optimize() {
+    return new ParserOptimizer(false).optimize(this);
+  }
+
+  /**
+   * Returns an {@link #optimize optimized} {@link Parser} in which each {@link Reference#lazy}
+   * parser is also replaced by a direct call to the optimized target of its reference, so
+   * recursion no longer reads the reference, an {@link AtomicReference}, on every call. That is
+   * all it does beyond {@link #optimize}: no code is generated, and the grammar is still run by
+   * the same combinator objects. Like the optimized parser, the compiled one parses to the same
+   * result and errors as {@code this}, and changing a reference afterwards has no effect on it.
+   *
+   * <p>Generating classes specialized to the grammar, through
+   * {@code MethodHandles.Lookup.defineHiddenClass}, would need Java 15, while jparsec runs on
+   * Java 8.
+   *
+   * <p>Compile a grammar once, after it's fully built, and reuse the result.
+   *
+   * @since 3.2
+   */
+  public final Parser<T> compile() {
+    return new Compiled<T>(new ParserOptimizer(true).optimize(this));
+  }
+
   /**
    * Parses {@code source}.
    */
@@ -853,7 +1046,221 @@ public abstract class Parser<T> {
    * @since 2.3
    */
   public final T parse(CharSequence source, Mode mode) {
-    return mode.run(this, source);
+    return mode.run(this, new ScannerState(Sources.normalize(source)));
+  }
+
+  /**
+   * Parses {@code source} under the given {@code mode}, recording at most {@code maxExpected}
+   * distinct expected items at the error location. The default is {@code 100}. A lower cap bounds
+   * the time and memory spent tracking errors when a wide {@link Parsers#or} or a retrying
+   * {@link #many} keeps failing at the same location on pathological input.
+   *
+   * @since 3.2
+   */
+  public final T parse(CharSequence source, Mode mode, int maxExpected) {
+    Checks.checkArgument(maxExpected > 0, "maxExpected (%s) must be positive", maxExpected);
+    ScannerState state = new ScannerState(Sources.normalize(source));
+    state.setMaxExpected(maxExpected);
+    return mode.run(this, state);
+  }
+
+  /**
+   * Parses {@code source} like {@link #parse(CharSequence)}, but reports a parse error in the
+   * returned {@link ParseResult} instead of throwing {@link ParserException}. Use it where input
+   * is often rejected: no exception is created, and the error location and message are only
+   * computed if asked for. Exceptions thrown by the grammar's own functions are still thrown,
+   * wrapped in {@link ParserException}.
+   *
+   * @since 3.2
+   */
+  public final ParseResult<T> tryParse(CharSequence source) {
+    return tryParse(source, Mode.PRODUCTION);
+  }
+
+  /**
+   * Parses {@code source} under the given {@code mode} like {@link #tryParse(CharSequence)}. In
+   * {@link Mode#DEBUG} mode, {@link ParseResult#getParseTree} has the parse tree.
+   *
+   * @since 3.2
+   */
+  public final ParseResult<T> tryParse(CharSequence source, Mode mode) {
+    return mode.tryRun(this, new ScannerState(Sources.normalize(source)));
+  }
+
+  /**
+   * Parses the beginning of {@code source}, as far as {@code this} matches, without requiring the
+   * rest of {@code source} to be matched. {@link ParseResult#getLength} tells how many characters
+   * were matched. Parse errors are reported as by {@link #tryParse(CharSequence)}.
+   *
+   * <p>Use it to sniff the header of a document, such as the {@code package} and {@code import}
+   * declarations of a Java file.
+   *
+   * @since 3.2
+   */
+  public final ParseResult<T> parsePrefix(CharSequence source) {
+    return new ScannerState(Sources.normalize(source)).tryRun(this);
+  }
+
+  /**
+   * Parses the beginning of the source read from {@code readable} like
+   * {@link #parsePrefix(CharSequence)}, reading no more of it than needed.
+   *
+   * <p>Characters are read in chunks, each as large as what's been read so far, and the prefix is
+   * parsed again after each chunk. Reading stops when {@code readable} is exhausted, or when the
+   * parser neither looked at the last character read nor stopped or failed within 1024 characters
+   * of it, so that its outcome can't depend on where the input was cut off. The margin is there
+   * because scanners such as {@code Scanners.string("abc")} fail without looking when fewer
+   * characters are left than they need. The result is the same as
+   * {@link #parsePrefix(CharSequence)} on all of the input, unless a scanner needs more than 1024
+   * characters to match. About twice as much as the parser looked at is read, and what's been
+   * read past the prefix is lost to the caller.
+   *
+   * @since 3.2
+   */
+  public final ParseResult<T> parsePrefix(Readable readable) throws IOException {
+    StringBuilder builder = new StringBuilder();
+    CharBuffer buf = CharBuffer.allocate(2048);
+    for (;;) {
+      boolean exhausted = read(readable, builder, buf, Math.max(buf.capacity(), builder.length()));
+      TrackingCharSequence source = new TrackingCharSequence(builder.toString());
+      ScannerState state = new ScannerState(source);
+      ParseResult<T> result = state.tryRun(this);
+      if (exhausted || !source.mayNeedMore(Math.max(state.getIndex(), state.errorIndex()))) {
+        return result;
+      }
+    }
+  }
+
+  /**
+   * Finds all the non-overlapping matches of {@code this} in {@code source}, from left to right,
+   * like {@link java.util.regex.Matcher#find} does for a regular expression. Each match is
+   * returned as a {@link Token} with its index, length and the result of {@code this}. As with
+   * regular expressions, a parser that can match the empty string finds an empty match wherever
+   * nothing longer matches.
+   *
+   * <p>Use it to pull the snippets that a grammar recognizes, such as embedded SQL statements, out
+   * of a larger text. Indices where {@code this} can't start, such as those of characters other
+   * than {@code 's'} for {@code Scanners.string("select")}, are skipped without running it.
+   *
+   * @since 3.2
+   */
+  public final List<Token> findAll(CharSequence source) {
+    Finder<T> finder = new Finder<T>(this, source);
+    List<Token> matches = new ArrayList<Token>();
+    while (finder.find()) {
+      matches.add(new Token(finder.start(), finder.end() - finder.start(), finder.value()));
+    }
+    return matches;
+  }
+
+  /**
+   * Returns {@code source} with each match of {@code this}, as found by
+   * {@link #findAll(CharSequence)}, replaced by what {@code replacement} returns for it. The text
+   * between matches is copied as it is.
+   *
+   * <p>Use it to rewrite a few constructs of a larger text, without building and printing a
+   * syntax tree for all of it.
+   *
+   * @since 3.2
+   */
+  public final String replaceAll(
+      CharSequence source, Function<? super WithSource<T>, ? extends CharSequence> replacement) {
+    StringBuilder builder = new StringBuilder(source.length());
+    try {
+      replaceAll(source, replacement, builder);
+    } catch (IOException e) {
+      throw new AssertionError("StringBuilder doesn't throw IOException", e);
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Writes {@code source} to {@code to} with each match of {@code this} replaced by what
+   * {@code replacement} returns for it, like {@link #replaceAll(CharSequence, Function)}. Only the
+   * matches are built into {@link WithSource} objects. The text between them goes straight to
+   * {@code to}, a chunk at a time.
+   *
+   * @since 3.2
+   */
+  public final void replaceAll(
+      CharSequence source, Function<? super WithSource<T>, ? extends CharSequence> replacement,
+      Appendable to) throws IOException {
+    Finder<T> finder = new Finder<T>(this, source);
+    CharSequence src = finder.source();
+    int copied = 0;
+    while (finder.find()) {
+      copy(src, copied, finder.start(), to);
+      String matched = src.subSequence(finder.start(), finder.end()).toString();
+      to.append(replacement.apply(new WithSource<T>(finder.value(), matched)));
+      copied = finder.end();
+    }
+    copy(src, copied, src.length(), to);
+  }
+
+  /**
+   * Parses the characters of {@code source} from index {@code from} (inclusive) to index
+   * {@code to} (exclusive), in place. The range must be matched up to {@code to}, as if it were
+   * the entire input. Error locations are relative to the whole {@code source}.
+   *
+   * <p>Use it to parse a field of a larger buffer, such as one line of a read buffer, without
+   * copying it first. Unlike {@link #parse(CharSequence)}, {@code source} is scanned as it is,
+   * even if it's a {@code StringBuilder} or {@code CharBuffer}.
+   *
+   * @since 3.2
+   */
+  public final T parse(CharSequence source, int from, int to) {
+    return parse(source, from, to, Origin.SOURCE);
+  }
+
+  /**
+   * Parses the characters of {@code source} from index {@code from} (inclusive) to index
+   * {@code to} (exclusive) like {@link #parse(CharSequence, int, int)}, with error locations
+   * relative to {@code origin}.
+   *
+   * @since 3.2
+   */
+  public final T parse(CharSequence source, int from, int to, Origin origin) {
+    checkRange(from, to, source.length());
+    ScannerState state = new ScannerState(
+        null, source, from, to, origin.locator(source, from, to), null);
+    return Mode.PRODUCTION.run(this, state);
+  }
+
+  /**
+   * Parses the tokens from index {@code from} (inclusive) to index {@code to} (exclusive) of
+   * {@code tokens} with {@code this} token-level parser. The tokens are typically returned by a
+   * {@link #lexer lexer} run once over {@code source}, which is used for error locations,
+   * relative to the whole {@code source}. The range must be matched up to {@code to}.
+   *
+   * @since 3.2
+   */
+  public final T parse(CharSequence source, List<Token> tokens, int from, int to) {
+    return parse(source, tokens, from, to, Origin.SOURCE);
+  }
+
+  /**
+   * Parses the tokens from index {@code from} (inclusive) to index {@code to} (exclusive) of
+   * {@code tokens} like {@link #parse(CharSequence, List, int, int)}, with error locations
+   * relative to {@code origin}. The range of the tokens in {@code source} starts at the first
+   * token and ends after the last one.
+   *
+   * @since 3.2
+   */
+  public final T parse(
+      CharSequence source, List<Token> tokens, int from, int to, Origin origin) {
+    checkRange(from, to, tokens.size());
+    Token[] input = tokens.subList(from, to).toArray(new Token[to - from]);
+    int end = input.length > 0
+        ? input[input.length - 1].index() + input[input.length - 1].length()
+        : from < tokens.size() ? tokens.get(from).index() : source.length();
+    int begin = input.length > 0 ? input[0].index() : end;
+    checkRange(begin, end, source.length());
+    // The tokens are fed to this parser as if they were lexed from the range, which has been
+    // consumed by the time it runs.
+    ScannerState state = new ScannerState(
+        null, source, end, end, origin.locator(source, begin, end), null);
+    return Mode.PRODUCTION.run(
+        Parsers.nested(Parsers.constant(input), followedBy(Parsers.EOF)), state);
   }
 
   /**
@@ -867,7 +1274,7 @@ public abstract class Parser<T> {
    * @since 2.3
    */
   public final ParseTree parseTree(CharSequence source) {
-    ScannerState state = new ScannerState(source);
+    ScannerState state = new ScannerState(Sources.normalize(source));
     state.enableTrace("root");
     state.run(this.followedBy(Parsers.EOF));
     return state.buildParseTree();
@@ -881,23 +1288,55 @@ public abstract class Parser<T> {
   public enum Mode {
     /** Default mode. Used for production. */
     PRODUCTION {
-      @Override <T> T run(Parser<T> parser, CharSequence source) {
-        return new ScannerState(source).run(parser.followedBy(Parsers.EOF));
-      }
+      @Override void prepare(ScannerState state) {}
     },
 
     /**
      * Debug mode. {@link ParserException#getParseTree} can be used to inspect partial parse result.
      */
     DEBUG {
-      @Override <T> T run(Parser<T> parser, CharSequence source) {
-        ScannerState state = new ScannerState(source);
+      @Override void prepare(ScannerState state) {
         state.enableTrace("root");
-        return state.run(parser.followedBy(Parsers.EOF));
       }
     }
     ;
-    abstract <T> T run(Parser<T> parser, CharSequence source);
+
+    abstract void prepare(ScannerState state);
+
+    final <T> T run(Parser<T> parser, ScannerState state) {
+      prepare(state);
+      return state.run(parser.followedBy(Parsers.EOF));
+    }
+
+    final <T> ParseResult<T> tryRun(Parser<T> parser, ScannerState state) {
+      prepare(state);
+      return state.tryRun(parser.followedBy(Parsers.EOF));
+    }
+  }
+
+  /**
+   * What the line and column numbers of errors are relative to, when parsing a range of the
+   * input with {@link Parser#parse(CharSequence, int, int, Origin)}.
+   *
+   * @since 3.2
+   */
+  public enum Origin {
+    /** Locations are in the whole source: the range starts wherever it is in the source. */
+    SOURCE {
+      @Override SourceLocator locator(CharSequence source, int from, int to) {
+        return SourceLocator.ofRangeInSource(source, from, to);
+      }
+    },
+
+    /** Locations are in the range: the range starts at line 1, column 1. */
+    RANGE {
+      @Override SourceLocator locator(CharSequence source, int from, int to) {
+        return SourceLocator.ofRange(source, from, to);
+      }
+    }
+    ;
+
+    abstract SourceLocator locator(CharSequence source, int from, int to);
   }
 
   /**
@@ -910,6 +1349,7 @@ public abstract class Parser<T> {
    */
   @Deprecated
   public final T parse(CharSequence source, String moduleName) {
+    source = Sources.normalize(source);
     return new ScannerState(moduleName, source, 0, new SourceLocator(source))
         .run(followedBy(Parsers.EOF));
   }
@@ -927,8 +1367,39 @@ public abstract class Parser<T> {
     return parse(read(readable), moduleName);
   }
   
+  private static void checkRange(int from, int to, int length) {
+    if (from < 0 || to > length || from > to) {
+      throw new IndexOutOfBoundsException(
+          "Range [" + from + ", " + to + ") out of bounds for length " + length);
+    }
+  }
+
   abstract boolean apply(ParseContext ctxt);
 
+  /**
+   * Returns the equivalent of {@code this} built from the {@link ParserOptimizer#optimize
+   * optimized} child parsers, or {@code this} if it has none.
+   */
+  Parser<T> rewrite(ParserOptimizer optimizer) {
+    return this;
+  }
+
+  /**
+   * Returns a predicate that the first character matched by {@code this} satisfies, or
+   * {@code null} if there's no telling, or if {@code this} can succeed without consuming input.
+   */
+  CharPredicate firstChars() {
+    return null;
+  }
+
+  /**
+   * Returns a key that equals the key of any other parser that parses the same way, or
+   * {@code null} if there's no telling.
+   */
+  Object shareKey() {
+    return null;
+  }
+
   /**
    * Copies all content from {@code from} to {@code to}.
    */
@@ -945,6 +1416,34 @@ public abstract class Parser<T> {
     return builder;
   }
 
+  /** Appends the characters of {@code src} from {@code begin} to {@code end} to {@code to}. */
+  private static void copy(CharSequence src, int begin, int end, Appendable to)
+      throws IOException {
+    if (begin == end) return;
+    if (src instanceof String && to instanceof Writer) {
+      // Writer.append() would copy the range into a new String first.
+      ((Writer) to).write((String) src, begin, end - begin);
+    } else {
+      to.append(src, begin, end);
+    }
+  }
+
+  /**
+   * Reads at least {@code count} characters from {@code from} into {@code builder}, using
+   * {@code buf}, unless {@code from} is exhausted first, in which case true is returned.
+   */
+  private static boolean read(Readable from, StringBuilder builder, CharBuffer buf, int count)
+      throws IOException {
+    for (int target = builder.length() + count; builder.length() < target; ) {
+      buf.clear();
+      int r = from.read(buf);
+      if (r == -1) return true;
+      buf.flip();
+      builder.append(buf, 0, r);
+    }
+    return false;
+  }
+
   @SuppressWarnings("unchecked")
   final T getReturn(ParseContext ctxt) {
     return (T) ctxt.result;
@@ -0,0 +1,70 @@
+/*****************************************************************************
+ * Copyright (C) jparsec.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package org.jparsec;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Walks a parser graph, including through {@link Parser.Reference#lazy}, and rebuilds it with
+ * each node {@link Parser#rewrite rewritten} and equivalent nodes shared.
+ */
+final class ParserOptimizer {
+  private final Map<Parser<?>, Parser<?>> optimized = new IdentityHashMap<Parser<?>, Parser<?>>();
+  private final Map<Object, Parser<?>> shared = new HashMap<Object, Parser<?>>();
+  private final boolean bindReferences;
+
+  ParserOptimizer(boolean bindReferences) {
+    this.bindReferences = bindReferences;
+  }
+
+  /**
+   * Whether {@link Parser.Reference#lazy} parsers are replaced by direct calls to their targets,
+   * as {@link Parser#compile} does, rather than by copies of the references.
+   */
+  boolean bindsReferences() {
+    return bindReferences;
+  }
+
+  /** Returns the optimized equivalent of {@code parser}. */
+  @SuppressWarnings("unchecked")
+  <T> Parser<T> optimize(Parser<T> parser) {
+    Parser<?> done = optimized.get(parser);
+    if (done != null) return (Parser<T>) done;
+    Parser<T> result = share(parser.rewrite(this));
+    optimized.put(parser, result);
+    return result;
+  }
+
+  /**
+   * Records {@code replacement} as the optimized {@code original} before its children are
+   * visited, so that cycles through {@code original} end at {@code replacement}.
+   */
+  <T> void replace(Parser<T> original, Parser<T> replacement) {
+    optimized.put(original, replacement);
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> Parser<T> share(Parser<T> parser) {
+    Object key = parser.shareKey();
+    if (key == null) return parser;
+    Parser<?> existing = shared.get(key);
+    if (existing != null) return (Parser<T>) existing;
+    shared.put(key, parser);
+    return parser;
+  }
+}
@@ -60,6 +60,10 @@ final class ParserState extends ParseContext {
     throw new IllegalStateException(USED_ON_TOKEN_INPUT);
   }
 
+  @Override int charactersEnd() {
+    throw new IllegalStateException(USED_ON_TOKEN_INPUT);
+  }
+
   @Override String getInputName(int pos) {
     if (pos >= input.length) return EOF;
     return input[pos].toString();
@@ -16,6 +16,7 @@
 package org.jparsec;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.function.BiFunction;
@@ -32,6 +33,7 @@ import org.jparsec.functors.Tuple4;
 import org.jparsec.functors.Tuple5;
 import org.jparsec.internal.annotations.Private;
 import org.jparsec.internal.util.Lists;
+import org.jparsec.pattern.CharPredicate;
 
 /**
  * Provides common {@link Parser} implementations.
@@ -119,6 +121,40 @@ public final class Parsers {
     return NEVER;
   }
 
+  /**
+   * A {@link Parser} that consumes no input and commits to the alternative it is part of. If
+   * anything after the cut fails, the enclosing {@link #or} alternatives, {@link Parser#optional},
+   * {@link Parser#many} and other repetitions fail too instead of backtracking, and the error is
+   * reported where the failure happened. For example, once {@code select} is seen nothing else
+   * needs to be tried: <pre>   {@code
+   *   Parsers.or(
+   *       Parsers.sequence(term("select"), Parsers.cut(), selectBody),
+   *       Parsers.sequence(term("insert"), Parsers.cut(), insertBody));
+   * }</pre>
+   *
+   * <p>The cut only lasts until the alternative or repetition step it is part of succeeds: a
+   * failure after that backtracks as usual. In {@link #longest} and {@link #shortest}, an
+   * alternative that fails after a cut stops the ones after it from being tried, but the best
+   * match among those before it, if any, is still the result. A cut in the look-ahead of {@link Parser#peek},
+   * {@link Parser#not} or the condition of {@link Parser#ifelse} only applies within it.
+   *
+   * @since 3.2
+   */
+  public static Parser<Void> cut() {
+    return CUT;
+  }
+
+  private static final Parser<Void> CUT = new Parser<Void>() {
+    @Override boolean apply(ParseContext ctxt) {
+      ctxt.cut = true;
+      ctxt.result = null;
+      return true;
+    }
+    @Override public String toString() {
+      return "cut";
+    }
+  };
+
   /** A {@link Parser} that succeeds only if EOF is met. Fails with {@code message} otherwise. */
   static Parser<?> eof(final String message) {
     return new Parser<Object>() {
@@ -183,14 +219,25 @@ public final class Parsers {
   static <T> Parser<T> nested(final Parser<Token[]> lexer, final Parser<? extends T> parser) {
     return new Parser<T>() {
       @Override boolean apply(ParseContext ctxt) {
-        if (!lexer.apply(ctxt)) return false;
+        Object event = ParseEvents.beginLex();
+        int begin = ctxt.getIndex();
+        if (!lexer.apply(ctxt)) {
+          ParseEvents.endLex(event, ctxt.getIndex() - begin, 0, false);
+          return false;
+        }
         Token[] tokens = lexer.getReturn(ctxt);
+        ParseEvents.endLex(event, ctxt.getIndex() - begin, tokens.length, true);
+        ctxt.tokenCount += tokens.length;
         ParserState parserState = new ParserState(
             ctxt.module, ctxt.source, tokens, 0, ctxt.locator, ctxt.getIndex(), tokens);
         ctxt.getTrace().startFresh(parserState);
         return ctxt.applyNested(parser, parserState);
       }
       
+      @Override Parser<T> rewrite(ParserOptimizer optimizer) {
+        return nested(optimizer.optimize(lexer), optimizer.optimize(parser));
+      }
+      
       @Override public String toString() {
         return parser.toString();
       }
@@ -201,15 +248,7 @@ public final class Parsers {
 
   /** A {@link Parser} that always returns {@code v} regardless of input. */
   public static <T> Parser<T> constant(final T v) {
-    return new Parser<T>() {
-      @Override boolean apply(ParseContext ctxt) {
-        ctxt.result = v;
-        return true;
-      }
-      @Override public String toString() {
-        return String.valueOf(v);
-      }
-    };
+    return new ConstantParser<T>(v);
   }
 
   /**
@@ -217,25 +256,24 @@ public final class Parsers {
    * if it succeeds, {@code p2} is executed.
    */
   public static <T> Parser<T> sequence(Parser<?> p1, Parser<T> p2) {
-    return sequence(p1, p2, InternalFunctors.<Object, T>lastOfTwo());
+    return new SequenceParser<T>(p1, p2);
   }
 
   /** A {@link Parser} that runs 3 parser objects sequentially. */
   public static <T> Parser<T> sequence(Parser<?> p1, Parser<?> p2, Parser<T> p3) {
-    return sequence(p1, p2, p3, InternalFunctors.<Object, Object, T>lastOfThree());
+    return new SequenceParser<T>(p1, p2, p3);
   }
 
   /** A {@link Parser} that runs 4 parser objects sequentially. */
   public static <T> Parser<T> sequence(
       Parser<?> p1, Parser<?> p2, Parser<?> p3, Parser<T> p4) {
-    return sequence(p1, p2, p3, p4, InternalFunctors.<Object, Object, Object, T>lastOfFour());
+    return new SequenceParser<T>(p1, p2, p3, p4);
   }
 
   /** A {@link Parser} that runs 5 parser objects sequentially. */
   public static <T> Parser<T> sequence(
       Parser<?> p1, Parser<?> p2, Parser<?> p3, Parser<?> p4, Parser<T> p5) {
-    return sequence(p1, p2, p3, p4, p5,
-        InternalFunctors.<Object, Object, Object, Object, T>lastOfFive());
+    return new SequenceParser<T>(p1, p2, p3, p4, p5);
   }
 
   /**
@@ -315,6 +353,14 @@ public final class Parsers {
         return true;
       }
       
+      @Override Parser<Object[]> rewrite(ParserOptimizer optimizer) {
+        Parser<?>[] optimized = new Parser<?>[parsers.length];
+        for (int i = 0; i < parsers.length; i++) {
+          optimized[i] = optimizer.optimize(parsers[i]);
+        }
+        return array(optimized);
+      }
+      
       @Override public String toString() {
         return "array";
       }
@@ -338,6 +384,14 @@ public final class Parsers {
         return true;
       }
       
+      @Override Parser<List<T>> rewrite(ParserOptimizer optimizer) {
+        List<Parser<? extends T>> optimized = Lists.arrayList(array.length);
+        for (Parser<? extends T> parser : array) {
+          optimized.add(optimizer.optimize(parser));
+        }
+        return list(optimized);
+      }
+      
       @Override public String toString() {
         return "list";
       }
@@ -369,6 +423,12 @@ public final class Parsers {
         ctxt.result = map.apply(o1, o2);
         return true;
       }
+      @Override Parser<T> rewrite(ParserOptimizer optimizer) {
+        return sequence(optimizer.optimize(p1), optimizer.optimize(p2), map);
+      }
+      @Override CharPredicate firstChars() {
+        return p1.firstChars();
+      }
       @Override public String toString() {
         return map.toString();
       }
@@ -396,6 +456,14 @@ public final class Parsers {
         ctxt.result = map.map(o1, o2, o3);
         return true;
       }
+      @Override Parser<T> rewrite(ParserOptimizer optimizer) {
+        return sequence(
+            optimizer.optimize(p1), optimizer.optimize(p2),
+            optimizer.optimize(p3), map);
+      }
+      @Override CharPredicate firstChars() {
+        return p1.firstChars();
+      }
       @Override public String toString() {
         return map.toString();
       }
@@ -426,6 +494,14 @@ public final class Parsers {
         ctxt.result = map.map(o1, o2, o3, o4);
         return true;
       }
+      @Override Parser<T> rewrite(ParserOptimizer optimizer) {
+        return sequence(
+            optimizer.optimize(p1), optimizer.optimize(p2),
+            optimizer.optimize(p3), optimizer.optimize(p4), map);
+      }
+      @Override CharPredicate firstChars() {
+        return p1.firstChars();
+      }
       @Override public String toString() {
         return map.toString();
       }
@@ -459,6 +535,14 @@ public final class Parsers {
         ctxt.result = map.map(o1, o2, o3, o4, o5);
         return true;
       }
+      @Override Parser<T> rewrite(ParserOptimizer optimizer) {
+        return sequence(
+            optimizer.optimize(p1), optimizer.optimize(p2), optimizer.optimize(p3),
+            optimizer.optimize(p4), optimizer.optimize(p5), map);
+      }
+      @Override CharPredicate firstChars() {
+        return p1.firstChars();
+      }
       @Override public String toString() {
         return map.toString();
       }
@@ -498,6 +582,14 @@ public final class Parsers {
         ctxt.result = map.map(o1, o2, o3, o4, o5, o6);
         return true;
       }
+      @Override Parser<T> rewrite(ParserOptimizer optimizer) {
+        return sequence(
+            optimizer.optimize(p1), optimizer.optimize(p2), optimizer.optimize(p3),
+            optimizer.optimize(p4), optimizer.optimize(p5), optimizer.optimize(p6), map);
+      }
+      @Override CharPredicate firstChars() {
+        return p1.firstChars();
+      }
       @Override public String toString() {
         return map.toString();
       }
@@ -540,6 +632,14 @@ public final class Parsers {
         ctxt.result = map.map(o1, o2, o3, o4, o5, o6, o7);
         return true;
       }
+      @Override Parser<T> rewrite(ParserOptimizer optimizer) {
+        return sequence(
+            optimizer.optimize(p1), optimizer.optimize(p2), optimizer.optimize(p3), optimizer.optimize(p4),
+            optimizer.optimize(p5), optimizer.optimize(p6), optimizer.optimize(p7), map);
+      }
+      @Override CharPredicate firstChars() {
+        return p1.firstChars();
+      }
       @Override public String toString() {
         return map.toString();
       }
@@ -585,6 +685,14 @@ public final class Parsers {
         ctxt.result = map.map(o1, o2, o3, o4, o5, o6, o7, o8);
         return true;
       }
+      @Override Parser<T> rewrite(ParserOptimizer optimizer) {
+        return sequence(
+            optimizer.optimize(p1), optimizer.optimize(p2), optimizer.optimize(p3), optimizer.optimize(p4),
+            optimizer.optimize(p5), optimizer.optimize(p6), optimizer.optimize(p7), optimizer.optimize(p8), map);
+      }
+      @Override CharPredicate firstChars() {
+        return p1.firstChars();
+      }
       @Override public String toString() {
         return map.toString();
       }
@@ -593,17 +701,7 @@ public final class Parsers {
   
   /** A {@link Parser} that runs {@code parsers} sequentially and discards the return values. */
   public static Parser<Object> sequence(final Parser<?>... parsers) {
-    return new Parser<Object>() {
-      @Override boolean apply(ParseContext ctxt) {
-        for (Parser<?> p : parsers) {
-          if (!p.apply(ctxt)) return false;
-        }
-        return true;
-      }
-      @Override public String toString() {
-        return "sequence";
-      }
-    };
+    return new SequenceParser<Object>(parsers);
   }
   
   /** A {@link Parser} that runs {@code parsers} sequentially and discards the return values. */
@@ -700,23 +798,7 @@ public final class Parsers {
   public static <T> Parser<T> or(final Parser<? extends T>... alternatives) {
     if (alternatives.length == 0) return never();
     if (alternatives.length == 1) return alternatives[0].cast();
-    return new Parser<T>() {
-      @Override boolean apply(ParseContext ctxt) {
-        final Object result = ctxt.result;
-        final int at = ctxt.at;
-        final int step = ctxt.step;
-        for(Parser<? extends T> p : alternatives) {
-          if (p.apply(ctxt)) {
-            return true;
-          }
-          ctxt.set(step, at, result);
-        }
-        return false;
-      }
-      @Override public String toString() {
-        return "or";
-      }
-    };
+    return new OrParser<T>(alternatives);
   }
   
   /**
@@ -726,6 +808,37 @@ public final class Parsers {
     return or(toArray(alternatives));
   }
   
+  /**
+   * A {@link Parser} that tries each of {@code alternatives}, which the caller declares
+   * order-independent: at most one of them matches any input, like statements that each start
+   * with a different keyword. It parses the same as {@link #or(Parser[])}, but tries the
+   * alternatives that matched most often recently first: every 1024 matches, they are sorted by
+   * how often each of them matched since the previous sort.
+   *
+   * <p>{@link Parser#optimize} freezes the current order, after which it no longer changes. Warm
+   * the grammar up on representative input before optimizing it to freeze a useful order. Which
+   * alternatives are listed as expected in an error message, and in what order, can depend on
+   * the order they are tried in.
+   *
+   * @since 3.2
+   */
+  @SafeVarargs
+  public static <T> Parser<T> anyOf(Parser<? extends T>... alternatives) {
+    if (alternatives.length == 0) return never();
+    if (alternatives.length == 1) return alternatives[0].cast();
+    return new AnyOfParser<T>(alternatives);
+  }
+
+  /**
+   * A {@link Parser} that tries each of {@code alternatives}, declared order-independent, like
+   * {@link #anyOf(Parser[])}.
+   *
+   * @since 3.2
+   */
+  public static <T> Parser<T> anyOf(Iterable<? extends Parser<? extends T>> alternatives) {
+    return anyOf(toArray(alternatives));
+  }
+
   /** Allows the overloads of "or()" to call the varargs version of "or" with no ambiguity. */
   private static Parser<Object> alt(Parser<?>... alternatives) {
     return or(alternatives);
@@ -838,6 +951,10 @@ public final class Parsers {
         return true;
       }
       
+      @Override Object shareKey() {
+        return Arrays.asList(getClass(), fromToken);
+      }
+      
       @Override public String toString() {
         return fromToken.toString();
       }
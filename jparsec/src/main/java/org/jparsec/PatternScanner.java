@@ -0,0 +1,70 @@
+/*****************************************************************************
+ * Copyright (C) jparsec.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package org.jparsec;
+
+import java.util.Arrays;
+
+import org.jparsec.pattern.CharPredicate;
+import org.jparsec.pattern.Pattern;
+
+/**
+ * A scanner that matches a {@link Pattern} and reports {@code name} as missing if it doesn't.
+ * Adjacent ones in a sequence are fused by {@link Parser#optimize}.
+ */
+class PatternScanner extends Parser<Void> {
+  final Pattern pattern;
+  final String name;
+  private final CharPredicate firstChars;
+
+  PatternScanner(Pattern pattern, String name) {
+    this(pattern, name, null);
+  }
+
+  /**
+   * @param firstChars what the first matched character satisfies, or {@code null} if unknown or
+   *        {@code pattern} can match empty.
+   */
+  PatternScanner(Pattern pattern, String name, CharPredicate firstChars) {
+    this.pattern = pattern;
+    this.name = name;
+    this.firstChars = firstChars;
+  }
+
+  @Override boolean apply(ParseContext ctxt) {
+    int at = ctxt.at;
+    CharSequence src = ctxt.characters();
+    int matchLength = pattern.match(src, at, ctxt.charactersEnd());
+    if (matchLength < 0) {
+      ctxt.missing(name);
+      return false;
+    }
+    ctxt.next(matchLength);
+    ctxt.result = null;
+    return true;
+  }
+
+  @Override CharPredicate firstChars() {
+    return firstChars;
+  }
+
+  @Override Object shareKey() {
+    return Arrays.asList(getClass(), pattern, name);
+  }
+
+  @Override public String toString() {
+    return name;
+  }
+}
@@ -15,6 +15,9 @@
  *****************************************************************************/
 package org.jparsec;
 
+import org.jparsec.internal.util.Checks;
+import org.jparsec.pattern.CharPredicate;
+
 /**
  * A parser that first consumes the start and end, and then
  * tries to consume the middle. Useful when the end terminator
@@ -28,6 +31,15 @@ final class ReluctantBetweenParser<T> extends Parser<T> {
 	private final Parser<T> between;
 	private final Parser<?> end;
 
+	/** Marks {@link #endFirstChars} as not computed yet, as null means they're unknown. */
+	private static final CharPredicate NOT_COMPUTED = c -> true;
+
+	/**
+	 * {@code end.firstChars()}, computed on the first parse, once the references in {@code end} are
+	 * set. Threads racing to compute it get the same value.
+	 */
+	private CharPredicate endFirstChars = NOT_COMPUTED;
+
  ReluctantBetweenParser(Parser<?> start, Parser<T> between, Parser<?> end) {
 		this.start = start;
 		this.between = between;
@@ -36,27 +48,45 @@ final class ReluctantBetweenParser<T> extends Parser<T> {
 	
 	@Override
 	boolean apply(ParseContext ctxt) {
+		Checks.checkState(ctxt instanceof ScannerState, "reluctantBetween() is a character-level parser");
 		if (!start.apply(ctxt)) return false;
 		int betweenAt = ctxt.at;
-		
-		// try to match the end of the sequence beginning from the very end giving a chance to empty parser to be matched
-		// (see https://github.com/abailly/jparsec/issues/25)
-		ctxt.at = ctxt.source.length();
-		boolean r2 = end.apply(ctxt);
-		int endAt = ctxt.at;
-		while ( !r2 && ctxt.at >=betweenAt ) {
-      ctxt.at--;
-      endAt = ctxt.at;
-			r2 = end.apply(ctxt);
+		int betweenStep = ctxt.step;
+		int endAt = matchLastEnd(ctxt, betweenAt);
+		if (endAt < 0) {
+			// Report why "end" doesn't match at the end of input, where the search started.
+			ctxt.at = ctxt.charactersEnd();
+			end.apply(ctxt);
+			return false;
 		}
-		if (!r2) return false;
-		ParseContext betweenCtxt = new ScannerState(ctxt.module, ctxt.source, betweenAt, endAt, ctxt.locator, ctxt.result );
-		boolean rb = between.apply(betweenCtxt);
-		
-		if ( ! rb ) return false;
-		
-		ctxt.result = between.getReturn(betweenCtxt);
+		int endStep = ctxt.step;
+		int afterEnd = ctxt.at;
+		ctxt.setAt(betweenStep, betweenAt);
+		if (!((ScannerState) ctxt).applyBefore(endAt, between)) return false;
+		ctxt.setAt(endStep, afterEnd);
 		return true;
 	}
-	
+
+	/**
+	 * Matches {@code end} at the last possible index from {@code from} on and returns the index, or
+	 * -1 if there's none. Trying from the end of input backwards (see
+	 * https://github.com/abailly/jparsec/issues/25), the first match is the last one. Indices where
+	 * the character can't start {@code end} are skipped without running it.
+	 */
+	private int matchLastEnd(ParseContext ctxt, int from) {
+		CharSequence src = ctxt.characters();
+		int length = ctxt.charactersEnd();
+		CharPredicate first = endFirstChars;
+		if (first == NOT_COMPUTED) {
+			first = end.firstChars();
+			endFirstChars = first;
+		}
+		int step = ctxt.step;
+		for (int i = length; i >= from; i--) {
+			if (first != null && (i == length || !first.isChar(src.charAt(i)))) continue;
+			ctxt.setAt(step, i);
+			if (ctxt.withErrorSuppressed(end)) return i;
+		}
+		return -1;
+	}
 }
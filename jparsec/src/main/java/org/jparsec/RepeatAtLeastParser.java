@@ -18,6 +18,8 @@ package org.jparsec;
 import java.util.Collection;
 import java.util.List;
 
+import org.jparsec.pattern.CharPredicate;
+
 final class RepeatAtLeastParser<T> extends Parser<List<T>> {
   private final Parser<? extends T> parser;
   private final int min;
@@ -44,6 +46,14 @@ final class RepeatAtLeastParser<T> extends Parser<List<T>> {
     return false;
   }
   
+  @Override Parser<List<T>> rewrite(ParserOptimizer optimizer) {
+    return new RepeatAtLeastParser<T>(optimizer.optimize(parser), min, listFactory);
+  }
+
+  @Override CharPredicate firstChars() {
+    return min > 0 ? parser.firstChars() : null;
+  }
+
   @Override public String toString() {
     return "atLeast";
   }
@@ -51,11 +61,16 @@ final class RepeatAtLeastParser<T> extends Parser<List<T>> {
   private boolean applyMany(ParseContext ctxt, Collection<T> collection) {
     int physical = ctxt.at;
     int logical = ctxt.step;
+    boolean cut = ctxt.cut;
     for (;;logical = ctxt.step) {
+      ctxt.cut = false;
       if (!parser.apply(ctxt)) {
+        if (ctxt.cut) return false;
+        ctxt.cut = cut;
         ctxt.setAt(logical, physical);
         return true;
       }
+      ctxt.cut = cut;
       int at2 = ctxt.at;
       if (physical == at2) return true;
       physical = at2;
@@ -47,18 +47,27 @@ final class RepeatTimesParser<T> extends Parser<List<T>> {
     return false;
   }
   
+  @Override Parser<List<T>> rewrite(ParserOptimizer optimizer) {
+    return new RepeatTimesParser<T>(optimizer.optimize(parser), min, max, listFactory);
+  }
+
   @Override public String toString() {
     return "times";
   }
 
   private boolean repeatAtMost(int times, Collection<T> collection, ParseContext ctxt) {
+    boolean cut = ctxt.cut;
     for (int i = 0; i < times; i++) {
       int physical = ctxt.at;
       int logical = ctxt.step;
+      ctxt.cut = false;
       if (!parser.apply(ctxt)) {
+        if (ctxt.cut) return false;
+        ctxt.cut = cut;
         ctxt.setAt(logical, physical);
         return true;
       }
+      ctxt.cut = cut;
       collection.add(parser.getReturn(ctxt));
     }
     return true;
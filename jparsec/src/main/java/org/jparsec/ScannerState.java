@@ -23,7 +23,10 @@ import org.jparsec.error.ParserException;
  * @author Ben Yu
  */
 final class ScannerState extends ParseContext {
-  private final int end;
+  private int end;
+
+  /** {@code source} if it's a {@code String}, so that {@link #peekChar} can skip the interface. */
+  private final String string;
   
   ScannerState(CharSequence source) {
     this(null, source, 0, new SourceLocator(source));
@@ -32,6 +35,7 @@ final class ScannerState extends ParseContext {
   ScannerState(String module, CharSequence source, int from, SourceLocator locator) {
     super(source, from, module, locator);
     this.end = source.length();
+    this.string = asString(source);
   }
   
   /**
@@ -46,10 +50,22 @@ final class ScannerState extends ParseContext {
       SourceLocator locator, Object originalResult) {
     super(source, originalResult, from, module, locator);
     this.end = end;
+    this.string = asString(source);
+  }
+  
+  /** Applies {@code parser} as if the input ended at {@code index}. */
+  boolean applyBefore(int index, Parser<?> parser) {
+    int oldEnd = end;
+    end = index;
+    try {
+      return parser.apply(this);
+    } finally {
+      end = oldEnd;
+    }
   }
   
   @Override char peekChar() {
-    return source.charAt(at);
+    return string == null ? source.charAt(at) : string.charAt(at);
   }
   
   @Override boolean isEof() {
@@ -69,33 +85,105 @@ final class ScannerState extends ParseContext {
     return source;
   }
 
+  @Override int charactersEnd() {
+    return end;
+  }
+
   @Override Token getToken() {
     throw new IllegalStateException("Parser not on token level");
   }
 
   final <T> T run(Parser<T> parser) {
-    if (!applyWithExceptionWrapped(parser)) {
-      @SuppressWarnings("deprecation")
-      ParserException exception =  new ParserException(
-          renderError(), module, locator.locate(errorIndex()));
-      exception.setParseTree(buildErrorParseTree());
-      throw exception;
-    }
+    if (!runParser(parser)) throw toParserException();
     return parser.getReturn(this);
   }
 
-  private boolean applyWithExceptionWrapped(Parser<?> parser) {
+  /** Like {@link #run}, but returns the failure instead of throwing {@link ParserException}. */
+  final <T> ParseResult<T> tryRun(Parser<T> parser) {
+    if (!runParser(parser)) return ParseResult.failure(this);
+    return ParseResult.success(parser.getReturn(this), getIndex(), isTraced() ? this : null);
+  }
+
+  /** The exception that {@link #run} throws for the current error. */
+  final ParserException toParserException() {
+    @SuppressWarnings("deprecation")
+    ParserException exception =  new ParserException(
+        renderError(), module, locator.locate(errorIndex()));
+    exception.setParseTree(buildErrorParseTree());
+    return exception;
+  }
+
+  private boolean runParser(Parser<?> parser) {
+    Object event = ParseEvents.beginParse();
+    setRuleEvents(ParseEvents.isSlowRuleEnabled());
+    boolean success = false;
     try {
-      return parser.apply(this);
+      success = applyOrStartOver(parser);
+      return success;
+    } finally {
+      stopDeepRecursion();
+      ParseEvents.endParse(event, end, modeName(), tokenCount, success,
+          success ? -1 : errorIndex());
+    }
+  }
+
+  private String modeName() {
+    if (isProfiled()) return "PROFILE";
+    return isTraced() ? Parser.Mode.DEBUG.name() : Parser.Mode.PRODUCTION.name();
+  }
+
+  private static String asString(CharSequence source) {
+    return source instanceof String ? (String) source : null;
+  }
+
+  /**
+   * Applies {@code parser} at {@code index} without recording errors, to search the input for
+   * where it matches.
+   */
+  final boolean matchesAt(int index, Parser<?> parser) {
+    set(step, index, null);
+    return applyWithExceptionWrapped(parser, true);
+  }
+
+  /**
+   * Applies {@code parser} on this thread, or if it nests too deeply for this thread, starts over
+   * on a {@link DeepRecursion} thread and finishes the parse there.
+   */
+  private boolean applyOrStartOver(Parser<?> parser) {
+    int from = at;
+    int fromStep = step;
+    Object fromResult = result;
+    canStartOver = deepRecursion == null;
+    try {
+      return applyWithExceptionWrapped(parser, false);
+    } catch (DeepRecursion.StartOver e) {
+      startOver(fromStep, from, fromResult);
+    } finally {
+      canStartOver = false;
+    }
+    try {
+      return DeepRecursion.startOver(parser, this);
     } catch (RuntimeException e) {
-      if (e instanceof ParserException) throw (ParserException) e;
-      @SuppressWarnings("deprecation")
-      ParserException wrapper =
-          new ParserException(e, null, module, locator.locate(getIndex()));
-      // Use the successful parse tree because we are interrupted abruptly by an exception
-      // So no need to take the "farthest error path".
-      wrapper.setParseTree(buildParseTree());
-      throw wrapper;
+      throw wrap(e);
     }
   }
+
+  private boolean applyWithExceptionWrapped(Parser<?> parser, boolean errorSuppressed) {
+    try {
+      return errorSuppressed ? withErrorSuppressed(parser) : parser.apply(this);
+    } catch (RuntimeException e) {
+      throw wrap(e);
+    }
+  }
+
+  private ParserException wrap(RuntimeException e) {
+    if (e instanceof ParserException) return (ParserException) e;
+    @SuppressWarnings("deprecation")
+    ParserException wrapper =
+        new ParserException(e, null, module, locator.locate(getIndex()));
+    // Use the successful parse tree because we are interrupted abruptly by an exception
+    // So no need to take the "farthest error path".
+    wrapper.setParseTree(buildParseTree());
+    return wrapper;
+  }
 }
@@ -66,20 +66,15 @@ public final class Scanners {
   /** Scanner for haskell style line comment. ({@code --}) */
   public static final Parser<Void> HASKELL_LINE_COMMENT = lineComment("--");
   
-  private static final Parser<Void> JAVA_BLOCK_COMMENTED =
-      notChar2('*', '/').many().toScanner("commented block");
-  
   /** Scanner for c++/java style block comment. */
-  public static final Parser<Void> JAVA_BLOCK_COMMENT =
-      Parsers.sequence(string("/*"), JAVA_BLOCK_COMMENTED, string("*/"));
+  public static final Parser<Void> JAVA_BLOCK_COMMENT = new BlockCommentScanner("/*", "*/", false);
   
   /** Scanner for SQL style block comment. */
-  public static final Parser<Void> SQL_BLOCK_COMMENT =
-      Parsers.sequence(string("/*"), JAVA_BLOCK_COMMENTED, string("*/"));
+  public static final Parser<Void> SQL_BLOCK_COMMENT = new BlockCommentScanner("/*", "*/", false);
   
   /** Scanner for haskell style block comment. {- -} */
-  public static final Parser<Void> HASKELL_BLOCK_COMMENT = Parsers.sequence(
-      string("{-"), notChar2('-', '}').many().toScanner("commented block"), string("-}"));
+  public static final Parser<Void> HASKELL_BLOCK_COMMENT =
+      new BlockCommentScanner("{-", "-}", false);
   
   /**
    * Scanner with a pattern for SQL style string literal. A SQL string literal
@@ -107,22 +102,19 @@ public final class Scanners {
    * Scanner for the c++/java style delimiter of tokens. For example,
    * whitespaces, line comment and block comment.
    */
-  public static final Parser<Void> JAVA_DELIMITER =
-      Parsers.or(WHITESPACES, JAVA_LINE_COMMENT, JAVA_BLOCK_COMMENT).skipMany();
+  public static final Parser<Void> JAVA_DELIMITER = new DelimiterScanner("//", "/*", "*/");
   
   /**
    * Scanner for the haskell style delimiter of tokens. For example,
    * whitespaces, line comment and block comment.
    */
-  public static final Parser<Void> HASKELL_DELIMITER = 
-      Parsers.or(WHITESPACES, HASKELL_LINE_COMMENT, HASKELL_BLOCK_COMMENT).skipMany();
+  public static final Parser<Void> HASKELL_DELIMITER = new DelimiterScanner("--", "{-", "-}");
   
   /**
    * Scanner for the SQL style delimiter of tokens. For example, whitespaces and
    * line comment.
    */
-  public static final Parser<Void> SQL_DELIMITER =
-      Parsers.or(WHITESPACES, SQL_LINE_COMMENT, SQL_BLOCK_COMMENT).skipMany();
+  public static final Parser<Void> SQL_DELIMITER = new DelimiterScanner("--", "/*", "*/");
   
   /**
    * Scanner for a regular identifier, that starts with either
@@ -159,7 +151,7 @@ public final class Scanners {
    * @return the Parser object.
    */
   public static Parser<Void> many(CharPredicate predicate) {
-    return Patterns.isChar(predicate).many().toScanner(predicate + "*");
+    return Patterns.many(predicate).toScanner(predicate + "*");
   }
   
   /**
@@ -169,7 +161,7 @@ public final class Scanners {
    * @return the Parser object.
    */
   public static Parser<Void> many1(CharPredicate predicate) {
-    return Patterns.many1(predicate).toScanner(predicate + "+");
+    return new PatternScanner(Patterns.many1(predicate), predicate + "+", predicate);
   }
   
   /**
@@ -205,7 +197,8 @@ public final class Scanners {
    * @return the scanner.
    */
   public static Parser<Void> string(String str) {
-    return Patterns.string(str).toScanner(str);
+    if (str.isEmpty()) return Patterns.string(str).toScanner(str);
+    return new PatternScanner(Patterns.string(str), str, CharPredicates.isChar(str.charAt(0)));
   }
   
   /**
@@ -231,25 +224,10 @@ public final class Scanners {
    */
   @Deprecated
   public static Parser<Void> pattern(final Pattern pattern, final String name) {
-    return new Parser<Void>() {
-      @Override boolean apply(final ParseContext ctxt) {
-        int at = ctxt.at;
-        CharSequence src = ctxt.characters();
-        int matchLength = pattern.match(src, at, src.length());
-        if (matchLength < 0) {
-          ctxt.missing(name);
-          return false;
-        }
-        ctxt.next(matchLength);
-        ctxt.result = null;
-        return true;
-      }
-      @Override public String toString() {
-        return name;
-      }
-    };
+    return new PatternScanner(pattern, name);
   }
 
+
   /**
    * A scanner that matches the input against the specified string case insensitively.
    * 
@@ -280,9 +258,7 @@ public final class Scanners {
    * @return the scanner.
    */
   public static Parser<Void> isChar(final CharPredicate predicate) {
-    return new Parser<Void>() {
-      final String name = predicate.toString();
-
+    return new PatternScanner(Patterns.isChar(predicate), predicate.toString(), predicate) {
       @Override boolean apply(ParseContext ctxt) {
         if (ctxt.isEof()) {
           ctxt.missing(name);
@@ -297,12 +273,9 @@ public final class Scanners {
         ctxt.missing(name);
         return false;
       }
-
-      @Override public String toString() {
-        return name;
-      }
     };
   }
+
   
   /**
    * A scanner that succeeds and consumes the current character if it satisfies the given
@@ -429,8 +402,7 @@ public final class Scanners {
    * {@code end}.
    */
   public static Parser<Void> blockComment(String begin, String end) {
-    Pattern opening = Patterns.string(begin).next(Patterns.notString(end).many());
-    return opening.toScanner(begin).next(string(end));
+    return new BlockCommentScanner(begin, end, false);
   }
   
   /**
@@ -470,7 +442,11 @@ public final class Scanners {
    * @return the block comment scanner.
    */
   public static Parser<Void> nestableBlockComment(String begin, String end) {
-    return nestableBlockComment(begin, end, Patterns.isChar(CharPredicates.ALWAYS));
+    if (begin.isEmpty() || end.isEmpty()) {
+      // Let the generic scanner report the quote that doesn't consume input.
+      return nestableBlockComment(begin, end, Patterns.isChar(CharPredicates.ALWAYS));
+    }
+    return new BlockCommentScanner(begin, end, true);
   }
   
   /**
@@ -549,23 +525,6 @@ public final class Scanners {
     };
   }
   
-  /**
-   * Matches a character if the input has at least 1 character, or if the input has at least 2
-   * characters with the first 2 characters not being {@code c1} and {@code c2}.
-   * 
-   * @return the Pattern object.
-   */
-  private static Pattern notChar2(final char c1, final char c2) {
-    return new Pattern() {
-      @Override public int match(CharSequence src, int begin, int end) {
-        if (begin == end - 1) return 1;
-        if (begin >= end) return MISMATCH;
-        if (src.charAt(begin) == c1 && src.charAt(begin + 1) == c2) return Pattern.MISMATCH;
-        return 1;
-      }
-    };
-  }
-  
   private static Parser<Void> quotedBy(Parser<Void> parser, Parser<?> quote) {
     return parser.between(quote, quote);
   }
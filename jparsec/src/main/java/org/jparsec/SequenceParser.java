@@ -0,0 +1,88 @@
+/*****************************************************************************
+ * Copyright (C) jparsec.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package org.jparsec;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jparsec.pattern.CharPredicate;
+
+/**
+ * Runs {@code parsers} sequentially. The return value is that of the last parser.
+ */
+final class SequenceParser<T> extends Parser<T> {
+  private final Parser<?>[] parsers;
+
+  SequenceParser(Parser<?>... parsers) {
+    this.parsers = parsers;
+  }
+
+  @Override boolean apply(ParseContext ctxt) {
+    for (Parser<?> p : parsers) {
+      if (!p.apply(ctxt)) return false;
+    }
+    return true;
+  }
+
+  /** Flattens nested sequences and fuses adjacent pattern scanners. */
+  @Override Parser<T> rewrite(ParserOptimizer optimizer) {
+    List<Parser<?>> flattened = new ArrayList<Parser<?>>();
+    for (Parser<?> parser : parsers) {
+      Parser<?> optimized = optimizer.optimize(parser);
+      if (optimized instanceof SequenceParser<?>) {
+        flattened.addAll(Arrays.asList(((SequenceParser<?>) optimized).parsers));
+      } else {
+        flattened.add(optimized);
+      }
+    }
+    List<Parser<?>> fused = new ArrayList<Parser<?>>();
+    List<PatternScanner> run = new ArrayList<PatternScanner>();
+    for (Parser<?> parser : flattened) {
+      if (parser instanceof PatternScanner) {
+        run.add((PatternScanner) parser);
+        continue;
+      }
+      addFused(run, fused);
+      fused.add(parser);
+    }
+    addFused(run, fused);
+    if (fused.size() == 1) return fused.get(0).cast();
+    return new SequenceParser<T>(fused.toArray(new Parser<?>[fused.size()]));
+  }
+
+  /** Unless the first parser can match empty, it's what the sequence starts with. */
+  @Override CharPredicate firstChars() {
+    return parsers.length == 0 ? null : parsers[0].firstChars();
+  }
+
+  @Override Object shareKey() {
+    return Arrays.asList(getClass(), Arrays.asList(parsers));
+  }
+
+  @Override public String toString() {
+    return "sequence";
+  }
+
+  private static void addFused(List<PatternScanner> run, List<Parser<?>> to) {
+    if (run.size() == 1) {
+      to.add(run.get(0));
+    } else if (run.size() > 1) {
+      to.add(FusedScanner.fuse(run));
+    }
+    run.clear();
+  }
+}
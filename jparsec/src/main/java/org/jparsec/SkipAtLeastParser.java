@@ -15,6 +15,8 @@
  *****************************************************************************/
 package org.jparsec;
 
+import org.jparsec.pattern.CharPredicate;
+
 final class SkipAtLeastParser extends Parser<Void> {
   private final Parser<?> parser;
   private final int min;
@@ -33,6 +35,14 @@ final class SkipAtLeastParser extends Parser<Void> {
     return false;
   }
   
+  @Override Parser<Void> rewrite(ParserOptimizer optimizer) {
+    return new SkipAtLeastParser(optimizer.optimize(parser), min);
+  }
+
+  @Override CharPredicate firstChars() {
+    return min > 0 ? parser.firstChars() : null;
+  }
+
   @Override public String toString() {
     return "skipAtLeast";
   }
@@ -40,11 +50,16 @@ final class SkipAtLeastParser extends Parser<Void> {
   private boolean applyMany(ParseContext ctxt) {
     int physical = ctxt.at;
     int logical = ctxt.step;
+    boolean cut = ctxt.cut;
     for (;;logical = ctxt.step) {
+      ctxt.cut = false;
       if (!parser.apply(ctxt)) {
+        if (ctxt.cut) return false;
+        ctxt.cut = cut;
         ctxt.setAt(logical, physical);
         return true;
       }
+      ctxt.cut = cut;
       int at2 = ctxt.at;
       if (physical == at2) return true;
       physical = at2;
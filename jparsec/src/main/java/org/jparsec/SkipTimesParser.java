@@ -35,18 +35,27 @@ final class SkipTimesParser extends Parser<Void> {
     return false;
   }
   
+  @Override Parser<Void> rewrite(ParserOptimizer optimizer) {
+    return new SkipTimesParser(optimizer.optimize(parser), min, max);
+  }
+
   @Override public String toString() {
     return "skipTimes";
   }
 
   private boolean repeatAtMost(int times, ParseContext ctxt) {
+    boolean cut = ctxt.cut;
     for (int i = 0; i < times; i++) {
       int physical = ctxt.at;
       int logical = ctxt.step;
+      ctxt.cut = false;
       if (!parser.apply(ctxt)) {
+        if (ctxt.cut) return false;
+        ctxt.cut = cut;
         ctxt.setAt(logical, physical);
         return true;
       }
+      ctxt.cut = cut;
     }
     return true;
   }
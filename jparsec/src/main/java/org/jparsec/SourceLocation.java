@@ -1,11 +1,17 @@
 package org.jparsec;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
 import org.jparsec.error.Location;
 
 /**
  * Represents a location inside the source.
  *
- * <em>Not thread safe</em>.
+ * <p>Thread safe: the line and column numbers can be looked up from any thread.
  *
  * @since 3.1
  */
@@ -13,6 +19,7 @@ public class SourceLocation {
 
   private final int index;
   private final SourceLocator locator;
+  /** Immutable once resolved, so a racy read at worst resolves it again. */
   private Location location;
   
   SourceLocation(int index, SourceLocator locator) {
@@ -41,6 +48,39 @@ public class SourceLocation {
     return getLocation().column;
   }
   
+  /**
+   * Resolves the line and column numbers of all of {@code locations} at once, so that subsequent
+   * {@link #getLine} and {@link #getColumn} calls return immediately. Locations from the same
+   * source are resolved in a single pass over it, which is cheaper than resolving them one by one
+   * when there are many of them, for example all the locations recorded in an AST.
+   *
+   * @since 3.2
+   */
+  public static void resolveAll(Collection<? extends SourceLocation> locations) {
+    Map<SourceLocator, List<SourceLocation>> bySource =
+        new IdentityHashMap<SourceLocator, List<SourceLocation>>();
+    for (SourceLocation location : locations) {
+      if (location.location != null) continue;
+      List<SourceLocation> group = bySource.get(location.locator);
+      if (group == null) {
+        group = new ArrayList<SourceLocation>();
+        bySource.put(location.locator, group);
+      }
+      group.add(location);
+    }
+    for (Map.Entry<SourceLocator, List<SourceLocation>> entry : bySource.entrySet()) {
+      List<SourceLocation> group = entry.getValue();
+      int[] indices = new int[group.size()];
+      for (int i = 0; i < indices.length; i++) {
+        indices[i] = group.get(i).index;
+      }
+      Location[] resolved = entry.getKey().resolveAll(indices);
+      for (int i = 0; i < indices.length; i++) {
+        group.get(i).location = resolved[i];
+      }
+    }
+  }
+
   private Location getLocation() {
     if (location == null) {
       location = locator.locate(index);
@@ -19,38 +19,47 @@ import org.jparsec.error.Location;
 import org.jparsec.internal.annotations.Private;
 import org.jparsec.internal.util.IntList;
 
+import java.util.Arrays;
+
 /**
  * Locates the line and column number of a 0-based index in the source.
  * 
- * <p> This class internally keeps a cache of the indices of all the line break characters scanned
- * so far, therefore repeated location lookup can be done in amortized log(n) time.
+ * <p> The indices of all line breaks are scanned into an immutable index upon the first lookup,
+ * after which each location is found by a binary search, or by a single merge pass for a batch
+ * of indices with {@link #resolveAll}.
+ *
+ * <p> A line break is a {@code '\n'}, or a {@code '\r'} that isn't followed by {@code '\n'}. The
+ * {@code '\r'} of {@code "\r\n"} is counted as the last character of its line.
  * 
- * <p> It is <EM>not</EM> multi-thread safe.
+ * <p> A locator can also be confined to a range of the source, which is then located as if it
+ * were the whole source.
+ *
+ * <p> It is multi-thread safe. Threads racing to build the index build identical copies.
  * 
  * @author Ben Yu
  */
 final class SourceLocator {
   
-  /** The line break character. */
-  private static final char LINE_BREAK = '\n';
+  private static final char LINE_FEED = '\n';
   
-  private final CharSequence source;
+  private static final char CARRIAGE_RETURN = '\r';
   
-  /** The 0-based indices of the line break characters scanned so far. */
-  @Private
-  final IntList lineBreakIndices = new IntList(20);
+  private final CharSequence source;
   
-  /** The first line number. */
-  private final int startLineNumber;
+  /** The index of the first located character, at {@link #start}. */
+  private final int begin;
   
-  /** The first column number. */
-  private final int startColumnNumber;
+  /** The end (exclusive) of the located range, or -1 for the end of the source. */
+  private final int end;
   
-  /** The 0-based index of the next character to be scanned. */
-  @Private int nextIndex = 0;
+  /**
+   * The line and column number of {@link #begin}, or null until they are counted, for a range
+   * located in the whole source.
+   */
+  private volatile Location start;
   
-  /** The 0-based index of the column of the next character to be scanned. */
-  @Private int nextColumnIndex = 0;
+  /** The 0-based indices of the line break characters, or null if not scanned yet. */
+  private volatile int[] lineBreakIndices;
   
   /**
    * Creates a {@link SourceLocator} object.
@@ -69,87 +78,186 @@ final class SourceLocator {
    * @param columnNumber the starting column number.
    */
   @Private SourceLocator(CharSequence source, int lineNumber, int columnNumber) {
+    this(source, 0, -1, new Location(lineNumber, columnNumber));
+  }
+  
+  private SourceLocator(CharSequence source, int begin, int end, Location start) {
     this.source = source;
-    this.startLineNumber = lineNumber;
-    this.startColumnNumber = columnNumber;
+    this.begin = begin;
+    this.end = end;
+    this.start = start;
   }
   
-  Location locate(int index) {
-    return (index < nextIndex) ? lookup(index) : scanTo(index);
+  /**
+   * Returns a {@link SourceLocator} that locates indices of {@code source} between {@code begin}
+   * and {@code end}, counting lines and columns as if the source started at {@code begin}.
+   */
+  static SourceLocator ofRange(CharSequence source, int begin, int end) {
+    return new SourceLocator(source, begin, end, new Location(1, 1));
   }
   
   /**
-   * Looks up the location identified by {@code ind} using the cached indices of line break
-   * characters. This assumes that all line-break characters before {@code ind} are already scanned.
+   * Returns a {@link SourceLocator} that locates indices of {@code source} between {@code begin}
+   * and {@code end}, with the line and column numbers they have in the whole source. Only the
+   * range is indexed. The characters before it are just counted, upon the first lookup.
    */
-  @Private Location lookup(int index) {
-    int size = lineBreakIndices.size();
-    if (size == 0) return location(0, index);
-    int lineNumber = binarySearch(lineBreakIndices, index);
-    if (lineNumber == 0) return location(0, index);
-    int previousBreak = lineBreakIndices.get(lineNumber - 1);
-    return location(lineNumber, index - previousBreak - 1);
+  static SourceLocator ofRangeInSource(CharSequence source, int begin, int end) {
+    return new SourceLocator(source, begin, end, null);
+  }
+  
+  /** Returns the location of {@code index}, which can be the end of the source. */
+  Location locate(int index) {
+    checkIndex(index);
+    int[] lineBreaks = lineBreakIndices();
+    return location(lineBreaks, index, binarySearch(lineBreaks, index));
   }
   
   /**
-   * Scans from {@code nextIndex} to {@code ind} and saves all indices of line break characters
-   * into {@code lineBreakIndices} and adjusts the current column number as it goes. The location of
-   * the character on {@code ind} is returned.
-   * 
-   * <p> After this method returns, {@code nextIndex} and {@code nextColumnIndex} will point to the
-   * next character to be scanned or the EOF if the end of input is encountered.
+   * Returns the locations of {@code indices}, in the same order. The indices are sorted (unless
+   * they already are) and resolved in a single pass over the line breaks, which is cheaper than a
+   * binary search per index for large batches such as all the positions of an AST.
    */
-  @Private Location scanTo(int index) {
-    boolean eof = false;
-    if (index == source.length()) { // The eof has index size() + 1
-      eof = true;
-      index--;
+  Location[] resolveAll(int[] indices) {
+    int[] lineBreaks = lineBreakIndices();
+    Location[] locations = new Location[indices.length];
+    if (isAscending(indices)) {
+      for (int i = 0, line = 0; i < indices.length; i++) {
+        int index = indices[i];
+        checkIndex(index);
+        line = skipLineBreaksBefore(lineBreaks, line, index);
+        locations[i] = location(lineBreaks, index, line);
+      }
+      return locations;
+    }
+    // Sort the indices together with where they came from.
+    long[] sorted = new long[indices.length];
+    for (int i = 0; i < indices.length; i++) {
+      checkIndex(indices[i]);
+      sorted[i] = ((long) indices[i] << 32) | i;
+    }
+    Arrays.sort(sorted);
+    for (int i = 0, line = 0; i < sorted.length; i++) {
+      int index = (int) (sorted[i] >>> 32);
+      line = skipLineBreaksBefore(lineBreaks, line, index);
+      locations[(int) sorted[i]] = location(lineBreaks, index, line);
+    }
+    return locations;
+  }
+  
+  /** Returns the 0-based indices of all line breaks in the source. */
+  @Private int[] lineBreakIndices() {
+    int[] lineBreaks = lineBreakIndices;
+    if (lineBreaks == null) {
+      lineBreaks = scanLineBreaks(source, begin, end());
+      lineBreakIndices = lineBreaks;
     }
-    int columnIndex = nextColumnIndex;
-    for (int i = nextIndex; i <= index; i++) {
+    return lineBreaks;
+  }
+  
+  @Private static int[] scanLineBreaks(CharSequence source) {
+    return scanLineBreaks(source, 0, source.length());
+  }
+  
+  private static int[] scanLineBreaks(CharSequence source, int begin, int end) {
+    IntList lineBreaks = new IntList(20);
+    if (source instanceof String && !containsCarriageReturn((String) source, begin, end)) {
+      // The common case, left to the intrinsified String.indexOf().
+      String string = (String) source;
+      for (int i = string.indexOf(LINE_FEED, begin); i >= 0 && i < end;
+          i = string.indexOf(LINE_FEED, i + 1)) {
+        lineBreaks.add(i);
+      }
+      return lineBreaks.toArray();
+    }
+    for (int i = begin; i < end; i++) {
+      char c = source.charAt(i);
+      if (c > CARRIAGE_RETURN) continue;
+      if (c == LINE_FEED
+          || (c == CARRIAGE_RETURN && !isFollowedByLineFeed(source, i))) {
+        lineBreaks.add(i);
+      }
+    }
+    return lineBreaks.toArray();
+  }
+  
+  private static boolean isFollowedByLineFeed(CharSequence source, int i) {
+    return i + 1 < source.length() && source.charAt(i + 1) == LINE_FEED;
+  }
+  
+  /** Returns the location of {@code index} in the whole source, counting the lines before it. */
+  private static Location locateInSource(CharSequence source, int index) {
+    int line = 1;
+    int lineBegin = 0;
+    for (int i = 0; i < index; i++) {
       char c = source.charAt(i);
-      if (c == LINE_BREAK) {
-        lineBreakIndices.add(i);
-        columnIndex = 0;
+      if (c > CARRIAGE_RETURN) continue;
+      if (c == LINE_FEED || (c == CARRIAGE_RETURN && !isFollowedByLineFeed(source, i))) {
+        line++;
+        lineBegin = i + 1;
       }
-      else columnIndex++;
     }
-    this.nextIndex = index + 1;
-    this.nextColumnIndex = columnIndex;
-    int lines = lineBreakIndices.size();
-    if (eof) return location(lines, columnIndex);
-    if (columnIndex == 0) return getLineBreakLocation(lines - 1);
-    return location(lines, columnIndex - 1);
+    return new Location(line, index - lineBegin + 1);
+  }
+  
+  private Location start() {
+    Location location = start;
+    if (location == null) {
+      location = locateInSource(source, begin);
+      start = location;
+    }
+    return location;
+  }
+  
+  private static boolean containsCarriageReturn(String string, int begin, int end) {
+    int i = string.indexOf(CARRIAGE_RETURN, begin);
+    return i >= 0 && i < end;
+  }
+  
+  private int end() {
+    return end < 0 ? source.length() : end;
+  }
+  
+  private void checkIndex(int index) {
+    if (index < begin || index > end()) throw new StringIndexOutOfBoundsException(index);
   }
   
   /**
-   * Gets the 0-based column number of the line break character for line identified by
-   * {@code lineIndex}.
+   * Returns the location of {@code index}, with {@code line} being the number of line breaks before
+   * it (a line break is on the line it ends).
    */
-  private int getLineBreakColumnIndex(int lineIndex) {
-    int lineBreakIndex = lineBreakIndices.get(lineIndex);
-    return (lineIndex == 0) ?
-         lineBreakIndex : lineBreakIndex - lineBreakIndices.get(lineIndex - 1) - 1;
+  private Location location(int[] lineBreaks, int index, int line) {
+    if (line == 0) return location(0, index - begin);
+    return location(line, index - lineBreaks[line - 1] - 1);
   }
   
-  private Location getLineBreakLocation(int lineIndex) {
-    return location(lineIndex, getLineBreakColumnIndex(lineIndex));
+  private Location location(int l, int c) {
+    Location start = start();
+    return new Location(start.line + l, (l == 0 ? start.column : 1) + c);
   }
   
-  private Location location(int l, int c) {
-    return new Location(startLineNumber + l, (l == 0 ? startColumnNumber : 1) + c);
+  private static int skipLineBreaksBefore(int[] lineBreaks, int from, int index) {
+    int line = from;
+    while (line < lineBreaks.length && lineBreaks[line] < index) line++;
+    return line;
+  }
+  
+  private static boolean isAscending(int[] indices) {
+    for (int i = 1; i < indices.length; i++) {
+      if (indices[i] < indices[i - 1]) return false;
+    }
+    return true;
   }
   
   /**
    * Uses binary search to look up the index of the first element in {@code ascendingInts} that's
    * greater than or equal to {@code value}. If all elements are smaller than {@code value},
-   * {@code ascendingInts.size()} is returned.
+   * {@code ascendingInts.length} is returned.
    */
-  @Private static int binarySearch(IntList ascendingInts, int value) {
-    for (int begin = 0, to = ascendingInts.size();;) {
+  @Private static int binarySearch(int[] ascendingInts, int value) {
+    for (int begin = 0, to = ascendingInts.length;;) {
       if (begin == to) return begin;
       int i = (begin + to) / 2;
-      int x = ascendingInts.get(i);
+      int x = ascendingInts[i];
       if (x == value) return i;
       else if (x > value) to = i;
       else begin = i + 1;
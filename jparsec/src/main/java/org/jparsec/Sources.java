@@ -0,0 +1,42 @@
+/*****************************************************************************
+ * Copyright (C) jparsec.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package org.jparsec;
+
+import java.nio.CharBuffer;
+
+/**
+ * Normalizes the input of a parse once, before any scanning starts.
+ *
+ * <p>Scanners and {@link org.jparsec.pattern.Pattern}s read the input through
+ * {@link CharSequence#charAt}, a call site that turns megamorphic when one service parses
+ * {@code String}s, {@code StringBuilder}s and {@code CharBuffer}s alike. Copying the JDK's
+ * mutable and buffer sequences into a {@code String} up front costs one pass over the input and
+ * keeps every scanning loop on the {@code String} path. Other {@code CharSequence}
+ * implementations are kept as they are, as they may be lazily loaded or too large to copy.
+ */
+final class Sources {
+
+  static CharSequence normalize(CharSequence source) {
+    if (source instanceof String) return source;
+    if (source instanceof StringBuilder || source instanceof StringBuffer
+        || source instanceof CharBuffer) {
+      return source.toString();
+    }
+    return source;
+  }
+
+  private Sources() {}
+}
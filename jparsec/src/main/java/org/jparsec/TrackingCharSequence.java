@@ -0,0 +1,65 @@
+/*****************************************************************************
+ * Copyright (C) jparsec.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package org.jparsec;
+
+/**
+ * A {@link CharSequence} over a string that records the highest index read from it, to tell
+ * whether a parse looked as far as the end of the input it was given. Used by
+ * {@link Parser#parsePrefix(Readable)} to decide whether to read more.
+ */
+final class TrackingCharSequence implements CharSequence {
+
+  /**
+   * How close to the end a parse may stop or fail and still have been cut short by it. Scanners
+   * such as {@code Scanners.string("abc")} fail without reading anything when fewer characters are
+   * left than they need, so reading the last character isn't the only sign.
+   */
+  static final int END_MARGIN = 1024;
+
+  private final String string;
+  private int highWater = -1;
+
+  TrackingCharSequence(String string) {
+    this.string = string;
+  }
+
+  @Override public int length() {
+    return string.length();
+  }
+
+  @Override public char charAt(int index) {
+    if (index > highWater) highWater = index;
+    return string.charAt(index);
+  }
+
+  @Override public CharSequence subSequence(int start, int end) {
+    if (end - 1 > highWater) highWater = end - 1;
+    return string.substring(start, end);
+  }
+
+  /**
+   * Whether more input could change the outcome of a parse that got as far as {@code index}: it
+   * either read the last character, or got within {@link #END_MARGIN} of the end.
+   */
+  boolean mayNeedMore(int index) {
+    return highWater >= string.length() - 1 || index >= string.length() - END_MARGIN;
+  }
+
+  @Override public String toString() {
+    highWater = string.length() - 1;
+    return string;
+  }
+}
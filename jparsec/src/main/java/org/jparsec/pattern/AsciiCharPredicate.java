@@ -0,0 +1,148 @@
+/*****************************************************************************
+ * Copyright (C) jparsec.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package org.jparsec.pattern;
+
+import java.nio.CharBuffer;
+
+/**
+ * A {@link CharPredicate} with its answers for the 7-bit ASCII range precomputed into a 128-bit
+ * mask. Bulk scanning loops such as {@link Patterns#many(CharPredicate)} test ASCII characters
+ * with a shift and a mask instead of a virtual call per character. Characters outside of ASCII
+ * are still answered by the original predicate.
+ *
+ * <p>Only predicates known to be pure are compiled, which is why {@link #compile} is only called
+ * from {@link CharPredicates}.
+ */
+final class AsciiCharPredicate implements CharPredicate {
+
+  private static final int NO_STOP_CHAR = -1;
+
+  private final CharPredicate predicate;
+
+  /** Bits for characters {@code [0, 64)}. */
+  private final long low;
+
+  /** Bits for characters {@code [64, 128)}. */
+  private final long high;
+
+  /**
+   * If not {@link #NO_STOP_CHAR}, the predicate matches every character but this one, which
+   * allows scanning a {@code String} to be done by the intrinsified
+   * {@link String#indexOf(int, int)}.
+   */
+  private final int stopChar;
+
+  private AsciiCharPredicate(CharPredicate predicate, int stopChar) {
+    long low = 0;
+    long high = 0;
+    for (char c = 0; c < 64; c++) {
+      if (predicate.isChar(c)) low |= 1L << c;
+      if (predicate.isChar((char) (c + 64))) high |= 1L << c;
+    }
+    this.predicate = predicate;
+    this.low = low;
+    this.high = high;
+    this.stopChar = stopChar;
+  }
+
+  /** Compiles {@code predicate}, which must be pure. */
+  static CharPredicate compile(CharPredicate predicate) {
+    if (predicate instanceof AsciiCharPredicate) return predicate;
+    return new AsciiCharPredicate(predicate, NO_STOP_CHAR);
+  }
+
+  /** Compiles {@code predicate}, which must match every character except {@code stopChar}. */
+  static CharPredicate compileAllBut(char stopChar, CharPredicate predicate) {
+    return new AsciiCharPredicate(predicate, stopChar);
+  }
+
+  /** Returns true if every one of {@code predicates} is compiled. */
+  static boolean areCompiled(CharPredicate... predicates) {
+    for (CharPredicate predicate : predicates) {
+      if (!(predicate instanceof AsciiCharPredicate)) return false;
+    }
+    return true;
+  }
+
+  @Override public boolean isChar(char c) {
+    if (c < 64) return (low & (1L << c)) != 0;
+    if (c < 128) return (high & (1L << c)) != 0;
+    return predicate.isChar(c);
+  }
+
+  @Override public String toString() {
+    return predicate.toString();
+  }
+
+  /**
+   * Returns the index of the first character in {@code [from, end)} of {@code src} that doesn't
+   * satisfy {@code predicate}, or {@code end} if all of them do.
+   */
+  static int skip(CharPredicate predicate, CharSequence src, int from, int end) {
+    if (predicate instanceof AsciiCharPredicate) {
+      return ((AsciiCharPredicate) predicate).skip(src, from, end);
+    }
+    for (int i = from; i < end; i++) {
+      if (!predicate.isChar(src.charAt(i))) return i;
+    }
+    return end;
+  }
+
+  private int skip(CharSequence src, int from, int end) {
+    // Dispatch once per scan so that each loop below only ever sees one receiver type.
+    if (src instanceof String) {
+      return skip((String) src, from, end);
+    }
+    if (src instanceof CharBuffer) {
+      CharBuffer buffer = (CharBuffer) src;
+      if (buffer.hasArray()) {
+        int offset = buffer.arrayOffset() + buffer.position();
+        return skip(buffer.array(), offset + from, offset + end) - offset;
+      }
+    }
+    for (int i = from; i < end; i++) {
+      if (!isChar(src.charAt(i))) return i;
+    }
+    return end;
+  }
+
+  private int skip(String src, int from, int end) {
+    if (stopChar != NO_STOP_CHAR && end == src.length()) {
+      // indexOf() can't be bounded by "end", so only use it when scanning to the end.
+      int i = src.indexOf(stopChar, from);
+      return i < 0 ? end : i;
+    }
+    for (int i = from; i < end; i++) {
+      char c = src.charAt(i);
+      if (c < 128 ? ((c < 64 ? low : high) & (1L << c)) == 0 : !predicate.isChar(c)) return i;
+    }
+    return end;
+  }
+
+  private int skip(char[] src, int from, int end) {
+    if (stopChar != NO_STOP_CHAR) {
+      for (int i = from; i < end; i++) {
+        if (src[i] == stopChar) return i;
+      }
+      return end;
+    }
+    for (int i = from; i < end; i++) {
+      char c = src[i];
+      if (c < 128 ? ((c < 64 ? low : high) & (1L << c)) == 0 : !predicate.isChar(c)) return i;
+    }
+    return end;
+  }
+}
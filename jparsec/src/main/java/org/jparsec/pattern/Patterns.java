@@ -17,8 +17,6 @@ package org.jparsec.pattern;
 
 import org.jparsec.internal.util.Checks;
 
-import java.util.regex.Matcher;
-
 /**
  * Provides common {@link Pattern} implementations.
  *
@@ -510,31 +508,26 @@ public final class Patterns {
 
   /**
    * Adapts a regular expression pattern to a {@link Pattern}.
-   * 
-   * <p><em>WARNING</em>: in addition to regular expression cost, the returned {@code Pattern} object needs
-   * to make a substring copy every time it's evaluated. This can incur excessive copying and memory overhead
-   * when parsing large strings. Consider implementing {@code Pattern} manually for large input.
+   *
+   * <p>The regular expression is matched in place against the range being matched, with transparent bounds: look-around
+   * and boundary constructs such as {@code \b} can see the characters around the range, while {@code ^} and {@code $}
+   * still anchor at its ends.
+   *
+   * <p>A simple regular expression compiled without flags, such as {@code [a-z_][a-z0-9_]*}, is translated into an
+   * equivalent native {@code Pattern} when every choice in it can be decided by the next character.
    */
   public static Pattern regex(final java.util.regex.Pattern p) {
-    return new Pattern() {
-      @Override
-      public int match(CharSequence src, int begin, int end) {
-        if (begin > end)
-          return MISMATCH;
-        Matcher matcher = p.matcher(src.subSequence(begin, end));
-        if (matcher.lookingAt())
-          return matcher.end();
-        return MISMATCH;
-      }
-    };
+    if (p.flags() == 0) {
+      Pattern translated = RegexTranslator.translate(p.pattern());
+      if (translated != null) return translated;
+    }
+    return new RegexPattern(p);
   }
 
   /**
    * Adapts a regular expression pattern string to a {@link Pattern}.
-   * 
-   * <p><em>WARNING</em>: in addition to regular expression cost, the returned {@code Pattern} object needs
-   * to make a substring copy every time it's evaluated. This can incur excessive copying and memory overhead
-   * when parsing large strings. Consider implementing {@code Pattern} manually for large input.
+   *
+   * @see #regex(java.util.regex.Pattern)
    */
   public static Pattern regex(String s) {
     return regex(java.util.regex.Pattern.compile(s));
@@ -546,11 +539,7 @@ public final class Patterns {
 
   private static int matchSome(int max, CharPredicate predicate, CharSequence src, int len, int from, int acc) {
     int k = Math.min(max + from, len);
-    for (int i = from; i < k; i++) {
-      if (!predicate.isChar(src.charAt(i)))
-        return i - from + acc;
-    }
-    return k - from + acc;
+    return AsciiCharPredicate.skip(predicate, src, from, k) - from + acc;
   }
 
   private static Pattern getRegularExpressionPattern() {
@@ -566,11 +555,7 @@ public final class Patterns {
 
   private static int matchMany(
       CharPredicate predicate, CharSequence src, int len, int from, int acc) {
-    for (int i = from; i < len; i++) {
-      if (!predicate.isChar(src.charAt(i)))
-        return i - from + acc;
-    }
-    return len - from + acc;
+    return AsciiCharPredicate.skip(predicate, src, from, len) - from + acc;
   }
 
   private  static int matchStringCaseInsensitive(String str, CharSequence src, int begin, int end) {
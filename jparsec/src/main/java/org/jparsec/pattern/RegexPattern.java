@@ -0,0 +1,55 @@
+/*****************************************************************************
+ * Copyright (C) jparsec.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package org.jparsec.pattern;
+
+import java.util.regex.Matcher;
+
+/**
+ * Adapts a {@code java.util.regex.Pattern} by matching in place against a region of the source,
+ * with transparent bounds so that look-around and boundaries see the surrounding characters.
+ *
+ * <p>{@link Pattern#match} has no state to hang a {@link Matcher} off, so matchers are reused per
+ * thread instead of allocated per call.
+ */
+final class RegexPattern extends Pattern {
+  private final java.util.regex.Pattern regex;
+  private final ThreadLocal<Matcher> matchers = new ThreadLocal<Matcher>() {
+    @Override protected Matcher initialValue() {
+      return regex.matcher("").useTransparentBounds(true);
+    }
+  };
+
+  RegexPattern(java.util.regex.Pattern regex) {
+    this.regex = regex;
+  }
+
+  @Override public int match(CharSequence src, int begin, int end) {
+    if (begin > end) return MISMATCH;
+    Matcher matcher = matchers.get();
+    try {
+      // reset() drops the region but keeps the transparent bounds.
+      matcher.reset(src).region(begin, end);
+      return matcher.lookingAt() ? matcher.end() - begin : MISMATCH;
+    } finally {
+      // Don't let the thread keep the source alive.
+      matcher.reset("");
+    }
+  }
+
+  @Override public String toString() {
+    return regex.pattern();
+  }
+}
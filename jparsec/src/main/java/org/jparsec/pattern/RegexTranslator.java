@@ -0,0 +1,622 @@
+/*****************************************************************************
+ * Copyright (C) jparsec.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package org.jparsec.pattern;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jparsec.internal.annotations.Private;
+
+/**
+ * Translates simple regular expressions into native {@link Pattern} combinators.
+ *
+ * <p>Supported are literals, {@code .}, character classes (including {@code \d}, {@code \w},
+ * {@code \s} and their negations), the greedy and possessive quantifiers {@code *}, {@code +},
+ * {@code ?} and {@code {n,m}} on single characters, groups quantified by {@code *}, {@code +} or
+ * {@code ?}, and alternation.
+ *
+ * <p>{@link Pattern}s never backtrack, so a regex is only translated if backtracking can't change
+ * its result: every choice point (a variable quantifier or an alternation) must be decidable by
+ * the next character alone. For example {@code [a-z]+[0-9]} is translated while {@code a*ab} or
+ * {@code (ab|ac)} are not. {@link #translate} returns {@code null} for anything else, and the
+ * caller should fall back to {@code java.util.regex}.
+ */
+final class RegexTranslator {
+
+  private static final int UNBOUNDED = Integer.MAX_VALUE;
+
+  private final String regex;
+  private int pos = 0;
+
+  private RegexTranslator(String regex) {
+    this.regex = regex;
+  }
+
+  /**
+   * Returns a {@link Pattern} equivalent to {@code regex} (compiled without flags) under
+   * {@link java.util.regex.Matcher#lookingAt}, or {@code null} if it can't be translated.
+   */
+  static Pattern translate(final String regex) {
+    Node node;
+    try {
+      node = new RegexTranslator(regex).parse();
+    } catch (UnsupportedRegexException e) {
+      return null;
+    }
+    if (!node.isDeterministic(CharSet.EMPTY)) return null;
+    final Pattern pattern = node.toPattern();
+    return new Pattern() {
+      @Override public int match(CharSequence src, int begin, int end) {
+        if (begin > end) return MISMATCH;
+        return pattern.match(src, begin, end);
+      }
+      @Override public String toString() {
+        return regex;
+      }
+    };
+  }
+
+  private Node parse() {
+    Node node = parseAlternation();
+    if (pos < regex.length()) throw unsupported();
+    return node;
+  }
+
+  private Node parseAlternation() {
+    List<Node> alternatives = new ArrayList<Node>();
+    alternatives.add(parseSequence());
+    while (pos < regex.length() && regex.charAt(pos) == '|') {
+      pos++;
+      alternatives.add(parseSequence());
+    }
+    return alternatives.size() == 1 ? alternatives.get(0) : new Alternation(alternatives);
+  }
+
+  private Node parseSequence() {
+    List<Node> elements = new ArrayList<Node>();
+    while (pos < regex.length()) {
+      char c = regex.charAt(pos);
+      if (c == '|' || c == ')') break;
+      if (c == '(') {
+        elements.add(parseGroup());
+      } else {
+        elements.add(parseQuantifier(parseAtom()));
+      }
+    }
+    return elements.size() == 1 ? elements.get(0) : new Sequence(elements);
+  }
+
+  private Node parseGroup() {
+    pos++;
+    if (regex.startsWith("?:", pos)) {
+      pos += 2;
+    } else if (regex.startsWith("?", pos)) {
+      // lookaround, named groups, inline flags etc.
+      throw unsupported();
+    }
+    Node node = parseAlternation();
+    if (pos >= regex.length() || regex.charAt(pos) != ')') throw unsupported();
+    pos++;
+    int min;
+    boolean unbounded;
+    if (consume('?')) {
+      min = 0;
+      unbounded = false;
+    } else if (consume('*')) {
+      min = 0;
+      unbounded = true;
+    } else if (consume('+')) {
+      min = 1;
+      unbounded = true;
+    } else if (pos < regex.length() && regex.charAt(pos) == '{') {
+      throw unsupported();
+    } else {
+      return node;
+    }
+    if (consume('?')) throw unsupported(); // reluctant
+    return new Repetition(node, min, unbounded, consume('+'));
+  }
+
+  private Atom parseAtom() {
+    char c = regex.charAt(pos++);
+    switch (c) {
+      case '.':
+        return new Atom(CharSet.of("\n\r\u0085\u2028\u2029").complement(), ".");
+      case '[':
+        int from = pos - 1;
+        CharSet set = parseCharClass();
+        return new Atom(set, regex.substring(from, pos));
+      case '\\':
+        int escaped = pos - 1;
+        return new Atom(parseEscape(true), regex.substring(escaped, pos));
+      case '^': case '$': case '*': case '+': case '?': case '{': case '}': case ']':
+        throw unsupported();
+      default:
+        return new Atom(CharSet.range(checkBmp(c), c), Character.toString(c));
+    }
+  }
+
+  private Node parseQuantifier(Atom atom) {
+    if (pos >= regex.length()) return atom;
+    int min;
+    int max;
+    switch (regex.charAt(pos)) {
+      case '*':
+        min = 0;
+        max = UNBOUNDED;
+        pos++;
+        break;
+      case '+':
+        min = 1;
+        max = UNBOUNDED;
+        pos++;
+        break;
+      case '?':
+        min = 0;
+        max = 1;
+        pos++;
+        break;
+      case '{':
+        pos++;
+        min = parseNumber();
+        max = min;
+        if (consume(',')) {
+          max = pos < regex.length() && regex.charAt(pos) == '}' ? UNBOUNDED : parseNumber();
+        }
+        if (!consume('}')) throw unsupported();
+        break;
+      default:
+        return atom;
+    }
+    if (consume('?')) throw unsupported(); // reluctant
+    return new Atom(atom.set, min, max, consume('+'), atom.text);
+  }
+
+  private CharSet parseCharClass() {
+    boolean negated = consume('^');
+    CharSet set = CharSet.EMPTY;
+    boolean first = true;
+    while (true) {
+      if (pos >= regex.length()) throw unsupported();
+      char c = regex.charAt(pos);
+      if (c == ']' && !first) {
+        pos++;
+        break;
+      }
+      if (c == '[' || c == ']' || regex.startsWith("&&", pos)) throw unsupported();
+      first = false;
+      CharSet item;
+      if (c == '\\') {
+        pos++;
+        item = parseEscape(true);
+      } else {
+        pos++;
+        item = CharSet.range(checkBmp(c), c);
+      }
+      if (item.isSingleChar() && pos + 1 < regex.length()
+          && regex.charAt(pos) == '-' && regex.charAt(pos + 1) != ']') {
+        pos++;
+        char to = regex.charAt(pos++);
+        CharSet upper = to == '\\' ? parseEscape(false) : CharSet.range(checkBmp(to), to);
+        if (to == '[' || !upper.isSingleChar()) throw unsupported();
+        int low = item.ranges[0];
+        int high = upper.ranges[0];
+        if (low > high) throw unsupported();
+        item = CharSet.range(low, high);
+      }
+      set = set.union(item);
+    }
+    return negated ? set.complement() : set;
+  }
+
+  /** Parses the escape sequence after a backslash. */
+  private CharSet parseEscape(boolean allowClasses) {
+    if (pos >= regex.length()) throw unsupported();
+    char c = regex.charAt(pos++);
+    switch (c) {
+      case 't': return CharSet.range('\t', '\t');
+      case 'n': return CharSet.range('\n', '\n');
+      case 'r': return CharSet.range('\r', '\r');
+      case 'f': return CharSet.range('\f', '\f');
+      case 'a': return CharSet.range('\u0007', '\u0007');
+      case 'e': return CharSet.range('\u001B', '\u001B');
+      case 'x': return single(parseHex(2));
+      case 'u': return single(parseHex(4));
+      default:
+    }
+    if (allowClasses) {
+      switch (c) {
+        case 'd': return CharSet.DIGIT;
+        case 'D': return CharSet.DIGIT.complement();
+        case 'w': return CharSet.WORD;
+        case 'W': return CharSet.WORD.complement();
+        case 's': return CharSet.SPACE;
+        case 'S': return CharSet.SPACE.complement();
+        default:
+      }
+    }
+    // Backslash followed by a letter or digit that's not listed above is either reserved, or
+    // a construct (back reference, boundary, unicode property etc.) we don't translate.
+    if (Character.isLetterOrDigit(c)) throw unsupported();
+    return CharSet.range(checkBmp(c), c);
+  }
+
+  private CharSet single(int c) {
+    return CharSet.range(checkBmp((char) c), c);
+  }
+
+  private int parseHex(int digits) {
+    if (pos + digits > regex.length()) throw unsupported();
+    int value = 0;
+    for (int i = 0; i < digits; i++) {
+      int digit = Character.digit(regex.charAt(pos++), 16);
+      if (digit < 0) throw unsupported();
+      value = value * 16 + digit;
+    }
+    return value;
+  }
+
+  private int parseNumber() {
+    int from = pos;
+    while (pos < regex.length() && pos - from < 6 && Character.isDigit(regex.charAt(pos))) pos++;
+    if (from == pos) throw unsupported();
+    return Integer.parseInt(regex.substring(from, pos));
+  }
+
+  private boolean consume(char c) {
+    if (pos < regex.length() && regex.charAt(pos) == c) {
+      pos++;
+      return true;
+    }
+    return false;
+  }
+
+  private static char checkBmp(char c) {
+    // java.util.regex matches by code point; we only translate regexes with plain chars.
+    if (Character.isSurrogate(c)) throw unsupported();
+    return c;
+  }
+
+  private static UnsupportedRegexException unsupported() {
+    return new UnsupportedRegexException();
+  }
+
+  /** Signals constructs outside of the translatable subset. Never escapes {@link #translate}. */
+  @SuppressWarnings("serial")
+  private static final class UnsupportedRegexException extends RuntimeException {
+    UnsupportedRegexException() {
+      super(null, null, false, false);
+    }
+  }
+
+  private abstract static class Node {
+    /** Whether the node matches the empty string. */
+    abstract boolean nullable();
+
+    /** The characters that can start a non-empty match of the node. */
+    abstract CharSet first();
+
+    /**
+     * Returns true if no choice inside the node can be revisited by a backtracking regex engine
+     * to produce a different match, given {@code follow} is the set of characters that can start
+     * whatever is matched after this node.
+     */
+    abstract boolean isDeterministic(CharSet follow);
+
+    abstract Pattern toPattern();
+  }
+
+  private static final class Atom extends Node {
+    final CharSet set;
+    final int min;
+    final int max;
+    final boolean possessive;
+    final String text;
+
+    Atom(CharSet set, String text) {
+      this(set, 1, 1, false, text);
+    }
+
+    Atom(CharSet set, int min, int max, boolean possessive, String text) {
+      this.set = set;
+      this.min = min;
+      this.max = max;
+      this.possessive = possessive;
+      this.text = text;
+    }
+
+    @Override boolean nullable() {
+      return min == 0;
+    }
+
+    @Override CharSet first() {
+      return set;
+    }
+
+    @Override boolean isDeterministic(CharSet follow) {
+      if (set.hasSurrogates() && !(max == UNBOUNDED && min <= 1)) {
+        // The regex engine counts a surrogate pair as one character, we count it as two.
+        return false;
+      }
+      return possessive || min == max || !set.intersects(follow);
+    }
+
+    boolean isSingleChar() {
+      return min == 1 && max == 1 && set.isSingleChar();
+    }
+
+    @Override Pattern toPattern() {
+      CharPredicate predicate = set.toPredicate(text);
+      if (min == 1 && max == 1) return Patterns.isChar(predicate);
+      if (min == 0 && max == 1) return Patterns.isChar(predicate).optional();
+      if (min == max) return Patterns.repeat(min, predicate);
+      if (max == UNBOUNDED) {
+        return min == 0 ? Patterns.many(predicate) : Patterns.atLeast(min, predicate);
+      }
+      return Patterns.times(min, max, predicate);
+    }
+  }
+
+  private static final class Sequence extends Node {
+    final List<Node> elements;
+
+    Sequence(List<Node> elements) {
+      this.elements = elements;
+    }
+
+    @Override boolean nullable() {
+      for (Node element : elements) {
+        if (!element.nullable()) return false;
+      }
+      return true;
+    }
+
+    @Override CharSet first() {
+      CharSet first = CharSet.EMPTY;
+      for (Node element : elements) {
+        first = first.union(element.first());
+        if (!element.nullable()) break;
+      }
+      return first;
+    }
+
+    @Override boolean isDeterministic(CharSet follow) {
+      for (int i = elements.size() - 1; i >= 0; i--) {
+        Node element = elements.get(i);
+        if (!element.isDeterministic(follow)) return false;
+        follow = element.nullable() ? follow.union(element.first()) : element.first();
+      }
+      return true;
+    }
+
+    @Override Pattern toPattern() {
+      List<Pattern> patterns = new ArrayList<Pattern>();
+      StringBuilder literal = new StringBuilder();
+      for (Node element : elements) {
+        if (element instanceof Atom && ((Atom) element).isSingleChar()) {
+          literal.append((char) ((Atom) element).set.ranges[0]);
+          continue;
+        }
+        flushLiteral(literal, patterns);
+        patterns.add(element.toPattern());
+      }
+      flushLiteral(literal, patterns);
+      if (patterns.isEmpty()) return Patterns.ALWAYS;
+      if (patterns.size() == 1) return patterns.get(0);
+      return Patterns.sequence(patterns.toArray(new Pattern[patterns.size()]));
+    }
+
+    private static void flushLiteral(StringBuilder literal, List<Pattern> patterns) {
+      if (literal.length() == 0) return;
+      patterns.add(literal.length() == 1
+          ? Patterns.isChar(literal.charAt(0)) : Patterns.string(literal.toString()));
+      literal.setLength(0);
+    }
+  }
+
+  private static final class Alternation extends Node {
+    final List<Node> alternatives;
+
+    Alternation(List<Node> alternatives) {
+      this.alternatives = alternatives;
+    }
+
+    @Override boolean nullable() {
+      for (Node alternative : alternatives) {
+        if (alternative.nullable()) return true;
+      }
+      return false;
+    }
+
+    @Override CharSet first() {
+      CharSet first = CharSet.EMPTY;
+      for (Node alternative : alternatives) {
+        first = first.union(alternative.first());
+      }
+      return first;
+    }
+
+    @Override boolean isDeterministic(CharSet follow) {
+      CharSet seen = CharSet.EMPTY;
+      for (Node alternative : alternatives) {
+        if (alternative.nullable()) return false;
+        CharSet first = alternative.first();
+        if (first.intersects(seen)) return false;
+        if (!alternative.isDeterministic(follow)) return false;
+        seen = seen.union(first);
+      }
+      return true;
+    }
+
+    @Override Pattern toPattern() {
+      Pattern[] patterns = new Pattern[alternatives.size()];
+      for (int i = 0; i < patterns.length; i++) {
+        patterns[i] = alternatives.get(i).toPattern();
+      }
+      return Patterns.or(patterns);
+    }
+  }
+
+  /** A group quantified by {@code ?}, {@code *} or {@code +}. */
+  private static final class Repetition extends Node {
+    final Node node;
+    final int min;
+    final boolean possessive;
+    final boolean unbounded;
+
+    Repetition(Node node, int min, boolean unbounded, boolean possessive) {
+      this.node = node;
+      this.min = min;
+      this.possessive = possessive;
+      this.unbounded = unbounded;
+    }
+
+    @Override boolean nullable() {
+      return min == 0;
+    }
+
+    @Override CharSet first() {
+      return node.first();
+    }
+
+    @Override boolean isDeterministic(CharSet follow) {
+      // An iteration that matches nothing, or one that could also be skipped for what follows,
+      // would be a choice only the regex engine can revisit.
+      if (node.nullable()) return false;
+      if (!possessive && node.first().intersects(follow)) return false;
+      return node.isDeterministic(unbounded ? follow.union(node.first()) : follow);
+    }
+
+    @Override Pattern toPattern() {
+      Pattern pattern = node.toPattern();
+      if (!unbounded) return pattern.optional();
+      return min == 0 ? pattern.many() : pattern.many1();
+    }
+  }
+
+  /** An immutable set of chars, stored as sorted, non-adjacent inclusive ranges. */
+  @Private static final class CharSet {
+    static final CharSet EMPTY = new CharSet(new int[0]);
+    static final CharSet DIGIT = range('0', '9');
+    static final CharSet WORD = range('a', 'z').union(range('A', 'Z')).union(DIGIT).union(of("_"));
+    static final CharSet SPACE = of(" \t\n\u000B\f\r");
+
+    /** {@code [low0, high0, low1, high1, ...]}. */
+    final int[] ranges;
+
+    private CharSet(int[] ranges) {
+      this.ranges = ranges;
+    }
+
+    static CharSet range(int low, int high) {
+      return new CharSet(new int[] {low, high});
+    }
+
+    static CharSet of(String chars) {
+      CharSet set = EMPTY;
+      for (int i = 0; i < chars.length(); i++) {
+        set = set.union(range(chars.charAt(i), chars.charAt(i)));
+      }
+      return set;
+    }
+
+    boolean isSingleChar() {
+      return ranges.length == 2 && ranges[0] == ranges[1];
+    }
+
+    boolean hasSurrogates() {
+      return intersects(range(Character.MIN_SURROGATE, Character.MAX_SURROGATE));
+    }
+
+    boolean contains(char c) {
+      // index of the first bound >= c
+      int i = Arrays.binarySearch(ranges, c);
+      if (i >= 0) return true;
+      return ((-i - 1) & 1) == 1;
+    }
+
+    CharSet union(CharSet that) {
+      if (that.ranges.length == 0) return this;
+      if (ranges.length == 0) return that;
+      int[] all = new int[ranges.length + that.ranges.length];
+      int n = 0;
+      for (int i = 0, j = 0; i < ranges.length || j < that.ranges.length;) {
+        int low;
+        int high;
+        if (j >= that.ranges.length || (i < ranges.length && ranges[i] <= that.ranges[j])) {
+          low = ranges[i];
+          high = ranges[i + 1];
+          i += 2;
+        } else {
+          low = that.ranges[j];
+          high = that.ranges[j + 1];
+          j += 2;
+        }
+        if (n > 0 && low <= all[n - 1] + 1) {
+          all[n - 1] = Math.max(all[n - 1], high);
+        } else {
+          all[n++] = low;
+          all[n++] = high;
+        }
+      }
+      return new CharSet(Arrays.copyOf(all, n));
+    }
+
+    CharSet complement() {
+      int[] result = new int[ranges.length + 2];
+      int n = 0;
+      int next = Character.MIN_VALUE;
+      for (int i = 0; i < ranges.length; i += 2) {
+        if (ranges[i] > next) {
+          result[n++] = next;
+          result[n++] = ranges[i] - 1;
+        }
+        next = ranges[i + 1] + 1;
+      }
+      if (next <= Character.MAX_VALUE) {
+        result[n++] = next;
+        result[n++] = Character.MAX_VALUE;
+      }
+      return new CharSet(Arrays.copyOf(result, n));
+    }
+
+    boolean intersects(CharSet that) {
+      for (int i = 0, j = 0; i < ranges.length && j < that.ranges.length;) {
+        if (ranges[i + 1] < that.ranges[j]) {
+          i += 2;
+        } else if (that.ranges[j + 1] < ranges[i]) {
+          j += 2;
+        } else {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    CharPredicate toPredicate(final String name) {
+      if (isSingleChar()) return CharPredicates.isChar((char) ranges[0]);
+      return AsciiCharPredicate.compile(new CharPredicate() {
+        @Override public boolean isChar(char c) {
+          return contains(c);
+        }
+        @Override public String toString() {
+          return name;
+        }
+      });
+    }
+  }
+}
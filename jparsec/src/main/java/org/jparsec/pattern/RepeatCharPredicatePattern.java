@@ -36,9 +36,7 @@ class RepeatCharPredicatePattern extends Pattern {
   static int matchRepeat(int n, CharPredicate predicate, CharSequence src, int length, int begin, int acc) {
     int end = begin + n;
     if (end > length) return MISMATCH;
-    for (int i = begin; i < end; i++) {
-      if (!predicate.isChar(src.charAt(i))) return MISMATCH;
-    }
+    if (AsciiCharPredicate.skip(predicate, src, begin, end) < end) return MISMATCH;
     return n + acc;
   }
 }
@@ -0,0 +1,100 @@
+/*****************************************************************************
+ * Copyright (C) jparsec.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package org.jparsec;
+
+import static org.jparsec.util.AllocationBudget.assertAllocatesAtMost;
+import static org.jparsec.util.WorstCaseInputs.repeat;
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
+import org.jparsec.Tokens.Fragment;
+import org.junit.Test;
+
+/**
+ * Allocation budgets for the hot paths of parsing, so that a change that makes them allocate a
+ * lot more fails the build. Each budget is about twice what is allocated today. Budgets that
+ * don't scale with the input assert that the path allocates nothing per character.
+ */
+public class AllocationBudgetTest {
+
+  private static final int N = 1000;
+
+  @Test
+  public void testOrBacktracking() {
+    Parser<Void> parser =
+        Parsers.or(Scanners.string("foo"), Scanners.string("fob"), Scanners.string("bar")).skipMany();
+    String source = repeat("bar", N);
+    assertEquals(null, parser.parse(source));
+    assertAllocatesAtMost(1024, () -> parser.parse(source));
+  }
+
+  @Test
+  public void testMany() {
+    Parser<List<Void>> parser = Scanners.isChar('a').many();
+    String source = repeat("a", N);
+    assertEquals(N, parser.parse(source).size());
+    assertAllocatesAtMost(32 * N, () -> parser.parse(source));
+  }
+
+  @Test
+  public void testIsChar() {
+    Parser<Void> parser = Scanners.isChar('a').skipMany();
+    String source = repeat("a", N);
+    assertAllocatesAtMost(1024, () -> parser.parse(source));
+  }
+
+  @Test
+  public void testToken() {
+    Parser<Void> parser = Parsers.token(t -> t.value() instanceof Fragment ? "" : null).skipMany()
+        .from(Terminals.Identifier.TOKENIZER, Scanners.WHITESPACES);
+    String source = repeat("foo ", N);
+    assertAllocatesAtMost(256 * N, () -> parser.parse(source));
+  }
+
+  @Test
+  public void testOperatorTable() {
+    Parser<Integer> number = Scanners.INTEGER.map(Integer::valueOf);
+    Parser<Integer> parser = new OperatorTable<Integer>()
+        .infixl(Scanners.isChar('+').retn((a, b) -> a + b), 10)
+        .infixl(Scanners.isChar('-').retn((a, b) -> a - b), 10)
+        .infixl(Scanners.isChar('*').retn((a, b) -> a * b), 20)
+        .prefix(Scanners.isChar('~').retn(a -> -a), 30)
+        .build(number);
+    String source = "1" + repeat("+2*~3-4", N);
+    assertEquals(Integer.valueOf(1 - 10 * N), parser.parse(source));
+    assertAllocatesAtMost(200 * source.length(), () -> parser.parse(source));
+  }
+
+  @Test
+  public void testTerminalsLexing() {
+    Terminals terminals = Terminals.operators("+", "-", "==", "(", ")")
+        .words(Scanners.IDENTIFIER)
+        .keywords("if", "else", "return")
+        .build();
+    Parser<List<Token>> lexer = terminals.tokenizer().lexer(Scanners.WHITESPACES);
+    String source = repeat("if ( a == b ) return c + d else e - f ", N / 10);
+    assertAllocatesAtMost(256 * N, () -> lexer.parse(source));
+  }
+
+  @Test
+  public void testTryParseFailure() {
+    Parser<Void> parser = Scanners.string("foo").skipMany();
+    String source = repeat("foo", N) + "fob";
+    assertEquals(3 * N, parser.tryParse(source).getErrorIndex());
+    assertAllocatesAtMost(1024, () -> parser.tryParse(source).isSuccess());
+  }
+}
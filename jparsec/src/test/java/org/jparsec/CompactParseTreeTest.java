@@ -0,0 +1,143 @@
+/*****************************************************************************
+ * Copyright (C) jparsec.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package org.jparsec;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+/**
+ * Unit test for {@link CompactParseTree}.
+ */
+public class CompactParseTreeTest {
+
+  @Test
+  public void testChildrenInParseOrder() {
+    CompactParseTree tree = new CompactParseTree();
+    int root = tree.newRoot("root", 0);
+    int a = tree.addChild(root, "a", 0);
+    tree.setResult(a, "x");
+    tree.setEndIndex(a, 1);
+    int b = tree.addChild(root, "b", 1);
+    tree.setEndIndex(b, 3);
+    tree.setEndIndex(root, 3);
+    ParseTree parseTree = tree.toParseTree(root);
+    assertEquals("root", parseTree.getName());
+    assertEquals(2, parseTree.getChildren().size());
+    assertEquals("a", parseTree.getChildren().get(0).getName());
+    assertEquals("x", parseTree.getChildren().get(0).getValue());
+    assertEquals(1, parseTree.getChildren().get(1).getBeginIndex());
+    assertEquals(3, parseTree.getChildren().get(1).getEndIndex());
+    assertSame(parseTree.getChildren(), parseTree.getChildren());
+  }
+
+  @Test
+  public void testTruncate() {
+    CompactParseTree tree = new CompactParseTree();
+    int root = tree.newRoot("root", 0);
+    for (int i = 0; i < 1000; i++) {
+      int failed = tree.addChild(root, "alternative", 0);
+      tree.setResult(tree.addChild(failed, "nested", 0), "garbage");
+      tree.setLatestChild(root, CompactParseTree.NONE);
+      tree.truncate(failed);
+    }
+    assertEquals(1, tree.size());
+    int child = tree.addChild(root, "child", 0);
+    assertEquals(1, child);
+    assertNull(tree.result(child));
+    assertEquals(CompactParseTree.NONE, tree.latestChild(child));
+  }
+
+  @Test
+  public void testTruncate_keepsPinnedNode() {
+    CompactParseTree tree = new CompactParseTree();
+    int root = tree.newRoot("root", 0);
+    int failed = tree.addChild(root, "failed", 0);
+    int error = tree.addChild(failed, "error", 2);
+    tree.pin(error);
+    tree.addChild(error, "after", 3);
+    tree.setLatestChild(root, CompactParseTree.NONE);
+    tree.truncate(failed);
+    assertEquals(3, tree.size());
+    ParseTree parseTree = tree.toParseTree(tree.freeze(tree.pinned(), 5));
+    assertEquals("root: {\nfailed: {\nerror: null\n}\n}", parseTree.toString());
+    assertEquals(5, parseTree.getChildren().get(0).getEndIndex());
+  }
+
+  @Test
+  public void testTruncate_releasesEarlierPins() {
+    CompactParseTree tree = new CompactParseTree();
+    int root = tree.newRoot("root", 0);
+    for (int i = 0; i < 1000; i++) {
+      int failed = tree.addChild(root, "alternative", i);
+      tree.pin(tree.addChild(failed, "error", i));
+      tree.setLatestChild(root, CompactParseTree.NONE);
+      tree.truncate(failed);
+    }
+    assertEquals(3, tree.size());
+    assertEquals(999, tree.beginIndex(tree.pinned()));
+    assertEquals(1, tree.addChild(root, "child", 0));
+  }
+
+  @Test
+  public void testTruncate_savesPathToPinnedNode() {
+    CompactParseTree tree = new CompactParseTree();
+    int root = tree.newRoot("root", 0);
+    int failed = tree.addChild(root, "failed", 0);
+    int alternative = tree.addChild(failed, "alternative", 0);
+    tree.pin(tree.addChild(alternative, "error", 1));
+    tree.setLatestChild(failed, CompactParseTree.NONE);
+    tree.truncate(alternative);
+    int succeeded = tree.addChild(failed, "succeeded", 0);
+    tree.setResult(tree.addChild(succeeded, "nested", 0), "value");
+    tree.setEndIndex(succeeded, 2);
+    tree.pin(tree.addChild(failed, "error", 2));
+    tree.setLatestChild(root, CompactParseTree.NONE);
+    tree.truncate(failed);
+    assertEquals(5, tree.size());
+    assertEquals(1, tree.addChild(root, "child", 0));
+    tree.setLatestChild(root, CompactParseTree.NONE);
+    ParseTree parseTree = tree.toParseTree(tree.freeze(tree.orphanize(tree.pinned()), 3));
+    assertEquals(
+        "root: {\nfailed: {\nsucceeded: {\nnested: value\n}\n}\n}", parseTree.toString());
+  }
+
+  @Test
+  public void testOrphanize() {
+    CompactParseTree tree = new CompactParseTree();
+    int root = tree.newRoot("root", 0);
+    assertEquals(root, tree.orphanize(root));
+    int a = tree.addChild(root, "a", 0);
+    tree.setEndIndex(a, 1);
+    int b = tree.addChild(root, "b", 1);
+    assertEquals(root, tree.orphanize(b));
+    assertEquals(a, tree.latestChild(root));
+  }
+
+  @Test
+  public void testLabelsAreInterned() {
+    CompactParseTree tree = new CompactParseTree();
+    int root = tree.newRoot("root", 0);
+    for (int i = 0; i < 100; i++) {
+      tree.addChild(root, new String("label" + (i % 3)), i);
+    }
+    ParseTree parseTree = tree.toParseTree(root);
+    assertEquals(100, parseTree.getChildren().size());
+    assertSame(parseTree.getChildren().get(1).getName(), parseTree.getChildren().get(4).getName());
+  }
+}
@@ -1190,6 +1190,26 @@ public class DebugModeTest {
     assertParseTree(rootNode("1 + 2"), tree);
   }
 
+  @Test
+  public void failedAlternativesOnLongInputAreDiscarded() {
+    Parser<String> word = Parsers.or(
+        Scanners.string("foo").source().label("foo"),
+        Scanners.string("bar").source().label("bar"),
+        Scanners.string("baz").source().label("baz")).label("word");
+    StringBuilder input = new StringBuilder();
+    for (int i = 0; i < 10000; i++) {
+      input.append("baz");
+    }
+    ParseTree tree = word.many().parseTree(input);
+    assertEquals(10000, tree.getChildren().size());
+    ParseTree last = tree.getChildren().get(9999);
+    assertEquals("word", last.getName());
+    assertEquals(29997, last.getBeginIndex());
+    assertEquals(30000, last.getEndIndex());
+    assertEquals(1, last.getChildren().size());
+    assertEquals("baz", last.getChildren().get(0).getName());
+  }
+
   private static void assertParseTree(MatchNode expected, ParseTree actual) {
     assertParseTree(0, expected, actual);
   }
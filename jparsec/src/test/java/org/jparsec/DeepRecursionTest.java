@@ -0,0 +1,155 @@
+/*****************************************************************************
+ * Copyright (C) jparsec.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package org.jparsec;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.jparsec.error.ParserException;
+import org.jparsec.util.WorstCaseInputs;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link DeepRecursion}.
+ */
+public class DeepRecursionTest {
+
+  private static final int DEPTH = 100000;
+
+  @Test
+  public void testShallowInputIsParsedOnCallingThread() {
+    Thread[] parsedOn = new Thread[1];
+    Parser<Integer> parser = parens(Scanners.isChar('x').map(x -> {
+      parsedOn[0] = Thread.currentThread();
+      return 0;
+    }));
+    assertEquals(Integer.valueOf(3), parser.parse("(((x)))"));
+    assertSame(Thread.currentThread(), parsedOn[0]);
+  }
+
+  @Test
+  public void testDeepInputIsParsedOnWorkerThreads() {
+    Thread[] parsedOn = new Thread[1];
+    Parser<Integer> parser = parens(Scanners.isChar('x').map(x -> {
+      parsedOn[0] = Thread.currentThread();
+      return 0;
+    }));
+    assertEquals(Integer.valueOf(DEPTH), parser.parse(WorstCaseInputs.nested("(", "x", ")", DEPTH)));
+    assertNotSame(Thread.currentThread(), parsedOn[0]);
+    assertEquals("jparsec-deep-recursion", parsedOn[0].getName());
+  }
+
+  @Test
+  public void testSiblingsAtHandoffDepthStayOnWorkerThread() {
+    int siblings = 20000;
+    Set<Thread> parsedOn = new HashSet<Thread>();
+    Parser.Reference<Integer> ref = Parser.newReference();
+    Parser<Integer> parser = Parsers.or(
+        ref.lazy().many().between(Scanners.isChar('('), Scanners.isChar(')'))
+            .map(l -> l.stream().mapToInt(Integer::intValue).sum()),
+        Scanners.isChar('x').map(x -> {
+          parsedOn.add(Thread.currentThread());
+          return 1;
+        }));
+    ref.set(parser);
+    String source = WorstCaseInputs.nested(
+        "(", WorstCaseInputs.repeat("x", siblings), ")", DeepRecursion.CALLER_DEPTH + 1);
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    long started = threads.getTotalStartedThreadCount();
+    assertEquals(Integer.valueOf(siblings), parser.parse(source));
+    long created = threads.getTotalStartedThreadCount() - started;
+    assertEquals(1, created);
+    assertEquals(1, parsedOn.size());
+    assertEquals("jparsec-deep-recursion", parsedOn.iterator().next().getName());
+  }
+
+  @Test
+  public void testDeepInputAfterShallowPrefixStartsOver() {
+    Parser<Integer> nested = parens(Scanners.isChar('x').retn(0));
+    Parser<List<Integer>> parser = nested.sepBy(Scanners.isChar(','));
+    String deep = WorstCaseInputs.nested("(", "x", ")", DeepRecursion.CALLER_DEPTH * 2);
+    assertEquals(Arrays.asList(1, DeepRecursion.CALLER_DEPTH * 2, 0),
+        parser.parse("(x)," + deep + ",x"));
+    assertEquals(Arrays.asList(1, DeepRecursion.CALLER_DEPTH * 2),
+        parser.parse("(x)," + deep, Parser.Mode.DEBUG));
+  }
+
+  @Test
+  public void testDeepInputInDebugMode() {
+    Parser<Integer> parser = parens(Scanners.isChar('x').retn(0));
+    assertEquals(Integer.valueOf(DEPTH / 10), parser.parse(
+        WorstCaseInputs.nested("(", "x", ")", DEPTH / 10), Parser.Mode.DEBUG));
+  }
+
+  @Test
+  public void testDeepTokenLevelInput() {
+    Terminals terminals = Terminals.operators("(", ")", "x");
+    Parser<Integer> parser = parens(terminals.token("("), terminals.token("x").retn(0),
+        terminals.token(")"));
+    assertEquals(Integer.valueOf(DEPTH), parser.from(terminals.tokenizer(), Scanners.WHITESPACES)
+        .parse(WorstCaseInputs.nested("( ", "x", " )", DEPTH)));
+  }
+
+  @Test
+  public void testDeepInputWithCompiledParser() {
+    Parser<Integer> parser = parens(Scanners.isChar('x').retn(0)).compile();
+    assertEquals(Integer.valueOf(DEPTH), parser.parse(WorstCaseInputs.nested("(", "x", ")", DEPTH)));
+  }
+
+  @Test
+  public void testErrorInDeepInput() {
+    Parser<Integer> parser = parens(Scanners.isChar('x').retn(0));
+    try {
+      parser.parse(WorstCaseInputs.nested("(", "y", ")", DEPTH));
+      fail();
+    } catch (ParserException e) {
+      assertEquals(DEPTH + 1, e.getLocation().column);
+    }
+  }
+
+  @Test
+  public void testExceptionInDeepInputIsPropagated() {
+    Parser<Integer> parser = parens(Scanners.isChar('x').map(x -> {
+      throw new IllegalStateException("deep");
+    }));
+    try {
+      parser.parse(WorstCaseInputs.nested("(", "x", ")", DEPTH));
+      fail();
+    } catch (ParserException e) {
+      assertEquals("deep", e.getCause().getMessage());
+    }
+  }
+
+  private static Parser<Integer> parens(Parser<Integer> leaf) {
+    return parens(Scanners.isChar('('), leaf, Scanners.isChar(')'));
+  }
+
+  private static Parser<Integer> parens(Parser<?> open, Parser<Integer> leaf, Parser<?> close) {
+    Parser.Reference<Integer> ref = Parser.newReference();
+    Parser<Integer> parser = Parsers.or(ref.lazy().between(open, close).map(n -> n + 1), leaf);
+    ref.set(parser);
+    return parser;
+  }
+}
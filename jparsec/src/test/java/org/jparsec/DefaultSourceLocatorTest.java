@@ -16,10 +16,20 @@
 package org.jparsec;
 
 import org.jparsec.error.Location;
-import org.jparsec.internal.util.IntList;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.fail;
 
 /**
@@ -48,172 +58,299 @@ public class DefaultSourceLocatorTest {
 
   @Test
   public void testBinarySearch_firstElementIsEqual() {
-    assertEquals(0, SourceLocator.binarySearch(intList(1, 2, 3), 1));
+    assertEquals(0, SourceLocator.binarySearch(ints(1, 2, 3), 1));
   }
 
   @Test
   public void testBinarySearch_firstElementIsBigger() {
-    assertEquals(0, SourceLocator.binarySearch(intList(1, 2, 3), 0));
+    assertEquals(0, SourceLocator.binarySearch(ints(1, 2, 3), 0));
   }
 
   @Test
   public void testBinarySearch_secondElementIsEqual() {
-    assertEquals(1, SourceLocator.binarySearch(intList(1, 2, 3), 2));
+    assertEquals(1, SourceLocator.binarySearch(ints(1, 2, 3), 2));
   }
 
   @Test
   public void testBinarySearch_secondElementIsBigger() {
-    assertEquals(1, SourceLocator.binarySearch(intList(1, 3, 5), 2));
+    assertEquals(1, SourceLocator.binarySearch(ints(1, 3, 5), 2));
   }
 
   @Test
   public void testBinarySearch_lastElementIsEqual() {
-    assertEquals(2, SourceLocator.binarySearch(intList(1, 3, 5), 5));
+    assertEquals(2, SourceLocator.binarySearch(ints(1, 3, 5), 5));
   }
 
   @Test
   public void testBinarySearch_lastElementIsBigger() {
-    assertEquals(2, SourceLocator.binarySearch(intList(1, 3, 5), 4));
+    assertEquals(2, SourceLocator.binarySearch(ints(1, 3, 5), 4));
   }
 
   @Test
   public void testBinarySearch_allSmaller() {
-    assertEquals(3, SourceLocator.binarySearch(intList(1, 3, 5), 10));
+    assertEquals(3, SourceLocator.binarySearch(ints(1, 3, 5), 10));
   }
 
   @Test
   public void testBinarySearch_oneEqualElement() {
-    assertEquals(0, SourceLocator.binarySearch(intList(1), 1));
+    assertEquals(0, SourceLocator.binarySearch(ints(1), 1));
   }
 
   @Test
   public void testBinarySearch_oneBiggerElement() {
-    assertEquals(0, SourceLocator.binarySearch(intList(2), 1));
+    assertEquals(0, SourceLocator.binarySearch(ints(2), 1));
   }
 
   @Test
   public void testBinarySearch_oneSmallerElement() {
-    assertEquals(1, SourceLocator.binarySearch(intList(0), 1));
+    assertEquals(1, SourceLocator.binarySearch(ints(0), 1));
   }
 
   @Test
   public void testBinarySearch_noElement() {
-    assertEquals(0, SourceLocator.binarySearch(intList(), 1));
+    assertEquals(0, SourceLocator.binarySearch(ints(), 1));
   }
 
   @Test
-  public void testLookup_noLineBreaksScanned() {
+  public void testLocate_noLineBreaks() {
     SourceLocator locator = new SourceLocator("whatever", 2, 3);
-    assertEquals(new Location(2, 4), locator.lookup(1));
+    assertEquals(new Location(2, 4), locator.locate(1));
   }
 
   @Test
-  public void testLookup_inFirstLine() {
-    SourceLocator locator = new SourceLocator("whatever", 2, 3);
-    addLineBreaks(locator, 3, 5, 7);
-    assertEquals(new Location(2, 4), locator.lookup(1));
+  public void testLocate_inFirstLine() {
+    SourceLocator locator = new SourceLocator("wha\nt\ne\nver", 2, 3);
+    assertEquals(new Location(2, 4), locator.locate(1));
   }
 
   @Test
-  public void testLookup_firstLineBreak() {
-    SourceLocator locator = new SourceLocator("whatever", 2, 3);
-    addLineBreaks(locator, 3, 5, 7);
-    assertEquals(new Location(2, 6), locator.lookup(3));
+  public void testLocate_firstLineBreak() {
+    SourceLocator locator = new SourceLocator("wha\nt\ne\nver", 2, 3);
+    assertEquals(new Location(2, 6), locator.locate(3));
   }
 
   @Test
-  public void testLookup_firstCharInSecondLine() {
-    SourceLocator locator = new SourceLocator("whatever", 2, 3);
-    addLineBreaks(locator, 3, 5, 7);
-    assertEquals(new Location(3, 1), locator.lookup(4));
+  public void testLocate_firstCharInSecondLine() {
+    SourceLocator locator = new SourceLocator("wha\nt\ne\nver", 2, 3);
+    assertEquals(new Location(3, 1), locator.locate(4));
   }
 
   @Test
-  public void testLookup_lastCharInSecondLine() {
-    SourceLocator locator = new SourceLocator("whatever", 2, 3);
-    addLineBreaks(locator, 3, 5, 7);
-    assertEquals(new Location(3, 2), locator.lookup(5));
+  public void testLocate_lastCharInSecondLine() {
+    SourceLocator locator = new SourceLocator("wha\nt\ne\nver", 2, 3);
+    assertEquals(new Location(3, 2), locator.locate(5));
   }
 
   @Test
-  public void testLookup_firstCharInThirdLine() {
-    SourceLocator locator = new SourceLocator("whatever", 2, 3);
-    addLineBreaks(locator, 3, 5, 7);
-    assertEquals(new Location(4, 1), locator.lookup(6));
+  public void testLocate_firstCharInThirdLine() {
+    SourceLocator locator = new SourceLocator("wha\nt\ne\nver", 2, 3);
+    assertEquals(new Location(4, 1), locator.locate(6));
   }
 
   @Test
-  public void testLookup_lastCharInThirdLine() {
-    SourceLocator locator = new SourceLocator("whatever", 2, 3);
-    addLineBreaks(locator, 3, 5, 7);
-    assertEquals(new Location(4, 2), locator.lookup(7));
+  public void testLocate_lastCharInThirdLine() {
+    SourceLocator locator = new SourceLocator("wha\nt\ne\nver", 2, 3);
+    assertEquals(new Location(4, 2), locator.locate(7));
   }
 
   @Test
-  public void testLookup_firstCharInLastLine() {
-    SourceLocator locator = new SourceLocator("whatever", 2, 3);
-    addLineBreaks(locator, 3, 5, 7);
-    assertEquals(new Location(5, 1), locator.lookup(8));
+  public void testLocate_firstCharInLastLine() {
+    SourceLocator locator = new SourceLocator("wha\nt\ne\nver", 2, 3);
+    assertEquals(new Location(5, 1), locator.locate(8));
   }
 
   @Test
-  public void testLookup_secondCharInLastLine() {
-    SourceLocator locator = new SourceLocator("whatever", 2, 3);
-    addLineBreaks(locator, 3, 5, 7);
-    assertEquals(new Location(5, 2), locator.lookup(9));
+  public void testLocate_secondCharInLastLine() {
+    SourceLocator locator = new SourceLocator("wha\nt\ne\nver", 2, 3);
+    assertEquals(new Location(5, 2), locator.locate(9));
   }
 
   @Test
-  public void testScanTo_indexOutOfBounds() {
+  public void testLocate_indexOutOfBounds() {
     SourceLocator locator = new SourceLocator("whatever", 2, 3);
     try {
-      locator.scanTo(100);
+      locator.locate(100);
       fail();
     } catch (StringIndexOutOfBoundsException e) {}
   }
 
   @Test
-  public void testScanTo_indexOnEof() {
+  public void testLocate_indexOnEof() {
     SourceLocator locator = new SourceLocator("foo", 2, 3);
-    assertEquals(new Location(2, 6), locator.scanTo(3));
-    assertEquals(3, locator.nextIndex);
-    assertEquals(3, locator.nextColumnIndex);
+    assertEquals(new Location(2, 6), locator.locate(3));
   }
 
   @Test
-  public void testScanTo_spansLines() {
+  public void testLocate_spansLines() {
     SourceLocator locator = new SourceLocator("foo\nbar\n", 2, 3);
-    assertEquals(new Location(3, 1), locator.scanTo(4));
-    assertEquals(5, locator.nextIndex);
-    assertEquals(1, locator.nextColumnIndex);
+    assertEquals(new Location(3, 1), locator.locate(4));
   }
 
   @Test
-  public void testScanTo_lastCharOfLine() {
+  public void testLocate_lastCharOfLine() {
     SourceLocator locator = new SourceLocator("foo\nbar\n", 2, 3);
-    assertEquals(new Location(3, 4), locator.scanTo(7));
-    assertEquals(8, locator.nextIndex);
-    assertEquals(0, locator.nextColumnIndex);
+    assertEquals(new Location(3, 4), locator.locate(7));
+  }
+
+  @Test
+  public void testLocate_eofAfterLineBreak() {
+    SourceLocator locator = new SourceLocator("foo\nbar\n", 2, 3);
+    assertEquals(new Location(4, 1), locator.locate(8));
   }
 
   @Test
   public void testLocate() {
     SourceLocator locator = new SourceLocator("foo\nbar\n", 2, 3);
     assertEquals(new Location(3, 4), locator.locate(7));
-    assertEquals(new Location(2, 5), locator.locate(2)); // this will call lookup()
+    assertEquals(new Location(2, 5), locator.locate(2));
+  }
+
+  @Test
+  public void testLocate_crlf() {
+    SourceLocator locator = new SourceLocator("ab\r\ncd\r\n");
+    assertEquals(new Location(1, 3), locator.locate(2));
+    assertEquals(new Location(1, 4), locator.locate(3));
+    assertEquals(new Location(2, 1), locator.locate(4));
+    assertEquals(new Location(3, 1), locator.locate(8));
+  }
+
+  @Test
+  public void testLocate_carriageReturnOnly() {
+    SourceLocator locator = new SourceLocator("ab\rcd\r");
+    assertEquals(new Location(1, 3), locator.locate(2));
+    assertEquals(new Location(2, 1), locator.locate(3));
+    assertEquals(new Location(2, 3), locator.locate(5));
+    assertEquals(new Location(3, 1), locator.locate(6));
+  }
+
+  @Test
+  public void testScanLineBreaks() {
+    assertArrayEquals(ints(), SourceLocator.scanLineBreaks(""));
+    assertArrayEquals(ints(1, 3), SourceLocator.scanLineBreaks("a\nb\n"));
+    assertArrayEquals(ints(2, 3, 5), SourceLocator.scanLineBreaks("a\r\n\rb\r"));
+    assertArrayEquals(ints(2, 3, 5), SourceLocator.scanLineBreaks(new StringBuilder("a\r\n\rb\r")));
+    assertArrayEquals(ints(1, 3), SourceLocator.scanLineBreaks(new StringBuilder("a\nb\n")));
   }
-  
-  private static void addLineBreaks(SourceLocator locator, int... indices) {
-    for (int i : indices) {
-      locator.lineBreakIndices.add(i);
+
+  @Test
+  public void testLocate_range() {
+    String source = "x\nab\r\ncd\r\ny";
+    SourceLocator locator = SourceLocator.ofRange(source, 2, 10);
+    assertEquals(new Location(1, 1), locator.locate(2));
+    assertEquals(new Location(1, 3), locator.locate(4));
+    assertEquals(new Location(2, 1), locator.locate(6));
+    assertEquals(new Location(3, 1), locator.locate(10));
+    assertArrayEquals(ints(5, 9), locator.lineBreakIndices());
+    assertArrayEquals(
+        ints(5, 9), SourceLocator.ofRange(new StringBuilder(source), 2, 10).lineBreakIndices());
+    try {
+      locator.locate(1);
+      fail();
+    } catch (StringIndexOutOfBoundsException e) {}
+    try {
+      locator.locate(11);
+      fail();
+    } catch (StringIndexOutOfBoundsException e) {}
+  }
+
+  @Test
+  public void testLocate_rangeInSource() {
+    String source = "x\r\nab\rcd\nyz";
+    SourceLocator locator = SourceLocator.ofRangeInSource(source, 4, 10);
+    assertArrayEquals(ints(5, 8), locator.lineBreakIndices());
+    assertEquals(new Location(2, 2), locator.locate(4));
+    assertEquals(new Location(3, 2), locator.locate(7));
+    assertEquals(new Location(4, 2), locator.locate(10));
+    assertEquals(new Location(2, 1), SourceLocator.ofRangeInSource(source, 3, 3).locate(3));
+    assertEquals(new Location(1, 3), SourceLocator.ofRangeInSource(source, 1, 3).locate(2));
+  }
+
+  @Test
+  public void testLineBreakIndicesAreBuiltOnce() {
+    SourceLocator locator = new SourceLocator("a\nb");
+    assertSame(locator.lineBreakIndices(), locator.lineBreakIndices());
+  }
+
+  @Test
+  public void testResolveAll() {
+    String source = randomSource(new Random(1), 2000);
+    SourceLocator locator = new SourceLocator(source, 3, 5);
+    Random random = new Random(2);
+    int[] ascending = new int[500];
+    int[] shuffled = new int[500];
+    for (int i = 0; i < shuffled.length; i++) {
+      shuffled[i] = random.nextInt(source.length() + 1);
+      ascending[i] = shuffled[i];
     }
+    Arrays.sort(ascending);
+    assertResolveAll(locator, ascending);
+    assertResolveAll(locator, shuffled);
+    assertResolveAll(locator, ints());
+    assertResolveAll(locator, ints(source.length(), 0, source.length(), 0));
   }
-  
-  private static IntList intList(int... ints) {
-    IntList intList = new IntList();
-    for (int i : ints) {
-      intList.add(i);
+
+  @Test
+  public void testResolveAll_indexOutOfBounds() {
+    SourceLocator locator = new SourceLocator("foo");
+    try {
+      locator.resolveAll(ints(1, 4));
+      fail();
+    } catch (StringIndexOutOfBoundsException e) {}
+    try {
+      locator.resolveAll(ints(4, 1));
+      fail();
+    } catch (StringIndexOutOfBoundsException e) {}
+  }
+
+  @Test
+  public void testLocate_concurrently() throws Exception {
+    final String source = randomSource(new Random(3), 20000);
+    final SourceLocator expected = new SourceLocator(source);
+    for (int round = 0; round < 20; round++) {
+      final SourceLocator locator = new SourceLocator(source);
+      ExecutorService executor = Executors.newFixedThreadPool(4);
+      try {
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (int t = 0; t < 4; t++) {
+          final int seed = t;
+          futures.add(executor.submit(new Callable<Void>() {
+            @Override public Void call() {
+              Random random = new Random(seed);
+              for (int i = 0; i < 100; i++) {
+                int index = random.nextInt(source.length() + 1);
+                assertEquals(expected.locate(index), locator.locate(index));
+              }
+              return null;
+            }
+          }));
+        }
+        for (Future<?> future : futures) {
+          future.get();
+        }
+      } finally {
+        executor.shutdown();
+      }
+    }
+  }
+
+  private static void assertResolveAll(SourceLocator locator, int[] indices) {
+    Location[] locations = locator.resolveAll(indices);
+    assertEquals(indices.length, locations.length);
+    for (int i = 0; i < indices.length; i++) {
+      assertEquals(locator.locate(indices[i]), locations[i]);
     }
-    return intList;
+  }
+
+  private static String randomSource(Random random, int length) {
+    String alphabet = "abc \t\n\r";
+    StringBuilder builder = new StringBuilder(length);
+    for (int i = 0; i < length; i++) {
+      builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+    }
+    return builder.toString();
+  }
+
+  private static int[] ints(int... ints) {
+    return ints;
   }
 }
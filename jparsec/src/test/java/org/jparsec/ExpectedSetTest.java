@@ -0,0 +1,115 @@
+/*****************************************************************************
+ * Copyright (C) jparsec.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package org.jparsec;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Unit test for {@link ExpectedSet}.
+ */
+public class ExpectedSetTest {
+
+  @Test
+  public void testAdd_deduplicatesByIdentity() {
+    ExpectedSet set = new ExpectedSet(10);
+    String a = "a";
+    String anotherA = new String("a");
+    set.add(a);
+    set.add(a);
+    set.add(anotherA);
+    set.add(null);
+    set.add(null);
+    assertEquals(3, set.size());
+    assertSame(a, set.get(0));
+    assertSame(anotherA, set.get(1));
+    assertEquals(null, set.get(2));
+  }
+
+  @Test
+  public void testAdd_stopsAtCapacity() {
+    ExpectedSet set = new ExpectedSet(3);
+    for (int i = 0; i < 10; i++) {
+      set.add(Integer.toString(i));
+    }
+    assertEquals(3, set.size());
+    assertEquals("0", set.get(0));
+    assertEquals("2", set.get(2));
+  }
+
+  @Test
+  public void testAddAll() {
+    ExpectedSet from = new ExpectedSet(100);
+    ExpectedSet to = new ExpectedSet(2);
+    from.add("a");
+    from.add("b");
+    from.add("c");
+    to.add("b");
+    to.addAll(from);
+    assertEquals(2, to.size());
+    assertEquals("b", to.get(0));
+    assertEquals("a", to.get(1));
+  }
+
+  @Test
+  public void testClear() {
+    ExpectedSet set = new ExpectedSet(100);
+    for (int i = 0; i < 50; i++) {
+      set.add(Integer.valueOf(i + 1000));
+    }
+    set.clear();
+    assertEquals(0, set.size());
+    Object subject = new Object();
+    set.add(subject);
+    set.add(subject);
+    assertEquals(1, set.size());
+  }
+
+  @Test
+  public void testAgreesWithIdentitySet() {
+    Random random = new Random(5);
+    Object[] pool = new Object[300];
+    for (int i = 0; i < pool.length; i++) {
+      pool[i] = new Object();
+    }
+    for (int capacity : new int[] {1, 5, 8, 9, 100, 1000}) {
+      ExpectedSet set = new ExpectedSet(capacity);
+      for (int round = 0; round < 50; round++) {
+        IdentityHashMap<Object, Object> seen = new IdentityHashMap<Object, Object>();
+        List<Object> expected = new ArrayList<Object>();
+        for (int i = random.nextInt(400); i > 0; i--) {
+          Object subject = pool[random.nextInt(random.nextBoolean() ? 12 : pool.length)];
+          set.add(subject);
+          if (expected.size() < capacity && seen.put(subject, subject) == null) {
+            expected.add(subject);
+          }
+        }
+        assertEquals(expected.size(), set.size());
+        for (int i = 0; i < expected.size(); i++) {
+          assertSame(expected.get(i), set.get(i));
+        }
+        set.clear();
+      }
+    }
+  }
+}
@@ -0,0 +1,166 @@
+/*****************************************************************************
+ * Copyright (C) jparsec.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package org.jparsec;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.jparsec.error.ParserException;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link JfrEvents}, reading the events back from a recording.
+ */
+public class JfrEventsTest {
+
+  private static final Terminals OPERATORS = Terminals.operators("+");
+  private static final Parser<?> SUM = Terminals.IntegerLiteral.PARSER.label("literal")
+      .sepBy1(OPERATORS.token("+"))
+      .from(Parsers.or(Terminals.IntegerLiteral.TOKENIZER, OPERATORS.tokenizer()),
+          Scanners.WHITESPACES.skipMany());
+
+  @Before
+  public void assumeFlightRecorder() {
+    Assume.assumeTrue(FlightRecorder.isAvailable());
+  }
+
+  @Test
+  public void testParseAndLexEvents() throws IOException {
+    List<RecordedEvent> events;
+    try (Recording recording = new Recording()) {
+      recording.enable("org.jparsec.Parse");
+      recording.enable("org.jparsec.Lex");
+      recording.start();
+      SUM.parse("1 + 22 + 333");
+      try {
+        SUM.parse("1 + + 2", Parser.Mode.DEBUG);
+        fail();
+      } catch (ParserException expected) {}
+      recording.stop();
+      events = read(recording);
+    }
+    List<RecordedEvent> parses = filter(events, "org.jparsec.Parse");
+    assertEquals(2, parses.size());
+    RecordedEvent success = parses.get(0);
+    assertEquals(12, success.getInt("inputLength"));
+    assertEquals("PRODUCTION", success.getString("mode"));
+    assertEquals(5, success.getInt("tokenCount"));
+    assertTrue(success.getBoolean("success"));
+    assertEquals(-1, success.getInt("errorIndex"));
+    RecordedEvent failure = parses.get(1);
+    assertEquals("DEBUG", failure.getString("mode"));
+    assertFalse(failure.getBoolean("success"));
+    assertEquals(4, failure.getInt("errorIndex"));
+
+    List<RecordedEvent> lexes = filter(events, "org.jparsec.Lex");
+    assertEquals(2, lexes.size());
+    assertEquals(12, lexes.get(0).getInt("inputLength"));
+    assertEquals(5, lexes.get(0).getInt("tokenCount"));
+    assertTrue(lexes.get(0).getBoolean("success"));
+    assertEquals(filter(events, "org.jparsec.SlowRule").size(), 0);
+  }
+
+  @Test
+  public void testSlowRuleEvents() throws IOException {
+    Parser<?> slow = Scanners.isChar('x').map(x -> {
+      try {
+        Thread.sleep(20);
+      } catch (InterruptedException e) {
+        throw new AssertionError(e);
+      }
+      return x;
+    }).label("slow").many().label("slows");
+    List<RecordedEvent> events;
+    try (Recording recording = new Recording()) {
+      recording.enable("org.jparsec.SlowRule").withThreshold(Duration.ofMillis(5));
+      recording.start();
+      slow.parse("xx");
+      recording.stop();
+      events = read(recording);
+    }
+    List<RecordedEvent> rules = filter(events, "org.jparsec.SlowRule");
+    assertEquals(3, rules.size());
+    assertEquals("slow", rules.get(0).getString("rule"));
+    assertEquals(0, rules.get(0).getInt("beginIndex"));
+    assertEquals(1, rules.get(0).getInt("endIndex"));
+    assertTrue(rules.get(0).getBoolean("success"));
+    assertTrue(rules.get(0).getDuration().toMillis() >= 5);
+    assertEquals("slows", rules.get(2).getString("rule"));
+    assertEquals(2, rules.get(2).getInt("endIndex"));
+  }
+
+  @Test
+  public void testNoEventsWhenDisabled() throws IOException {
+    List<RecordedEvent> events;
+    try (Recording recording = new Recording()) {
+      recording.disable("org.jparsec.Parse");
+      recording.disable("org.jparsec.Lex");
+      recording.start();
+      assertFalse(ParseEvents.isSlowRuleEnabled());
+      assertNull(ParseEvents.beginParse());
+      assertNull(ParseEvents.beginLex());
+      SUM.parse("1 + 2");
+      recording.stop();
+      events = read(recording);
+    }
+    for (RecordedEvent event : events) {
+      assertFalse(event.getEventType().getName().startsWith("org.jparsec."));
+    }
+  }
+
+  @Test
+  public void testNotRecording() {
+    assertFalse(ParseEvents.isSlowRuleEnabled());
+    assertNull(ParseEvents.beginParse());
+    assertNull(ParseEvents.beginLex());
+  }
+
+  private static List<RecordedEvent> read(Recording recording) throws IOException {
+    Path file = Files.createTempFile("jparsec", ".jfr");
+    try {
+      recording.dump(file);
+      return RecordingFile.readAllEvents(file);
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  private static List<RecordedEvent> filter(List<RecordedEvent> events, String name) {
+    List<RecordedEvent> result = new ArrayList<RecordedEvent>();
+    for (RecordedEvent event : events) {
+      if (event.getEventType().getName().equals(name)) result.add(event);
+    }
+    result.sort((a, b) -> a.getEndTime().compareTo(b.getEndTime()));
+    return result;
+  }
+}
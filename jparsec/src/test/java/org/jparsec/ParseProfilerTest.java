@@ -0,0 +1,148 @@
+/*****************************************************************************
+ * Copyright (C) jparsec.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package org.jparsec;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+
+import org.jparsec.error.ParserException;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link ParseProfiler}.
+ */
+public class ParseProfilerTest {
+
+  private static final Parser<String> NUMBER = Scanners.INTEGER.label("number");
+  private static final Parser<?> ASSIGNMENT = Parsers.or(
+      Parsers.sequence(Scanners.IDENTIFIER, Scanners.isChar('='), NUMBER).label("assign"),
+      Parsers.sequence(Scanners.IDENTIFIER, Scanners.isChar('+'), NUMBER).label("add"));
+  private static final Parser<?> STATEMENTS =
+      ASSIGNMENT.sepBy(Scanners.isChar(';')).label("statements");
+
+  @Test
+  public void testCounts() {
+    ParseProfiler profiler = new ParseProfiler();
+    profiler.parse(STATEMENTS, "a=1;bb+2;c=3");
+    assertRule(profiler, "statements", 1, 1, 0, 12, 0);
+    assertRule(profiler, "assign", 3, 2, 1, 6, 2);
+    assertRule(profiler, "add", 1, 1, 0, 4, 0);
+    assertRule(profiler, "number", 3, 3, 0, 3, 0);
+    assertEquals(1, profiler.getBacktrackingHotSpots().size());
+    assertEquals("assign", profiler.getBacktrackingHotSpots().get(0).getName());
+  }
+
+  @Test
+  public void testAccumulatesAcrossParses() {
+    ParseProfiler profiler = new ParseProfiler();
+    profiler.parse(NUMBER, "1");
+    profiler.parse(NUMBER, "23");
+    assertRule(profiler, "number", 2, 2, 0, 3, 0);
+    profiler.reset();
+    assertTrue(profiler.getRules().isEmpty());
+  }
+
+  @Test
+  public void testRecordsFailedParse() {
+    ParseProfiler profiler = new ParseProfiler();
+    try {
+      profiler.parse(STATEMENTS, "a=1;b");
+      fail();
+    } catch (ParserException e) {
+      assertEquals(1, e.getLine());
+    }
+    assertRule(profiler, "assign", 2, 1, 1, 3, 1);
+    assertRule(profiler, "add", 1, 0, 1, 0, 1);
+  }
+
+  @Test
+  public void testRecursionDepth() {
+    Parser.Reference<Object> ref = Parser.newReference();
+    Parser<Object> nested = Parsers.or(
+        Parsers.between(Scanners.isChar('('), ref.lazy(), Scanners.isChar(')')),
+        Scanners.isChar('x')).label("nested");
+    ref.set(nested);
+    ParseProfiler profiler = new ParseProfiler();
+    profiler.parse(nested, "(((x)))");
+    ParseProfiler.RuleProfile rule = rule(profiler, "nested");
+    assertEquals(4, rule.getMaxDepth());
+    assertTrue(rule.getTotalNanos() >= rule.getSelfNanos());
+  }
+
+  @Test
+  public void testNestedTokenLevelParser() {
+    Terminals terms = Terminals.operators("+");
+    Parser<?> lexer = Parsers.or(Terminals.IntegerLiteral.TOKENIZER, terms.tokenizer());
+    Parser<?> sum = Terminals.IntegerLiteral.PARSER.label("literal")
+        .sepBy1(terms.token("+")).label("sum");
+    ParseProfiler profiler = new ParseProfiler();
+    profiler.parse(sum.from(lexer, Scanners.WHITESPACES.skipMany()), "1 + 22 + 333");
+    // Token-level indices are source indices, so the delimiters after each token are included.
+    assertRule(profiler, "literal", 3, 3, 0, 8, 0);
+  }
+
+  @Test
+  public void testReports() {
+    ParseProfiler profiler = new ParseProfiler();
+    profiler.parse(STATEMENTS, "a=1;bb+2");
+    String text = profiler.toString();
+    assertTrue(text, text.startsWith("rule "));
+    assertTrue(text, text.contains("Backtracking hot spots:\n  assign: 2 chars backtracked"));
+    String json = profiler.toJson();
+    assertTrue(json, json.startsWith("{\"rules\":[{\"name\":"));
+    assertTrue(json, json.contains("{\"name\":\"add\",\"invocations\":1,\"successes\":1,"
+        + "\"failures\":0,\"consumedChars\":4,\"backtrackedChars\":0,\"maxDepth\":1,"));
+    assertTrue(json, json.endsWith("],\"hotSpots\":[\"assign\"]}"));
+  }
+
+  @Test
+  public void testJsonEscaping() {
+    ParseProfiler profiler = new ParseProfiler();
+    profiler.parse(Scanners.isChar('a').label("\"a\"\n\\"), "a");
+    assertTrue(profiler.toJson(), profiler.toJson().contains("\"name\":\"\\\"a\\\"\\n\\\\\""));
+  }
+
+  @Test
+  public void testSortOrder() {
+    ParseProfiler profiler = new ParseProfiler();
+    profiler.parse(STATEMENTS, "a=1;bb+2;c=3");
+    List<ParseProfiler.RuleProfile> rules = profiler.getRules(ParseProfiler.BY_INVOCATIONS);
+    assertEquals(4, rules.size());
+    assertEquals(3, rules.get(0).getInvocations());
+    assertEquals(1, rules.get(3).getInvocations());
+    assertEquals("assign", profiler.getRules(ParseProfiler.BY_BACKTRACKED_CHARS).get(0).getName());
+  }
+
+  private static void assertRule(ParseProfiler profiler, String name, long invocations,
+      long successes, long failures, long consumed, long backtracked) {
+    ParseProfiler.RuleProfile rule = rule(profiler, name);
+    assertEquals(name, invocations, rule.getInvocations());
+    assertEquals(name, successes, rule.getSuccesses());
+    assertEquals(name, failures, rule.getFailures());
+    assertEquals(name, consumed, rule.getConsumedChars());
+    assertEquals(name, backtracked, rule.getBacktrackedChars());
+  }
+
+  private static ParseProfiler.RuleProfile rule(ParseProfiler profiler, String name) {
+    for (ParseProfiler.RuleProfile rule : profiler.getRules()) {
+      if (rule.getName().equals(name)) return rule;
+    }
+    throw new AssertionError(name + " not found in " + profiler.getRules());
+  }
+}
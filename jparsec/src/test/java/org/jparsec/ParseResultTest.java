@@ -0,0 +1,148 @@
+/*****************************************************************************
+ * Copyright (C) jparsec.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package org.jparsec;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import org.jparsec.error.ParserException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+/**
+ * Unit test for {@link ParseResult}.
+ */
+@RunWith(Parameterized.class)
+public class ParseResultTest {
+
+  @Parameterized.Parameters
+  public static Collection<Object[]> data() {
+    return Arrays.asList(new Object[] {Parser.Mode.PRODUCTION}, new Object[] {Parser.Mode.DEBUG});
+  }
+
+  private final Parser.Mode mode;
+
+  public ParseResultTest(Parser.Mode mode) {
+    this.mode = mode;
+  }
+
+  private static final Parser<Integer> SUM = Scanners.INTEGER.map(Integer::valueOf)
+      .label("number")
+      .sepBy1(Scanners.isChar('+'))
+      .map(list -> list.stream().mapToInt(Integer::intValue).sum());
+
+  @Test
+  public void testSuccess() {
+    ParseResult<Integer> result = SUM.tryParse("1+2+3", mode);
+    assertTrue(result.isSuccess());
+    assertEquals(Integer.valueOf(6), result.get());
+    assertEquals(Integer.valueOf(6), result.orElse(0));
+    assertEquals("6", result.toString());
+    assertEquals(5, result.getLength());
+    if (mode == Parser.Mode.DEBUG) {
+      assertEquals("root", result.getParseTree().getName());
+      assertEquals(3, result.getParseTree().getChildren().size());
+    } else {
+      assertNull(result.getParseTree());
+    }
+  }
+
+  @Test
+  public void testFailureHasSameErrorAsParse() {
+    String source = "1+2+3+x";
+    ParseResult<Integer> result = SUM.tryParse(source, mode);
+    assertFalse(result.isSuccess());
+    assertEquals(Integer.valueOf(0), result.orElse(0));
+    ParserException thrown = parseError(source);
+    assertEquals(thrown.getMessage(), result.getErrorMessage());
+    assertEquals(thrown.getMessage(), result.toString());
+    assertEquals(6, result.getErrorIndex());
+    assertEquals(1, result.getLine());
+    assertEquals(7, result.getColumn());
+    assertEquals(Arrays.asList("number"), result.getErrorDetails().getExpected());
+    assertEquals("x", result.getErrorDetails().getEncountered());
+    if (mode == Parser.Mode.DEBUG) {
+      assertNotNull(result.getParseTree());
+    } else {
+      assertNull(result.getParseTree());
+    }
+    try {
+      result.get();
+      fail();
+    } catch (ParserException e) {
+      assertEquals(thrown.getMessage(), e.getMessage());
+      assertEquals(7, e.getColumn());
+    }
+  }
+
+  @Test
+  public void testErrorOnTokenLevel() {
+    Terminals terminals = Terminals.operators("+");
+    Parser<?> parser = terminals.token("+").many1()
+        .from(terminals.tokenizer(), Scanners.WHITESPACES.optional(null));
+    ParseResult<?> result = parser.tryParse("+ +\n 1", mode);
+    assertEquals(5, result.getErrorIndex());
+    assertEquals(2, result.getLine());
+    assertEquals(2, result.getColumn());
+  }
+
+  @Test
+  public void testErrorGettersFailOnSuccess() {
+    ParseResult<Integer> result = SUM.tryParse("1", mode);
+    try {
+      result.getErrorIndex();
+      fail();
+    } catch (IllegalStateException expected) {}
+    try {
+      result.getErrorMessage();
+      fail();
+    } catch (IllegalStateException expected) {}
+    try {
+      SUM.tryParse("x", mode).getLength();
+      fail();
+    } catch (IllegalStateException expected) {}
+  }
+
+  @Test
+  public void testExceptionFromGrammarIsThrown() {
+    Parser<Object> parser = Scanners.isChar('a').map(a -> {
+      throw new IllegalArgumentException("bad a");
+    });
+    try {
+      parser.tryParse("a", mode);
+      fail();
+    } catch (ParserException e) {
+      assertEquals("bad a", e.getCause().getMessage());
+    }
+  }
+
+  private ParserException parseError(String source) {
+    try {
+      SUM.parse(source, mode);
+    } catch (ParserException e) {
+      return e;
+    }
+    throw new AssertionError(source);
+  }
+}
@@ -0,0 +1,188 @@
+/*****************************************************************************
+ * Copyright (C) jparsec.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package org.jparsec;
+
+import static org.jparsec.Scanners.isChar;
+import static org.jparsec.Scanners.string;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+import org.jparsec.error.ParserException;
+import org.jparsec.pattern.Patterns;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+/**
+ * Unit test for {@link Parser#optimize} and {@link Parser#compile}.
+ */
+@RunWith(Parameterized.class)
+public class ParserOptimizerTest {
+
+  @Parameterized.Parameters
+  public static Collection<Object[]> data() {
+    return Arrays.asList(new Object[] {Parser.Mode.PRODUCTION}, new Object[] {Parser.Mode.DEBUG});
+  }
+
+  private final Parser.Mode mode;
+
+  public ParserOptimizerTest(Parser.Mode mode) {
+    this.mode = mode;
+  }
+
+  @Test
+  public void testAdjacentScannersAreFused() {
+    Parser<Void> digits = Patterns.many1(Character::isDigit).toScanner("digits");
+    Parser<String> parser = Parsers.sequence(string("ab"), isChar('c'), digits).source();
+    Parser<String> optimized = parser.optimize();
+    assertEquivalent(parser, optimized, "abc1", "abc123", "ab", "abx1", "abc", "xbc1", "abc1x");
+    assertTrue(Parsers.sequence(string("a"), string("b")).optimize() instanceof FusedScanner);
+  }
+
+  @Test
+  public void testNestedSequencesAreFlattenedAndFused() {
+    Parser<Void> parser = Parsers.sequence(
+        Parsers.sequence(string("a"), string("b")), isChar('c'),
+        Parsers.sequence(isChar('d'), string("ef")));
+    Parser<Void> optimized = parser.optimize();
+    assertTrue(optimized instanceof FusedScanner);
+    assertEquivalent(parser, optimized, "abcdef", "abcde", "abcdx", "", "abcdefg");
+  }
+
+  @Test
+  public void testSequenceReturnsLastResult() {
+    Parser<String> parser = Parsers.sequence(string("a"), string("b"), Scanners.IDENTIFIER);
+    assertEquivalent(parser, parser.optimize(), "abfoo", "ab", "a", "ab1");
+  }
+
+  @Test
+  public void testNestedAlternativesAreFlattened() {
+    Parser<String> parser = Parsers.or(
+        Parsers.or(string("a").retn("a"), string("b").retn("b")), string("bc").retn("bc"));
+    Parser<String> optimized = parser.optimize();
+    assertTrue(optimized instanceof OrParser);
+    assertEquivalent(parser, optimized, "a", "b", "bc", "c", "");
+  }
+
+  @Test
+  public void testAlternativesAfterOptionalAreDropped() {
+    Parser<String> parser =
+        Parsers.or(string("a").retn("a").optional("none"), string("b").retn("b"));
+    Parser<String> optimized = parser.optimize();
+    assertEquivalent(parser, optimized, "a", "b", "", "c");
+  }
+
+  @Test
+  public void testMapsAreFolded() {
+    Function<String, Integer> length = new Function<String, Integer>() {
+      @Override public Integer apply(String s) {
+        return s.length();
+      }
+    };
+    Function<Integer, Integer> twice = new Function<Integer, Integer>() {
+      @Override public Integer apply(Integer n) {
+        return n * 2;
+      }
+      @Override public String toString() {
+        return "twice";
+      }
+    };
+    Parser<Integer> parser = Scanners.IDENTIFIER.map(length).map(twice);
+    Parser<Integer> optimized = parser.optimize();
+    assertEquals("twice", optimized.toString());
+    assertEquivalent(parser, optimized, "abc", "", "1");
+  }
+
+  @Test
+  public void testEquivalentNodesAreShared() {
+    Terminals terminals = Terminals.operators("+", "-");
+    ParserOptimizer optimizer = new ParserOptimizer(false);
+    assertSame(optimizer.optimize(terminals.token("+")), optimizer.optimize(terminals.token("+")));
+    assertNotSame(optimizer.optimize(terminals.token("+")), optimizer.optimize(terminals.token("-")));
+    assertSame(
+        optimizer.optimize(Parsers.or(terminals.token("+"), terminals.token("-"))),
+        optimizer.optimize(terminals.token("+", "-")));
+  }
+
+  @Test
+  public void testRecursiveGrammar() {
+    Terminals terminals = Terminals.operators("(", ")", ",");
+    Parser.Reference<Integer> ref = Parser.newReference();
+    Parser<Integer> list = ref.lazy()
+        .sepBy(terminals.token(","))
+        .between(terminals.token("("), terminals.token(")"))
+        .map(l -> l.stream().mapToInt(Integer::intValue).sum() + 1);
+    ref.set(list);
+    Parser<Integer> parser = list.from(terminals.tokenizer(), Scanners.WHITESPACES.optional(null));
+    Parser<Integer> optimized = parser.optimize();
+    assertEquivalent(parser, optimized, "()", "((), (()))", "(()", "(,)", "((),())) ");
+    ref.set(Parsers.never());
+    assertEquals((Object) 2, optimized.parse("(())", mode));
+  }
+
+  @Test
+  public void testCompiledRecursiveGrammar() {
+    Parser.Reference<Integer> ref = Parser.newReference();
+    Parser<Integer> parser = Parsers.or(
+        ref.lazy().between(isChar('('), isChar(')')).map(n -> n + 1),
+        isChar('x').retn(0));
+    ref.set(parser);
+    Parser<Integer> compiled = parser.compile();
+    assertEquals(parser.toString(), compiled.toString());
+    assertEquivalent(parser, compiled, "x", "((x))", "((x)", "(y)", "", "x)");
+    ref.set(Parsers.never());
+    assertEquals((Object) 2, compiled.parse("((x))", mode));
+  }
+
+  @Test
+  public void testCompiledParserCanBeComposed() {
+    Parser.Reference<String> ref = Parser.newReference();
+    Parser<String> ab =
+        Parsers.or(ref.lazy().between(isChar('('), isChar(')')), string("ab").source());
+    ref.set(ab);
+    Parser<String> compiled = ab.compile();
+    Parser<List<String>> parser = compiled.sepBy(isChar(','));
+    assertEquals(Arrays.asList("ab", "ab"), parser.parse("(ab),ab", mode));
+    assertEquivalent(parser, parser.compile(), "ab,(ab)", "ab,", "ab,(ax)");
+  }
+
+  @Test
+  public void testLabelsAreKept() {
+    Parser<?> parser = Parsers.sequence(string("a"), string("b").label("bee"), string("c"));
+    assertEquivalent(parser, parser.optimize(), "abc", "ax", "abx");
+  }
+
+  private void assertEquivalent(Parser<?> parser, Parser<?> optimized, String... inputs) {
+    for (String input : inputs) {
+      assertEquals(input, outcome(parser, input), outcome(optimized, input));
+    }
+  }
+
+  private String outcome(Parser<?> parser, String input) {
+    try {
+      return "parsed " + parser.parse(input, mode);
+    } catch (ParserException e) {
+      return e.getMessage();
+    }
+  }
+}
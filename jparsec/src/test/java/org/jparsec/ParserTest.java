@@ -17,11 +17,16 @@ package org.jparsec;
 
 import org.jparsec.easymock.BaseMockTest;
 import org.jparsec.error.ParserException;
+import org.jparsec.pattern.CharPredicate;
+import org.jparsec.pattern.Patterns;
+import org.jparsec.util.WorstCaseInputs;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 
+import java.io.IOException;
 import java.io.StringReader;
+import java.io.StringWriter;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
@@ -81,6 +86,31 @@ public class ParserTest extends BaseMockTest {
     }
   }
 
+  @Test
+  public void testParse_maxExpected() {
+    Parser<Void> keywords = Parsers.or(
+        string("a").label("a"), string("b").label("b"), string("c").label("c"),
+        string("d").label("d"), string("a").label("a"));
+    try {
+      keywords.many1().parse("x", mode);
+      fail();
+    } catch (ParserException e) {
+      assertEquals(Arrays.asList("a", "b", "c", "d"), e.getErrorDetails().getExpected());
+    }
+    try {
+      keywords.many1().parse("x", mode, 2);
+      fail();
+    } catch (ParserException e) {
+      assertEquals(Arrays.asList("a", "b"), e.getErrorDetails().getExpected());
+    }
+    try {
+      keywords.parse("a", mode, 0);
+      fail();
+    } catch (IllegalArgumentException e) {
+      assertEquals("maxExpected (0) must be positive", e.getMessage());
+    }
+  }
+
   @Test
   public void testSource() {
     assertEquals("source", FOO.source().toString());
@@ -338,6 +368,17 @@ public class ParserTest extends BaseMockTest {
     assertEquals("peek", INTEGER.peek().toString());
   }
 
+  @Test
+  public void testCommit() {
+    Parser<Character> parser = Parsers.or(isChar('a').commit().next(isChar('b')), areChars("ac"));
+    assertEquals((Object) 'b', parser.parse("ab", mode));
+    assertFailure(mode, parser, "ac", 1, 2);
+    assertEquals((Object) 'b', Parsers.or(isChar('a').commit(), isChar('b')).parse("b", mode));
+    assertEquals((Object) 'c',
+        Parsers.or(isChar('a').next(isChar('b')), areChars("ac")).parse("ac", mode));
+    assertEquals(INTEGER.toString(), INTEGER.commit().toString());
+  }
+
   @Test
   public void testAtomic() {
     assertEquals("integer", INTEGER.atomic().toString());
@@ -765,6 +806,265 @@ public class ParserTest extends BaseMockTest {
         parser.parse("12 3  ", mode));
   }
 
+  @Test
+  public void testParseRange_scannersStopAtRangeEnd() {
+    String buffer = "/* a */ /* b */ // c\nd";
+    assertNull(Scanners.JAVA_BLOCK_COMMENT.parse(buffer, 0, 7));
+    assertNull(Scanners.JAVA_DELIMITER.parse(buffer, 0, 20));
+    assertNull(Scanners.JAVA_DELIMITER.parse(new StringBuilder(buffer), 0, 20));
+    for (CharSequence source : Arrays.<CharSequence>asList(buffer, new StringBuilder(buffer))) {
+      try {
+        Scanners.JAVA_BLOCK_COMMENT.parse(source, 8, 14);
+        fail();
+      } catch (ParserException e) {
+        assertEquals(15, e.getColumn());
+      }
+      try {
+        Scanners.JAVA_DELIMITER.parse(source, 0, 14);
+        fail();
+      } catch (ParserException e) {
+        assertEquals(15, e.getColumn());
+      }
+      try {
+        Scanners.string("c\nd").parse(source, 19, 21);
+        fail();
+      } catch (ParserException e) {
+        assertEquals(20, e.getColumn());
+      }
+    }
+  }
+
+  @Test
+  public void testParseRange() {
+    String buffer = "a=1\nb=23\nc=x\n";
+    assertEquals(Integer.valueOf(23), INTEGER.parse(buffer, 6, 8));
+    assertEquals(Integer.valueOf(23), INTEGER.parse(new StringBuilder(buffer), 6, 8));
+    assertEquals(Integer.valueOf(2), INTEGER.parse(buffer, 6, 7, Parser.Origin.RANGE));
+    assertEquals(Arrays.asList(), INTEGER.many().parse(buffer, 3, 3));
+    try {
+      INTEGER.parse(buffer, 6, 9);
+      fail();
+    } catch (ParserException e) {
+      assertEquals(2, e.getLine());
+      assertEquals(5, e.getColumn());
+      assertEquals(Arrays.asList("EOF"), e.getErrorDetails().getExpected());
+    }
+    try {
+      INTEGER.parse(buffer, 11, 12, Parser.Origin.RANGE);
+      fail();
+    } catch (ParserException e) {
+      assertEquals(1, e.getLine());
+      assertEquals(1, e.getColumn());
+    }
+    try {
+      INTEGER.parse(buffer, 8, 20);
+      fail();
+    } catch (IndexOutOfBoundsException e) {
+      assertEquals("Range [8, 20) out of bounds for length 13", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testParseTokenRange() {
+    String source = "1 2\n3 x 4 5";
+    List<Token> tokens = Terminals.Identifier.TOKENIZER.or(Terminals.IntegerLiteral.TOKENIZER)
+        .lexer(Scanners.WHITESPACES).parse(source);
+    Parser<List<String>> numbers = Terminals.IntegerLiteral.PARSER.many();
+    assertEquals(Arrays.asList("2", "3"), numbers.parse(source, tokens, 1, 3));
+    assertEquals(Arrays.asList("4", "5"), numbers.parse(source, tokens, 4, 6));
+    assertEquals(Arrays.asList(), numbers.parse(source, tokens, 6, 6));
+    try {
+      numbers.parse(source, tokens, 2, 5);
+      fail();
+    } catch (ParserException e) {
+      assertEquals(2, e.getLine());
+      assertEquals(3, e.getColumn());
+    }
+    try {
+      numbers.parse(source, tokens, 2, 5, Parser.Origin.RANGE);
+      fail();
+    } catch (ParserException e) {
+      assertEquals(1, e.getLine());
+      assertEquals(3, e.getColumn());
+    }
+    try {
+      Terminals.IntegerLiteral.PARSER.parse(source, tokens, 4, 4, Parser.Origin.RANGE);
+      fail();
+    } catch (ParserException e) {
+      assertEquals(1, e.getLine());
+      assertEquals(1, e.getColumn());
+      assertEquals(8, e.getErrorDetails().getIndex());
+    }
+  }
+
+  @Test
+  public void testParsePrefix() {
+    Parser<List<Integer>> header = INTEGER.followedBy(Scanners.isChar('\n')).many();
+    ParseResult<List<Integer>> result = header.parsePrefix("1\n23\nbody\n4\n");
+    assertEquals(Arrays.asList(1, 23), result.get());
+    assertEquals(5, result.getLength());
+    assertEquals(0, header.parsePrefix("body").getLength());
+    assertEquals(3, INTEGER.parsePrefix("123").getLength());
+    ParseResult<Integer> failure = INTEGER.parsePrefix("x1");
+    assertFalse(failure.isSuccess());
+    assertEquals(0, failure.getErrorIndex());
+  }
+
+  @Test
+  public void testParsePrefix_readsNoMoreThanNeeded() throws Exception {
+    StringBuilder source = new StringBuilder();
+    for (int i = 0; i < 100; i++) {
+      source.append(i).append('\n');
+    }
+    for (int i = 0; i < 100000; i++) {
+      source.append("body\n");
+    }
+    CountingReader reader = new CountingReader(source.toString());
+    Parser<List<Integer>> header = INTEGER.followedBy(Scanners.isChar('\n')).many();
+    ParseResult<List<Integer>> result = header.parsePrefix(reader);
+    assertEquals(100, result.get().size());
+    assertEquals(290, result.getLength());
+    assertTrue(reader.count + " chars read", reader.count <= 4096);
+  }
+
+  @Test
+  public void testParsePrefix_readsOnUntilPrefixEnds() throws Exception {
+    StringBuilder source = new StringBuilder();
+    for (int i = 0; i < 3000; i++) {
+      source.append("a");
+    }
+    source.append("b");
+    CountingReader reader = new CountingReader(source.toString());
+    assertEquals(3000, Scanners.isChar('a').skipMany().parsePrefix(reader).getLength());
+    assertEquals(3001, Scanners.isChar('a').skipMany().followedBy(Scanners.isChar('b'))
+        .parsePrefix(new StringReader(source.toString())).getLength());
+    assertEquals(3001, Scanners.isChar('a').skipMany().next(Scanners.isChar('b'))
+        .parsePrefix(new StringReader(source + "c")).getLength());
+    ParseResult<?> failure = Scanners.isChar('a').skipMany().next(Scanners.isChar('c'))
+        .parsePrefix(new StringReader(source.toString()));
+    assertEquals(3000, failure.getErrorIndex());
+  }
+
+  @Test
+  public void testParsePrefix_readsOnWhileParserLooksAhead() throws Exception {
+    Parser<Void> statement = Patterns.regex("[a-z]*;").toScanner("stmt");
+    String source = WorstCaseInputs.repeat("a", 3000) + ";rest";
+    assertEquals(3001, statement.parsePrefix(source).getLength());
+    assertEquals(3001, statement.parsePrefix(new StringReader(source)).getLength());
+    ParseResult<Void> failure =
+        statement.parsePrefix(new StringReader(WorstCaseInputs.repeat("a", 3000)));
+    assertFalse(failure.isSuccess());
+    assertEquals(statement.parsePrefix(WorstCaseInputs.repeat("a", 3000)).getErrorIndex(),
+        failure.getErrorIndex());
+  }
+
+  @Test
+  public void testParsePrefix_readsOnWhenScannerFailsNearEnd() throws Exception {
+    Parser<Void> parser = Scanners.isChar('x').skipMany().next(Scanners.string("abc"));
+    String source = WorstCaseInputs.repeat("x", 2046) + "abc";
+    assertEquals(2049, parser.parsePrefix(source).getLength());
+    assertEquals(2049, parser.parsePrefix(new StringReader(source)).getLength());
+    String failing = WorstCaseInputs.repeat("x", 2046) + "abd";
+    assertEquals(parser.parsePrefix(failing).getErrorIndex(),
+        parser.parsePrefix(new StringReader(failing)).getErrorIndex());
+  }
+
+  @Test
+  public void testFindAll() {
+    assertEquals(
+        Arrays.asList(new Token(1, 1, 1), new Token(4, 2, 22)), INTEGER.findAll("a1 b22 c"));
+    assertEquals(Arrays.asList(), INTEGER.findAll("abc"));
+    assertEquals(Arrays.asList(), INTEGER.findAll(""));
+    assertEquals(Arrays.asList(new Token(0, 2, "aa"), new Token(3, 1, "a")),
+        Scanners.string("aa").or(Scanners.isChar('a')).source().findAll("aaba"));
+  }
+
+  @Test
+  public void testFindAll_emptyMatches() {
+    Parser<String> as = Scanners.isChar('a').skipMany().source();
+    assertEquals(
+        Arrays.asList(new Token(0, 2, "aa"), new Token(2, 0, ""), new Token(3, 1, "a"),
+            new Token(4, 0, "")),
+        as.findAll("aaba"));
+    assertEquals(Arrays.asList(new Token(0, 0, "")), as.findAll(""));
+  }
+
+  @Test
+  public void testFindAll_skipsIndicesThatCannotStartAMatch() {
+    int[] attempts = {0};
+    Parser<String> select = Scanners.string("select").next(Scanners.WHITESPACES)
+        .next(Scanners.IDENTIFIER).source();
+    Parser<String> counted = new Parser<String>() {
+      @Override boolean apply(ParseContext ctxt) {
+        attempts[0]++;
+        return select.apply(ctxt);
+      }
+      @Override CharPredicate firstChars() {
+        return select.firstChars();
+      }
+    };
+    String text = "to select x, say select  y; selecting select";
+    List<Token> expected =
+        Arrays.asList(new Token(3, 8, "select x"), new Token(17, 9, "select  y"));
+    assertEquals(expected, counted.findAll(text));
+    // Only tried at the 's'.
+    assertEquals(5, attempts[0]);
+    assertEquals(expected, select.findAll(text));
+    assertEquals(expected, select.findAll(new StringBuilder(text)));
+  }
+
+  @Test
+  public void testFindAll_exceptionFromGrammar() {
+    Parser<Integer> parser = INTEGER.map(i -> 10 / i);
+    assertEquals(Arrays.asList(new Token(0, 1, 5)), parser.findAll("2"));
+    try {
+      parser.findAll("2 0");
+      fail();
+    } catch (ParserException e) {
+      assertTrue(e.getCause() instanceof ArithmeticException);
+      assertEquals(4, e.getColumn());
+    }
+  }
+
+  @Test
+  public void testReplaceAll() {
+    Parser<Integer> parser = INTEGER.followedBy(Scanners.isChar('%'));
+    assertEquals("a 0.5, b 0.05 or 7",
+        parser.replaceAll("a 50%, b 5% or 7", m -> Double.toString(m.getValue() / 100.0)));
+    assertEquals("[12%]", parser.replaceAll("12%", m -> "[" + m.getSource() + "]"));
+    assertEquals("no match", parser.replaceAll("no match", m -> "?"));
+    assertEquals("", parser.replaceAll("", m -> "?"));
+    // Like "aab".replaceAll("a*", "-").
+    assertEquals("--b-", Scanners.isChar('a').skipMany().replaceAll("aab", m -> "-"));
+  }
+
+  @Test
+  public void testReplaceAll_toWriter() throws Exception {
+    Parser<String> name =
+        Scanners.string("${").next(Scanners.IDENTIFIER).followedBy(Scanners.isChar('}'));
+    String template = "Hello ${user}, it's ${day}. $ {x}";
+    StringWriter writer = new StringWriter();
+    name.replaceAll(template, m -> m.getValue().toUpperCase(), writer);
+    assertEquals("Hello USER, it's DAY. $ {x}", writer.toString());
+    StringBuilder builder = new StringBuilder();
+    name.replaceAll(new StringBuilder(template), m -> m.getValue(), builder);
+    assertEquals("Hello user, it's day. $ {x}", builder.toString());
+  }
+
+  private static final class CountingReader extends StringReader {
+    int count;
+
+    CountingReader(String s) {
+      super(s);
+    }
+
+    @Override public int read(char[] buf, int off, int len) throws IOException {
+      int n = super.read(buf, off, len);
+      if (n > 0) count += n;
+      return n;
+    }
+  }
+
   @Test
   public void testCopy() throws Exception {
     String content = "foo bar and baz";
@@ -248,6 +248,86 @@ public class ParsersTest extends BaseMockTest {
     assertEquals("foo", Parsers.fail("foo").toString());
   }
 
+  @Test
+  public void testCut() {
+    Parser<Character> ab = Parsers.sequence(isChar('a'), Parsers.cut(), isChar('b'));
+    assertEquals("cut", Parsers.cut().toString());
+    assertEquals((Object) 'b', Parsers.or(ab, areChars("ac")).parse("ab", mode));
+    assertFailure(mode, Parsers.or(ab, areChars("ac")), "ac", 1, 2, "b expected");
+    assertEquals((Object) 'c',
+        Parsers.or(Parsers.sequence(isChar('a'), isChar('b')), areChars("ac")).parse("ac", mode));
+  }
+
+  @Test
+  public void testCut_commitsEnclosingAlternatives() {
+    Parser<Character> ab = Parsers.sequence(isChar('a'), Parsers.cut(), isChar('b'));
+    assertFailure(mode, Parsers.or(ab.followedBy(isChar('c')), areChars("abd")), "abd", 1, 3);
+    assertFailure(mode, Parsers.or(Parsers.or(ab, isChar('x')), areChars("ac")), "ac", 1, 2);
+  }
+
+  @Test
+  public void testCut_endsWithSucceededAlternativeOrRepetition() {
+    Parser<Character> ab = Parsers.sequence(isChar('a'), Parsers.cut(), isChar('b'));
+    Parser<Character> abd = areChars("abd").retn('d');
+    assertEquals((Object) 'd',
+        Parsers.or(Parsers.or(ab, isChar('x')).followedBy(isChar('c')), abd).parse("abd", mode));
+    assertEquals((Object) 'd',
+        Parsers.or(ab.many().followedBy(isChar('c')), abd).parse("abd", mode));
+    assertEquals((Object) 'd',
+        Parsers.or(ab.sepBy(isChar(',')).followedBy(isChar('c')), abd).parse("abd", mode));
+    assertEquals((Object) 'd',
+        Parsers.or(Parsers.longest(ab, isChar('a')).followedBy(isChar('c')), abd)
+            .parse("abd", mode));
+  }
+
+  @Test
+  public void testCut_innerAlternativesStillBacktrack() {
+    Parser<Character> parser = Parsers.sequence(
+        isChar('a'), Parsers.cut(), Parsers.or(areChars("xy"), isChar('x')));
+    assertEquals((Object) 'x', parser.parse("ax", mode));
+    assertFailure(mode, Parsers.or(parser, areChars("az")), "az", 1, 2);
+  }
+
+  @Test
+  public void testCut_inRepetition() {
+    Parser<Character> ab = Parsers.sequence(isChar('a'), Parsers.cut(), isChar('b'));
+    assertEquals(2, ab.many().followedBy(isChar('c')).parse("ababc", mode).size());
+    assertFailure(mode, ab.many().followedBy(areChars("ax")), "ababax", 1, 6);
+    assertFailure(mode, ab.skipMany().followedBy(areChars("ax")), "ax", 1, 2);
+    assertFailure(mode, ab.times(0, 2).followedBy(areChars("ax")), "ax", 1, 2);
+    assertFailure(mode, ab.sepBy(isChar(',')).followedBy(areChars(",ax")), "ab,ax", 1, 5);
+    assertFailure(mode, ab.optional(null).followedBy(areChars("ax")), "ax", 1, 2);
+  }
+
+  @Test
+  public void testCut_inLookAhead() {
+    Parser<Character> ab = Parsers.sequence(isChar('a'), Parsers.cut(), isChar('b'));
+    assertEquals((Object) 'a', Parsers.or(ab.peek(), isChar('a')).parse("a", mode));
+    assertEquals((Object) 'a', ab.not().next(isChar('a')).parse("a", mode));
+    assertEquals((Object) 'x', Parsers.or(ab.ifelse(isChar('x'), isChar('y')), isChar('a'))
+        .parse("abx", mode));
+    assertEquals((Object) 'a', Parsers.or(ab.succeeds().next(isChar('x')), isChar('a'))
+        .parse("a", mode));
+  }
+
+  @Test
+  public void testCut_inLongest() {
+    Parser<Character> ab = Parsers.sequence(isChar('a'), Parsers.cut(), isChar('b'));
+    assertEquals((Object) 'b', Parsers.longest(isChar('a'), ab).parse("ab", mode));
+    assertFailure(mode, Parsers.longest(ab, isChar('a')), "ac", 1, 2);
+    assertFailure(mode, Parsers.shortest(ab, isChar('a')), "ac", 1, 2);
+  }
+
+  @Test
+  public void testCut_inLaterLongestAlternativeKeepsEarlierMatch() {
+    Parser<Character> ab = Parsers.sequence(isChar('a'), Parsers.cut(), isChar('b'));
+    Parser<?> longest = Parsers.longest(isChar('a'), ab, Parsers.sequence(ab, isChar('c')));
+    assertEquals((Object) 'a', longest.followedBy(isChar('c')).parse("ac", mode));
+    assertEquals((Object) 'a', Parsers.shortest(isChar('a'), ab).followedBy(isChar('c'))
+        .parse("ac", mode));
+    assertEquals((Object) 'b', longest.parse("ab", mode));
+  }
+
   @SuppressWarnings("unchecked")
   @Test
   public void testOr_0Parser() {
@@ -272,6 +352,56 @@ public class ParsersTest extends BaseMockTest {
     assertFailure(mode, Parsers.or(areChars("ax"), areChars("abc")), "abx", 1, 3);
   }
 
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testAnyOf_0Or1Parser() {
+    assertSame(Parsers.never(), Parsers.anyOf());
+    Parser<?> parser = Parsers.constant(1);
+    assertSame(parser, Parsers.anyOf(parser));
+  }
+
+  @Test
+  public void testAnyOf() {
+    Parser<String> parser = Parsers.anyOf(
+        Scanners.string("if").retn("if"), Scanners.string("while").retn("while"),
+        Scanners.string("return").retn("return"));
+    assertEquals("anyOf", parser.toString());
+    assertEquals("if", parser.parse("if", mode));
+    assertEquals("while", parser.parse("while", mode));
+    assertEquals("return", parser.parse("return", mode));
+    assertFailure(mode, parser, "for", 1, 1);
+    assertFailure(mode, parser, "whilst", 1, 1);
+    assertEquals(Arrays.asList("if", "while"),
+        Parsers.anyOf(Arrays.asList(Scanners.string("if").retn("if"),
+            Scanners.string("while").retn("while"))).many().parse("ifwhile", mode));
+  }
+
+  @Test
+  public void testAnyOf_optimizeFreezesMostFrequentFirst() {
+    Parser<String> rare = Scanners.string("rare").retn("rare");
+    Parser<String> common = Scanners.string("common").retn("common");
+    AnyOfParser<String> parser = (AnyOfParser<String>) Parsers.anyOf(rare, common);
+    Parser<List<String>> list = parser.sepBy(Scanners.isChar(','));
+    StringBuilder source = new StringBuilder("rare");
+    for (int i = 0; i < 3000; i++) {
+      source.append(",common");
+    }
+    assertEquals(Arrays.asList(rare, common), Arrays.asList(parser.currentOrder()));
+    assertEquals(3001, list.parse(source, mode).size());
+    assertEquals(Arrays.asList(common, rare), Arrays.asList(parser.currentOrder()));
+    assertEquals("rare", parser.parse("rare", mode));
+    assertFailure(mode, parser, "x", 1, 1);
+
+    Parser<String> frozen = parser.optimize();
+    assertEquals("or", frozen.toString());
+    assertEquals("rare", frozen.parse("rare", mode));
+    for (int i = 0; i < 3000; i++) {
+      parser.parse("rare", mode);
+    }
+    assertEquals(Arrays.asList(rare, common), Arrays.asList(parser.currentOrder()));
+    assertEquals("common", frozen.optimize().parse("common", mode));
+  }
+
   @Test
   public void testOr_2Parsers() {
     Parser<Character> parser = Parsers.or(isChar('a'), isChar('b'));
@@ -683,6 +813,22 @@ public class ParsersTest extends BaseMockTest {
     assertEquals(2, location.getColumn());
   }
 
+  @Test
+  public void testSourceLocation_resolveAll() {
+    Parser<List<SourceLocation>> parser = Parsers.SOURCE_LOCATION
+        .followedBy(Scanners.IDENTIFIER)
+        .sepBy(Scanners.WHITESPACES);
+    List<SourceLocation> locations = parser.parse("ab\ncd ef\r\ngh", mode);
+    SourceLocation.resolveAll(locations);
+    assertEquals(4, locations.size());
+    assertEquals(Arrays.asList(1, 2, 2, 3), Arrays.asList(
+        locations.get(0).getLine(), locations.get(1).getLine(),
+        locations.get(2).getLine(), locations.get(3).getLine()));
+    assertEquals(Arrays.asList(1, 1, 4, 1), Arrays.asList(
+        locations.get(0).getColumn(), locations.get(1).getColumn(),
+        locations.get(2).getColumn(), locations.get(3).getColumn()));
+  }
+
   @Test
   public void testSourceLocation_nested() {
     Parser<SourceLocation> parser = Parsers.ANY_TOKEN.many().next(Parsers.SOURCE_LOCATION)
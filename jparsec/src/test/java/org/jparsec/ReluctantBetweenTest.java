@@ -74,4 +74,30 @@ public class ReluctantBetweenTest {
 		    Scanners.IDENTIFIER.many().source().reluctantBetween(isChar('('), isChar(')')),
 				"(hello", 1,7);
 	}
+
+  @Test
+  public void parsing_input_with_end_inside_middle() {
+    Parser<String> comment = Scanners.ANY_CHAR.skipMany().source()
+        .reluctantBetween(Scanners.string("/*"), Scanners.string("*/"));
+    assertEquals("a */ b * / c", comment.parse("/*a */ b * / c*/", mode));
+    assertEquals("", comment.parse("/**/", mode));
+    Asserts.assertFailure(mode, comment, "/* a * /", 1, 9);
+  }
+
+  @Test
+  public void parsing_with_end_set_after_construction() {
+    Parser.Reference<Void> end = Parser.newReference();
+    Parser<String> comment = Scanners.ANY_CHAR.skipMany().source()
+        .reluctantBetween(Scanners.string("/*"), end.lazy());
+    end.set(Scanners.string("*/"));
+    assertEquals("a */ b", comment.parse("/*a */ b*/", mode));
+    assertEquals("a */ b", comment.parse("/*a */ b*/", mode));
+    Asserts.assertFailure(mode, comment, "/* a * /", 1, 9);
+  }
+
+  @Test
+  public void parsing_error_in_middle() {
+    Parser<String> parser = Scanners.IDENTIFIER.reluctantBetween(isChar('('), isChar(')'));
+    Asserts.assertFailure(mode, parser, "(1)", 1, 2);
+  }
 }
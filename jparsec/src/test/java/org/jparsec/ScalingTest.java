@@ -0,0 +1,134 @@
+/*****************************************************************************
+ * Copyright (C) jparsec.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package org.jparsec;
+
+import static org.jparsec.util.Scaling.assertNearLinear;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+
+import org.jparsec.error.ParserException;
+import org.jparsec.pattern.Patterns;
+import org.jparsec.util.WorstCaseInputs;
+import org.junit.Test;
+
+/**
+ * Tests that parsing {@link WorstCaseInputs} takes time and memory about linear in the input
+ * size, to catch quadratic behavior early.
+ */
+public class ScalingTest {
+
+  @Test
+  public void testNestedParens() {
+    Parser.Reference<Integer> ref = Parser.newReference();
+    Parser<Integer> parser = Parsers.or(
+        ref.lazy().between(Scanners.isChar('('), Scanners.isChar(')')).map(n -> n + 1),
+        Scanners.isChar('x').retn(0));
+    ref.set(parser);
+    assertEquals(Integer.valueOf(3), parser.parse(WorstCaseInputs.nested("(", "x", ")", 3)));
+    assertNearLinear(500, n -> WorstCaseInputs.nested("(", "x", ")", n), parser::parse);
+  }
+
+  @Test
+  public void testOperatorChain() {
+    Parser<Integer> parser = new OperatorTable<Integer>()
+        .infixl(Scanners.isChar('+').retn((a, b) -> a + b), 10)
+        .infixr(Scanners.isChar('^').retn((a, b) -> a), 20)
+        .build(Scanners.INTEGER.map(Integer::valueOf));
+    assertEquals(Integer.valueOf(3), parser.parse(WorstCaseInputs.chain("1", "+", 3)));
+    assertNearLinear(1000, n -> WorstCaseInputs.chain("1", "+", n), parser::parse);
+    assertNearLinear(1000, n -> WorstCaseInputs.chain("1", "^", n), parser::parse);
+  }
+
+  @Test
+  public void testWideOr() {
+    String[] alternatives = WorstCaseInputs.alternatives("name", 100);
+    Parser<List<String>> parser = Parsers.or(stringParsers(alternatives)).source().many();
+    String last = alternatives[alternatives.length - 1];
+    assertEquals(3, parser.parse(WorstCaseInputs.repeat(last, 3)).size());
+    assertNearLinear(100, n -> WorstCaseInputs.repeat(last, n), parser::parse);
+  }
+
+  @Test
+  public void testLongComment() {
+    Parser<Void> parser = Scanners.blockComment("/*", "*/");
+    assertNearLinear(10000, n -> WorstCaseInputs.comment("/*", "*/", n), parser::parse);
+    Parser<Void> nested = Scanners.nestableBlockComment("/*", "*/");
+    assertNearLinear(10000, n -> WorstCaseInputs.comment("/*", "*/", n), nested::parse);
+  }
+
+  @Test
+  public void testLongList() {
+    Parser<List<Integer>> parser = Scanners.INTEGER.map(Integer::valueOf)
+        .sepBy(Scanners.string(", ")).between(Scanners.isChar('['), Scanners.isChar(']'));
+    assertEquals(3, parser.parse(WorstCaseInputs.list("[", Integer::toString, ", ", "]", 3)).size());
+    assertNearLinear(1000,
+        n -> WorstCaseInputs.list("[", Integer::toString, ", ", "]", n), parser::parse);
+  }
+
+  @Test
+  public void testManyLines() {
+    Parser<?> parser = Scanners.JAVA_LINE_COMMENT.sepEndBy(Scanners.isChar('\n'));
+    assertNearLinear(1000, n -> WorstCaseInputs.lines(i -> "// line " + i, n), parser::parse);
+  }
+
+  @Test
+  public void testErrorAfterManyLines() {
+    Parser<?> parser = Scanners.JAVA_LINE_COMMENT.sepEndBy(Scanners.isChar('\n'));
+    assertNearLinear(1000, n -> WorstCaseInputs.lines(i -> "// line " + i, n) + "oops", source -> {
+      try {
+        parser.parse(source);
+        fail();
+      } catch (ParserException e) {
+        assertEquals(1, e.getLocation().column);
+      }
+    });
+  }
+
+  @Test
+  @SuppressWarnings("deprecation")
+  public void testReluctantBetween() {
+    Parser<String> parser = Scanners.ANY_CHAR.skipMany().source()
+        .reluctantBetween(Scanners.isChar('('), Scanners.isChar(')'));
+    assertNearLinear(1000, n -> WorstCaseInputs.nested("(", "x", ")", n), parser::parse);
+  }
+
+  @Test
+  @SuppressWarnings("deprecation")
+  public void testReluctantBetweenOnMegabyteInput() {
+    Parser<String> parser = Scanners.ANY_CHAR.skipMany().source()
+        .reluctantBetween(Scanners.string("<<"), Scanners.string(">>"));
+    assertNearLinear(
+        1 << 17, n -> "<<" + WorstCaseInputs.repeat("x>", n / 2) + ">>", parser::parse);
+  }
+
+  @Test
+  public void testRegex() {
+    Parser<Void> translated = Patterns.regex("[a-z]+[0-9]").many().toScanner("words");
+    assertNearLinear(1000, n -> WorstCaseInputs.repeat("abc1", n), translated::parse);
+    Parser<Void> backtracking = Patterns.regex("(ab|ac)*a1").many().toScanner("words");
+    assertNearLinear(1000, n -> WorstCaseInputs.repeat("abaca1", n), backtracking::parse);
+  }
+
+  private static Parser<?>[] stringParsers(String[] strings) {
+    Parser<?>[] parsers = new Parser<?>[strings.length];
+    for (int i = 0; i < strings.length; i++) {
+      parsers[i] = Scanners.string(strings[i]);
+    }
+    return parsers;
+  }
+}
@@ -15,6 +15,7 @@
  *****************************************************************************/
 package org.jparsec;
 
+import org.jparsec.error.ParserException;
 import org.jparsec.pattern.CharPredicates;
 import org.jparsec.pattern.Patterns;
 import org.junit.Test;
@@ -381,6 +382,67 @@ public class ScannersTest {
     assertScanner(mode, scanner, "a", "a");
   }
 
+  @Test
+  public void testDelimiters_sameAsGenericScanners() {
+    assertSameAsGeneric(Scanners.JAVA_DELIMITER, "//", "/*", "*/",
+        "", " ", "a", " a", "/", "/a", "// x\n a", "/* x */a", "/* x */ /* y", " /* x *",
+        "/* /* */a", "//\n//\n", " \t/**/\n// a\n/*\n*/ a");
+    assertSameAsGeneric(Scanners.SQL_DELIMITER, "--", "/*", "*/",
+        "", " ", "-", "-a", "-- x\n a", "/* x */ a", "/* x", " a /* x");
+    assertSameAsGeneric(Scanners.HASKELL_DELIMITER, "--", "{-", "-}",
+        "", " ", "{", "{a", "-- x\n{- y -}a", "{- x -", " {- {- -} a", "{-}");
+  }
+
+  @Test
+  public void testBlockComments_sameAsGenericScanners() {
+    String[] inputs = {"", "/", "/*", "/* a", "/* a *", "/* a */", "/* /* */ */ a", "/*/", "/**/"};
+    Parser<Void> generic = Parsers.sequence(
+        Scanners.string("/*"),
+        Patterns.notString("*/").many().toScanner("commented block"),
+        Scanners.string("*/"));
+    for (String input : inputs) {
+      assertSameResult(generic, Scanners.JAVA_BLOCK_COMMENT, input);
+      assertSameResult(generic, Scanners.blockComment("/*", "*/"), input);
+      assertSameResult(
+          new NestableBlockCommentScanner(
+              Scanners.string("/*"), Scanners.string("*/"),
+              Patterns.isChar(CharPredicates.ALWAYS).toScanner("commented")),
+          Scanners.nestableBlockComment("/*", "*/"), input);
+    }
+  }
+
+  private void assertSameAsGeneric(
+      Parser<Void> delimiter, String lineComment, String begin, String end, String... inputs) {
+    Parser<Void> generic = Parsers.or(
+        Scanners.WHITESPACES, Scanners.lineComment(lineComment),
+        Parsers.sequence(
+            Scanners.string(begin),
+            Patterns.notString(end).many().toScanner("commented block"),
+            Scanners.string(end)))
+        .skipMany();
+    Parser<Void> token = Scanners.string("a");
+    for (String input : inputs) {
+      assertSameResult(generic, delimiter, input);
+      assertSameResult(generic.next(token), delimiter.next(token), input);
+      assertSameResult(
+          token.sepBy(generic).followedBy(generic), token.sepBy(delimiter).followedBy(delimiter),
+          input);
+    }
+  }
+
+  private void assertSameResult(Parser<?> expected, Parser<?> actual, String input) {
+    String expectedOutcome = outcome(expected, input);
+    assertEquals(input, expectedOutcome, outcome(actual, input));
+  }
+
+  private String outcome(Parser<?> parser, String input) {
+    try {
+      return "success: " + parser.source().parse(input, mode);
+    } catch (ParserException e) {
+      return e.getLine() + ":" + e.getColumn() + " " + e.getMessage();
+    }
+  }
+
   @Test
   public void testJavaBlockComment() {
     Parser<Void> scanner = Scanners.JAVA_BLOCK_COMMENT;
@@ -614,6 +676,13 @@ public class ScannersTest {
     assertScanner(mode, Scanners.isChar(' ').next(scanner), " aa1", "1");
   }
 
+  @Test
+  public void testNestedScanner_innerScannerStopsAtEndOfOuter() {
+    Parser<Void> scanner = Scanners.nestedScanner(
+        Scanners.string("12"), Scanners.many1(CharPredicates.IS_DIGIT).followedBy(Parsers.EOF));
+    assertNull(scanner.next(Scanners.isChar('3')).parse("123", mode));
+  }
+
   @Test
   public void veryLongDoublyQuotedStringWithEscapedDoubleQuotes() {
     String quoted = "\"" + replicate(1000, "\n\\\"dsvtrbdfvbgf\\\"") + "\"";
@@ -0,0 +1,118 @@
+/*****************************************************************************
+ * Copyright (C) jparsec.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package org.jparsec;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.nio.CharBuffer;
+import java.util.List;
+
+import org.jparsec.error.ParserException;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link Sources}.
+ */
+public class SourcesTest {
+
+  private static final String SOURCE = "a, /* b */ bc,\n  d // e";
+
+  private static final Parser<List<String>> PARSER = Scanners.IDENTIFIER
+      .sepBy(Scanners.isChar(',').next(Scanners.JAVA_DELIMITER))
+      .followedBy(Scanners.JAVA_DELIMITER);
+
+  @Test
+  public void testNormalize_stringIsUnchanged() {
+    assertSame(SOURCE, Sources.normalize(SOURCE));
+  }
+
+  @Test
+  public void testNormalize_copiesJdkSequencesToString() {
+    assertNormalizedToString(new StringBuilder(SOURCE));
+    assertNormalizedToString(new StringBuffer(SOURCE));
+    assertNormalizedToString(CharBuffer.wrap(SOURCE));
+    assertNormalizedToString(CharBuffer.wrap(("xx" + SOURCE).toCharArray(), 2, SOURCE.length()));
+  }
+
+  @Test
+  public void testNormalize_keepsOtherSequences() {
+    CharSequence custom = new Custom(SOURCE);
+    assertSame(custom, Sources.normalize(custom));
+  }
+
+  @Test
+  public void testParse_sameResultForAllSequences() {
+    for (CharSequence source : sequences(SOURCE)) {
+      assertEquals(source.getClass().getName(),
+          "[a, bc, d]", PARSER.parse(source).toString());
+      assertEquals("[a, bc, d]", PARSER.parse(source, Parser.Mode.DEBUG).toString());
+    }
+  }
+
+  @Test
+  public void testParse_sameErrorForAllSequences() {
+    String source = "a,\n b, /* c";
+    for (CharSequence sequence : sequences(source)) {
+      try {
+        PARSER.parse(sequence);
+      } catch (ParserException e) {
+        assertEquals(2, e.getLine());
+        assertEquals(9, e.getColumn());
+        continue;
+      }
+      throw new AssertionError(sequence.getClass().getName());
+    }
+  }
+
+  private static CharSequence[] sequences(String source) {
+    return new CharSequence[] {
+        source, new StringBuilder(source), new StringBuffer(source), CharBuffer.wrap(source),
+        CharBuffer.wrap(source.toCharArray()), new Custom(source)
+    };
+  }
+
+  private static void assertNormalizedToString(CharSequence source) {
+    CharSequence normalized = Sources.normalize(source);
+    assertEquals(String.class, normalized.getClass());
+    assertEquals(SOURCE, normalized);
+  }
+
+  /** A {@link CharSequence} the normalization doesn't know about. */
+  private static final class Custom implements CharSequence {
+    private final String string;
+
+    Custom(String string) {
+      this.string = string;
+    }
+
+    @Override public int length() {
+      return string.length();
+    }
+
+    @Override public char charAt(int index) {
+      return string.charAt(index);
+    }
+
+    @Override public CharSequence subSequence(int start, int end) {
+      return new Custom(string.substring(start, end));
+    }
+
+    @Override public String toString() {
+      return string;
+    }
+  }
+}
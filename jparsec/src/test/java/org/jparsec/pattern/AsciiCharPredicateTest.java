@@ -0,0 +1,181 @@
+/*****************************************************************************
+ * Copyright (C) jparsec.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package org.jparsec.pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.CharBuffer;
+import java.util.Random;
+
+import org.jparsec.Parser;
+import org.jparsec.Scanners;
+import org.junit.Test;
+
+/**
+ * Unit test for {@link AsciiCharPredicate}. Compares the bulk scanning path against the plain
+ * per-character loop.
+ */
+public class AsciiCharPredicateTest {
+
+  private static final String ALPHABET =
+      " \t\r\n\u000b\f/*-_.,;'\"0123456789abcdefxyzABCDEFXYZ\u00a0\u00e9\u2028\u3000\u4e2d\uffff";
+
+  private static final CharPredicate[] PREDICATES = {
+      CharPredicates.ALWAYS, CharPredicates.NEVER,
+      CharPredicates.IS_WHITESPACE, CharPredicates.IS_DIGIT, CharPredicates.IS_HEX_DIGIT,
+      CharPredicates.IS_ALPHA, CharPredicates.IS_ALPHA_, CharPredicates.IS_ALPHA_NUMERIC,
+      CharPredicates.IS_ALPHA_NUMERIC_, CharPredicates.IS_LETTER,
+      CharPredicates.IS_LOWER_CASE, CharPredicates.IS_UPPER_CASE,
+      CharPredicates.isChar('a'), CharPredicates.isChar('\u4e2d'),
+      CharPredicates.notChar('\n'), CharPredicates.notChar('\u4e2d'),
+      CharPredicates.range('a', 'z'), CharPredicates.notRange('0', '9'),
+      CharPredicates.among(" \t\u3000"), CharPredicates.notAmong("*/"),
+      CharPredicates.not(CharPredicates.IS_WHITESPACE),
+      CharPredicates.and(CharPredicates.IS_LETTER, CharPredicates.notChar('x')),
+      CharPredicates.or(CharPredicates.IS_DIGIT, CharPredicates.isChar('.')),
+      CharPredicates.or(
+          CharPredicates.IS_ALPHA, CharPredicates.IS_DIGIT, CharPredicates.isChar('_')),
+      CharPredicates.and(
+          CharPredicates.IS_ALPHA, CharPredicates.IS_LOWER_CASE, CharPredicates.notChar('q')),
+  };
+
+  @Test
+  public void testBuiltInPredicatesAreCompiled() {
+    for (CharPredicate predicate : PREDICATES) {
+      assertTrue(predicate.toString(), predicate instanceof AsciiCharPredicate);
+    }
+  }
+
+  @Test
+  public void testUserPredicatesAreNotCompiled() {
+    CharPredicate custom = c -> c == 'x';
+    assertFalse(CharPredicates.not(custom) instanceof AsciiCharPredicate);
+    assertFalse(CharPredicates.or(custom, CharPredicates.IS_DIGIT) instanceof AsciiCharPredicate);
+  }
+
+  @Test
+  public void testCompileIsIdempotent() {
+    assertSame(CharPredicates.IS_DIGIT, AsciiCharPredicate.compile(CharPredicates.IS_DIGIT));
+  }
+
+  @Test
+  public void testIsCharAgreesWithOriginalPredicate() {
+    CharPredicate original = c -> Character.isJavaIdentifierPart(c);
+    CharPredicate compiled = AsciiCharPredicate.compile(original);
+    for (int c = Character.MIN_VALUE; c <= Character.MAX_VALUE; c++) {
+      assertEquals(original.isChar((char) c), compiled.isChar((char) c));
+    }
+  }
+
+  @Test
+  public void testSkipAgreesWithScalarLoop() {
+    Random random = new Random(42);
+    for (int round = 0; round < 500; round++) {
+      String text = randomText(random, random.nextInt(200));
+      for (CharPredicate predicate : PREDICATES) {
+        int from = text.isEmpty() ? 0 : random.nextInt(text.length() + 1);
+        int end = from + random.nextInt(text.length() - from + 1);
+        assertSkip(predicate, text, from, end);
+        assertSkip(predicate, text, from, text.length());
+      }
+    }
+  }
+
+  @Test
+  public void testPatternsMatchAgreesWithScalarLoop() {
+    Random random = new Random(7);
+    for (int round = 0; round < 200; round++) {
+      String text = randomRun(random, random.nextInt(300));
+      for (CharPredicate predicate : PREDICATES) {
+        for (CharSequence source : sources(text)) {
+          int expected = scalarSkip(predicate, text, 0, text.length());
+          assertEquals(expected, Patterns.many(predicate).match(source, 0, text.length()));
+          assertEquals(expected == 0 ? Pattern.MISMATCH : expected,
+              Patterns.many1(predicate).match(source, 0, text.length()));
+          assertEquals(Math.min(expected, 5),
+              Patterns.atMost(5, predicate).match(source, 0, text.length()));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testScannersAgreeWithScalarLoop() {
+    Parser<String> whitespaces = Scanners.WHITESPACES.source();
+    Parser<String> lineComment = Scanners.JAVA_LINE_COMMENT.source();
+    assertEquals(" \t\u3000\r\n ", whitespaces.parse(" \t\u3000\r\n "));
+    assertEquals("// \u4e2d*/", lineComment.parse("// \u4e2d*/"));
+    assertEquals("//", lineComment.parse((CharSequence) CharBuffer.wrap("//".toCharArray())));
+    assertEquals("// x", Scanners.JAVA_LINE_COMMENT.source().followedBy(Scanners.isChar('\n'))
+        .parse(new StringBuilder("// x\n")));
+  }
+
+  @Test
+  public void testSkipOnCharBufferSlice() {
+    char[] chars = "xx  \t abc  ".toCharArray();
+    CharBuffer slice = CharBuffer.wrap(chars, 2, 7).slice();
+    assertEquals("  \t abc", slice.toString());
+    assertEquals(4, AsciiCharPredicate.skip(CharPredicates.IS_WHITESPACE, slice, 0, slice.length()));
+    assertEquals(7, AsciiCharPredicate.skip(CharPredicates.notChar('\n'), slice, 0, slice.length()));
+    assertEquals(2, AsciiCharPredicate.skip(CharPredicates.notChar('\t'), slice, 1, slice.length()));
+  }
+
+  private static void assertSkip(CharPredicate predicate, String text, int from, int end) {
+    int expected = scalarSkip(predicate, text, from, end);
+    for (CharSequence source : sources(text)) {
+      assertEquals(predicate + " on " + source.getClass(),
+          expected, AsciiCharPredicate.skip(predicate, source, from, end));
+    }
+  }
+
+  private static int scalarSkip(CharPredicate predicate, CharSequence src, int from, int end) {
+    for (int i = from; i < end; i++) {
+      if (!predicate.isChar(src.charAt(i))) return i;
+    }
+    return end;
+  }
+
+  private static CharSequence[] sources(String text) {
+    char[] padded = ("##" + text + "##").toCharArray();
+    return new CharSequence[] {
+        text, new StringBuilder(text), CharBuffer.wrap(text), CharBuffer.wrap(text.toCharArray()),
+        CharBuffer.wrap(padded, 2, text.length()).slice()
+    };
+  }
+
+  private static String randomText(Random random, int length) {
+    StringBuilder builder = new StringBuilder(length);
+    for (int i = 0; i < length; i++) {
+      builder.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+    }
+    return builder.toString();
+  }
+
+  /** Random text biased towards long runs of the same character class. */
+  private static String randomRun(Random random, int length) {
+    StringBuilder builder = new StringBuilder(length);
+    while (builder.length() < length) {
+      char c = ALPHABET.charAt(random.nextInt(ALPHABET.length()));
+      for (int n = random.nextInt(40); n > 0 && builder.length() < length; n--) {
+        builder.append(c);
+      }
+    }
+    return builder.toString();
+  }
+}
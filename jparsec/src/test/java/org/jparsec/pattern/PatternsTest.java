@@ -20,6 +20,7 @@ import org.junit.Test;
 
 import static org.jparsec.pattern.Pattern.MISMATCH;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.fail;
 
 
@@ -455,6 +456,29 @@ public class PatternsTest {
     assertEquals(MISMATCH, Patterns.regex("a*").match("aaab", 3, 2));
   }
 
+  @Test
+  public void testRegex_matchesInPlace() {
+    Pattern pattern = Patterns.regex("(?<=x)a+(?=b)");
+    assertEquals(2, pattern.match("xaab", 1, 3));
+    assertEquals(MISMATCH, pattern.match("yaab", 1, 3));
+    assertEquals(2, Patterns.regex("a+$").match("xaab", 1, 3));
+    assertEquals(1, Patterns.regex("^a").match("xaab", 1, 3));
+    assertEquals(MISMATCH, Patterns.regex("a\\b").match("xaab", 1, 2));
+    assertEquals(3, Patterns.regex(java.util.regex.Pattern.compile("A+", java.util.regex.Pattern.CASE_INSENSITIVE))
+        .match(new StringBuilder("xaaab"), 1, 5));
+  }
+
+  @Test
+  public void testRegex_translated() {
+    Pattern pattern = Patterns.regex("[a-z_][a-z0-9_]*");
+    assertFalse(pattern instanceof RegexPattern);
+    assertEquals(4, pattern.match("1ab_2+", 1, 6));
+    assertEquals(3, pattern.match("1ab_2+", 1, 4));
+    assertEquals(MISMATCH, pattern.match("1ab_2+", 0, 6));
+    assertEquals(MISMATCH, pattern.match("1ab_2+", 3, 2));
+    assertEquals("[a-z_][a-z0-9_]*", pattern.toString());
+  }
+
   @Test
   public void testRegexpPattern() {
     assertEquals(3, Patterns.REGEXP_PATTERN.match("/a/", 0, 3));
@@ -0,0 +1,102 @@
+/*****************************************************************************
+ * Copyright (C) jparsec.org                                                *
+ * ------------------------------------------------------------------------- *
+ * Licensed under the Apache License, Version 2.0 (the "License");           *
+ * you may not use this file except in compliance with the License.          *
+ * You may obtain a copy of the License at                                   *
+ *                                                                           *
+ * http://www.apache.org/licenses/LICENSE-2.0                                *
+ *                                                                           *
+ * Unless required by applicable law or agreed to in writing, software       *
+ * distributed under the License is distributed on an "AS IS" BASIS,         *
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.  *
+ * See the License for the specific language governing permissions and       *
+ * limitations under the License.                                            *
+ *****************************************************************************/
+package org.jparsec.pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.util.Random;
+import java.util.regex.Matcher;
+
+import org.junit.Test;
+
+/**
+ * Unit test for {@link RegexTranslator}. Translated patterns are checked against
+ * {@code java.util.regex} on random input.
+ */
+public class RegexTranslatorTest {
+
+  private static final String[] TRANSLATED = {
+      "", "a", "abc", "a*", "a+", "a?", "a{3}", "a{2,}", "a{1,3}", "a*b", "a+b+", "a?b",
+      "[a-z_][a-z0-9_]*", "[^\"\\\\]*", "\\w+\\s*=", "\\S+", "\\W*+", "[-+]?\\d+", "[a-]+",
+      "\\t\\n\\x41\\u00e9+", "\\.\\*", ".*", ".+", "a*+a", "[a-c]++c", "abc|d|e+", "x(?:ab|cd|e)y",
+      "(?:a|b)c*", "0x[0-9a-fA-F]+|[1-9]\\d*", "/\\*[^*]*\\*/", "(a)*", "(?:ab)+", "(?:ab|c)*d",
+      "\\d+(?:\\.\\d+)?x", "-?(?:0|[1-9]\\d*)(?:\\.\\d+)?",
+  };
+
+  private static final String[] NOT_TRANSLATED = {
+      "a*a", "a*ab", "0x\\d|\\d", "(?:ab|ac)", "a|ab", "a|", "(?:ab)+a", "(?:a|b){2}", "(?:a?)*",
+      "a*?", "a+?b", "^a", "a$", "\\bfoo", "(?=a)a", "(?i)a", "\\1", "\\p{L}", "\\Qa\\E",
+      "[a-f&&[^c]]", "[[a]]", ".", ".?", "\\W\\D", "\\uD83D\\uDE00", "[^a]{2}", "a{1,3}a", "x]",
+      "\\x",
+  };
+
+  private static final String ALPHABET = "aabbcdexyz0129_ .*/+-\"\\\t\n\r\u00e9\u0085\uD83D\uDE00";
+
+  @Test
+  public void testTranslatable() {
+    for (String regex : TRANSLATED) {
+      assertNotNull(regex, RegexTranslator.translate(regex));
+    }
+  }
+
+  @Test
+  public void testNotTranslatable() {
+    for (String regex : NOT_TRANSLATED) {
+      assertNull(regex, RegexTranslator.translate(regex));
+    }
+  }
+
+  @Test
+  public void testTranslatedPatternsAgreeWithRegex() {
+    Random random = new Random(3);
+    for (String regex : TRANSLATED) {
+      Pattern pattern = RegexTranslator.translate(regex);
+      Matcher matcher = java.util.regex.Pattern.compile(regex).matcher("");
+      for (int round = 0; round < 2000; round++) {
+        String text = randomText(random, regex, random.nextInt(12));
+        int begin = random.nextInt(text.length() + 1);
+        int end = begin + random.nextInt(text.length() - begin + 1);
+        matcher.reset(text).region(begin, end);
+        int expected = matcher.lookingAt() ? matcher.end() - begin : Pattern.MISMATCH;
+        assertEquals(regex + " on \"" + text + "\" [" + begin + ", " + end + ")",
+            expected, pattern.match(text, begin, end));
+      }
+    }
+  }
+
+  @Test
+  public void testCharSet() {
+    RegexTranslator.CharSet set = RegexTranslator.CharSet.range('a', 'c')
+        .union(RegexTranslator.CharSet.range('x', 'z'))
+        .union(RegexTranslator.CharSet.range('d', 'd'));
+    assertEquals("[97, 100, 120, 122]", java.util.Arrays.toString(set.ranges));
+    assertEquals("[0, 96, 101, 119, 123, 65535]",
+        java.util.Arrays.toString(set.complement().ranges));
+    assertEquals(set.ranges.length, set.complement().complement().ranges.length);
+  }
+
+  /** Random text mostly made of characters mentioned in {@code regex}. */
+  private static String randomText(Random random, String regex, int length) {
+    StringBuilder builder = new StringBuilder(length);
+    for (int i = 0; i < length; i++) {
+      String source = regex.isEmpty() || random.nextInt(4) == 0 ? ALPHABET : regex;
+      builder.append(source.charAt(random.nextInt(source.length())));
+    }
+    return builder.toString();
+  }
+}